@@ -0,0 +1,147 @@
+package cmc.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import cmc.backend.SystemController;
+import cmc.backend.controller.DatabaseController;
+import cmc.backend.controller.SearchCriteria;
+import cmc.backend.search.CompiledQuery;
+
+/**
+ * Benchmarks the backend's hot paths against a
+ * {@link FakeUniversityDBLibrary}, so no MySQL server is needed and every
+ * run sees the same data.
+ *
+ * Run it as a Java application with {@code src}, {@code bench} and
+ * {@code lib/*} on the class path. Options (all optional):
+ * <pre>
+ *   --schools N      universities in the fake catalog (default 5000)
+ *   --users N        users in the fake user table (default 2000)
+ *   --seed N         data seed (default 42)
+ *   --rtt-micros N   simulated database round trip (default 0)
+ *   --warmup-ms N    warm-up time per benchmark (default 2000)
+ *   --time-ms N      measurement time per benchmark (default 5000)
+ *   --filter REGEX   only run benchmarks whose name matches
+ *   --csv            print comma-separated values instead of a table
+ * </pre>
+ * Compare runs made with the same options before and after a change.
+ */
+public class BackendBenchmarks {
+
+	private int schools = 5000;
+	private int users = 2000;
+	private long seed = 42;
+	private long rttMicros = 0;
+	private long warmupMillis = 2000;
+	private long measureMillis = 5000;
+	private Pattern filter = Pattern.compile(".*");
+	private boolean csv = false;
+
+	private FakeUniversityDBLibrary db;
+	private DatabaseController dbController;
+	private SystemController system;
+	// drives the choice of user, school and criteria per operation
+	private Random pick;
+
+	public static void main(String[] args) throws Exception {
+		BackendBenchmarks b = new BackendBenchmarks();
+		b.parse(args);
+		b.runAll();
+	}
+
+	private void parse(String[] args) {
+		for(int i = 0; i < args.length; i++) {
+			switch(args[i]) {
+			case "--schools": schools = Integer.parseInt(args[++i]); break;
+			case "--users": users = Integer.parseInt(args[++i]); break;
+			case "--seed": seed = Long.parseLong(args[++i]); break;
+			case "--rtt-micros": rttMicros = Long.parseLong(args[++i]); break;
+			case "--warmup-ms": warmupMillis = Long.parseLong(args[++i]); break;
+			case "--time-ms": measureMillis = Long.parseLong(args[++i]); break;
+			case "--filter": filter = Pattern.compile(args[++i]); break;
+			case "--csv": csv = true; break;
+			default: throw new IllegalArgumentException("Unknown option " + args[i]);
+			}
+		}
+	}
+
+	// a fresh fake database and controllers with a warm catalog cache
+	private void setUp() {
+		db = new FakeUniversityDBLibrary().seed(seed, schools, users);
+		db.setRoundTrip(rttMicros, TimeUnit.MICROSECONDS);
+		dbController = new DatabaseController(db);
+		system = new SystemController(dbController);
+		dbController.getAllSchools();
+		pick = new Random(seed);
+	}
+
+	private void runAll() throws Exception {
+		Harness harness = new Harness(warmupMillis, measureMillis);
+		List<Harness.Result> results = new ArrayList<>();
+
+		bench(harness, results, "getAllSchools", () -> dbController.getAllSchools());
+		bench(harness, results, "getAllSchools.cold", () -> {
+			dbController.getUniversityCache().invalidate();
+			return dbController.getAllSchools();
+		});
+		bench(harness, results, "getUser", () -> dbController.getUser(randomUser()));
+		bench(harness, results, "getUserSavedSchoolMap", () -> dbController.getUserSavedSchoolMap());
+		bench(harness, results, "login", () -> {
+			int i = pick.nextInt(users);
+			return system.login("user" + i, "pw" + i);
+		});
+		bench(harness, results, "search.state", () -> system.search(randomState()));
+		bench(harness, results, "search.criteria", () -> {
+			SearchCriteria c = new SearchCriteria();
+			c.setState(randomState());
+			int sat = 400 + pick.nextInt(300);
+			c.setMinSatMath(sat);
+			c.setMaxSatMath(sat + 100);
+			c.addEmphasis(FakeUniversityDBLibrary.EMPHASES[pick.nextInt(FakeUniversityDBLibrary.EMPHASES.length)]);
+			return system.search(c);
+		});
+		// the scan alone, without the search result cache
+		bench(harness, results, "scan.broad", () -> broadQuery().execute());
+		bench(harness, results, "scan.broad.parallel",
+				() -> broadQuery().execute(ForkJoinPool.commonPool(), 0));
+		bench(harness, results, "similar", () -> dbController.getSimilarSchools(randomSchool(), 10));
+
+		if(csv) {
+			System.out.println(Harness.CSV_HEADER);
+			for(Harness.Result r : results) System.out.println(r.toCsv());
+		}
+	}
+
+	private void bench(Harness harness, List<Harness.Result> results, String name, Harness.Op op)
+			throws Exception {
+		if(!filter.matcher(name).matches()) return;
+		setUp();
+		Harness.Result r = harness.run(name, op);
+		results.add(r);
+		if(!csv) System.out.println(r);
+	}
+
+	private String randomUser() {
+		return "user" + pick.nextInt(users);
+	}
+
+	private CompiledQuery broadQuery() {
+		SearchCriteria c = new SearchCriteria();
+		c.setMinSatMath(200 + pick.nextInt(300));
+		return CompiledQuery.compile(c, dbController.getCatalog());
+	}
+
+	private String randomSchool() {
+		return dbController.getCatalog().getName(pick.nextInt(schools));
+	}
+
+	private String randomState() {
+		return FakeUniversityDBLibrary.STATES[pick.nextInt(FakeUniversityDBLibrary.STATES.length)];
+	}
+
+}
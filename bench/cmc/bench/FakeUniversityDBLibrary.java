@@ -0,0 +1,245 @@
+package cmc.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import cmc.backend.entities.University;
+import cmc.backend.storage.MemoryStorage;
+import dblibrary.project.csci230.UniversityDBLibrary;
+
+/**
+ * An in-process stand-in for the MySQL-backed {@link UniversityDBLibrary}.
+ *
+ * It keeps every table in a {@link MemoryStorage}, which answers each call
+ * with the same row format and return codes as the real library, so
+ * {@code DatabaseController} cannot tell the difference. Every call can
+ * optionally sleep for a fixed round-trip time to model the network hop
+ * the real library makes.
+ *
+ * The tables are filled by {@link #seed(long, int, int)} from a seeded
+ * random generator, so the same seed and sizes always give the same data.
+ *
+ * It may be shared between threads; each call's simulated round trip
+ * overlaps with other threads' calls.
+ */
+public class FakeUniversityDBLibrary extends UniversityDBLibrary {
+
+	static final String[] STATES = { "MINNESOTA", "IOWA", "WISCONSIN", "ILLINOIS", "NEW YORK",
+			"CALIFORNIA", "TEXAS", "OHIO", "MICHIGAN", "OREGON", "GEORGIA", "MAINE" };
+	static final String[] LOCATIONS = { "URBAN", "SUBURBAN", "SMALL-CITY", "-1" };
+	static final String[] CONTROLS = { "PRIVATE", "STATE", "CITY", "-1" };
+	static final String[] EMPHASES = { "ACCOUNTING", "AGRICULTURE", "ART", "BIOLOGY", "BUSINESS",
+			"CHEMISTRY", "COMPUTER SCIENCE", "ECONOMICS", "EDUCATION", "ENGINEERING", "ENGLISH",
+			"HISTORY", "LIBERAL ARTS", "MATHEMATICS", "MUSIC", "NURSING", "PHILOSOPHY", "PHYSICS",
+			"POLITICAL SCIENCE", "PSYCHOLOGY" };
+
+	private final MemoryStorage tables = new MemoryStorage();
+
+	private volatile long roundTripNanos;
+	private final AtomicLong calls = new AtomicLong();
+
+	/**
+	 * Creates an empty fake with no simulated latency.
+	 */
+	public FakeUniversityDBLibrary() {
+		super("fake", "fake");
+	}
+
+	/**
+	 * Fills the tables with generated data, without counting calls or
+	 * simulating latency.
+	 * @param seed Random seed
+	 * @param schools Number of universities
+	 * @param userCount Number of users; user i is {@code user<i>} with
+	 *        password {@code pw<i>}
+	 * @return this
+	 */
+	public FakeUniversityDBLibrary seed(long seed, int schools, int userCount) {
+		Random r = new Random(seed);
+		List<String> names = new ArrayList<>();
+		for(int i = 0; i < schools; i++) {
+			University u = new University(String.format("UNIVERSITY %06d", i));
+			u.setState(STATES[r.nextInt(STATES.length)]);
+			u.setLocation(LOCATIONS[r.nextInt(LOCATIONS.length)]);
+			u.setControl(CONTROLS[r.nextInt(CONTROLS.length)]);
+			u.setNumStudents(1000 + r.nextInt(40000));
+			u.setPercentFemale(30 + r.nextInt(40));
+			u.setSatVerbal(400 + r.nextInt(401));
+			u.setSatMath(400 + r.nextInt(401));
+			u.setExpenses(10000 + r.nextInt(50000));
+			u.setPercentFinancialAid(r.nextInt(101));
+			u.setNumApplicants(1000 + r.nextInt(50000));
+			u.setPercentAdmitted(r.nextInt(101));
+			u.setPercentEnrolled(r.nextInt(101));
+			u.setScaleAcademics(1 + r.nextInt(5));
+			u.setScaleSocial(1 + r.nextInt(5));
+			u.setScaleQualityOfLife(1 + r.nextInt(5));
+			tables.addUniversity(u);
+			names.add(u.getName());
+
+			int count = r.nextInt(5);
+			for(int e = 0; e < count; e++) tables.addEmphasis(u.getName(), EMPHASES[r.nextInt(EMPHASES.length)]);
+		}
+
+		for(int i = 0; i < userCount; i++) {
+			String username = "user" + i;
+			tables.addUser("FIRST" + i, "LAST" + i, username, "pw" + i, i % 50 == 0 ? 'a' : 'u');
+			int count = names.isEmpty() ? 0 : r.nextInt(6);
+			for(int s = 0; s < count; s++) tables.saveSchool(username, names.get(r.nextInt(names.size())));
+		}
+		return this;
+	}
+
+	/**
+	 * Makes every following call wait for a fixed time, like a round trip
+	 * to a database server would.
+	 * @param time Round-trip time; zero for none
+	 * @param unit Unit of time
+	 */
+	public void setRoundTrip(long time, TimeUnit unit) {
+		roundTripNanos = unit.toNanos(time);
+	}
+
+	/**
+	 * @return the number of library calls made so far
+	 */
+	public long getCalls() {
+		return calls.get();
+	}
+
+	@Override
+	public String[][] user_getUsers() {
+		call();
+		return tables.getUsers();
+	}
+
+	@Override
+	public int user_addUser(String firstName, String lastName, String username,
+			String password, char type) {
+		call();
+		return tables.addUser(firstName, lastName, username, password, type);
+	}
+
+	@Override
+	public int user_editUser(String username, String firstName, String lastName,
+			String password, char type, char activated) {
+		call();
+		return tables.editUser(username, firstName, lastName, password, type, activated);
+	}
+
+	@Override
+	public int user_deleteUser(String username) {
+		call();
+		return tables.deleteUser(username);
+	}
+
+	@Override
+	public String[][] user_getUsernamesWithSavedSchools() {
+		call();
+		return tables.getSavedSchools();
+	}
+
+	@Override
+	public int user_saveSchool(String username, String school) {
+		call();
+		return tables.saveSchool(username, school);
+	}
+
+	@Override
+	public int user_removeSchool(String username, String school) {
+		call();
+		return tables.removeSchool(username, school);
+	}
+
+	@Override
+	public String[][] university_getUniversities() {
+		call();
+		return tables.getUniversities();
+	}
+
+	@Override
+	public String[][] university_getEmphases() {
+		call();
+		return tables.getEmphases();
+	}
+
+	@Override
+	public String[][] university_getNamesWithEmphases() {
+		call();
+		return tables.getNamesWithEmphases();
+	}
+
+	@Override
+	public int university_addUniversity(String name, String state, String location,
+			String control, int numStudents, double percentFemale, double satVerbal, double satMath,
+			double expenses, double percentFinancialAid, int numApplicants, double percentAdmitted,
+			double percentEnrolled, int academics, int social, int qualityOfLife) {
+		call();
+		return tables.addUniversity(university(name, state, location, control, numStudents,
+				percentFemale, satVerbal, satMath, expenses, percentFinancialAid, numApplicants,
+				percentAdmitted, percentEnrolled, academics, social, qualityOfLife));
+	}
+
+	@Override
+	public int university_editUniversity(String name, String state, String location,
+			String control, int numStudents, double percentFemale, double satVerbal, double satMath,
+			double expenses, double percentFinancialAid, int numApplicants, double percentAdmitted,
+			double percentEnrolled, int academics, int social, int qualityOfLife) {
+		call();
+		return tables.editUniversity(university(name, state, location, control, numStudents,
+				percentFemale, satVerbal, satMath, expenses, percentFinancialAid, numApplicants,
+				percentAdmitted, percentEnrolled, academics, social, qualityOfLife));
+	}
+
+	@Override
+	public int university_addUniversityEmphasis(String name, String emphasis) {
+		call();
+		return tables.addEmphasis(name, emphasis);
+	}
+
+	@Override
+	public int university_removeUniversityEmphasis(String name, String emphasis) {
+		call();
+		return tables.removeEmphasis(name, emphasis);
+	}
+
+	@Override
+	public int university_deleteUniversity(String name) {
+		call();
+		return tables.deleteUniversity(name);
+	}
+
+	// counts a call and waits out the simulated round trip
+	private void call() {
+		calls.incrementAndGet();
+		if(roundTripNanos > 0) LockSupport.parkNanos(roundTripNanos);
+	}
+
+	private static University university(String name, String state, String location,
+			String control, int numStudents, double percentFemale, double satVerbal, double satMath,
+			double expenses, double percentFinancialAid, int numApplicants, double percentAdmitted,
+			double percentEnrolled, int academics, int social, int qualityOfLife) {
+		University u = new University(name);
+		u.setState(state);
+		u.setLocation(location);
+		u.setControl(control);
+		u.setNumStudents(numStudents);
+		u.setPercentFemale(percentFemale);
+		u.setSatVerbal(satVerbal);
+		u.setSatMath(satMath);
+		u.setExpenses(expenses);
+		u.setPercentFinancialAid(percentFinancialAid);
+		u.setNumApplicants(numApplicants);
+		u.setPercentAdmitted(percentAdmitted);
+		u.setPercentEnrolled(percentEnrolled);
+		u.setScaleAcademics(academics);
+		u.setScaleSocial(social);
+		u.setScaleQualityOfLife(qualityOfLife);
+		return u;
+	}
+
+}
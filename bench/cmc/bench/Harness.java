@@ -0,0 +1,158 @@
+package cmc.bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A small, dependency-free micro-benchmark runner.
+ *
+ * Each benchmark runs single-threaded: first for a warm-up period whose
+ * results are thrown away (so the JIT has compiled the hot path), then
+ * for a measurement period in which every operation is timed. The
+ * report gives throughput, mean and percentile latency, and how many
+ * bytes the benchmark thread allocated per operation, which is what
+ * drives GC pressure. Work an operation hands to other threads (such as
+ * a parallel catalog load) is timed but its allocations are not counted.
+ *
+ * Results are consumed into {@link #sink} so the JIT cannot drop an
+ * operation whose result is unused.
+ */
+public class Harness {
+
+	/**
+	 * One benchmarked operation.
+	 */
+	public interface Op {
+		/**
+		 * Runs the operation once.
+		 * @return Anything derived from the result, to keep it alive
+		 * @throws Exception if the operation fails, which stops the run
+		 */
+		Object run() throws Exception;
+	}
+
+	/**
+	 * The measurements of one benchmark.
+	 */
+	public static class Result {
+		public final String name;
+		public final long ops;
+		public final double opsPerSecond;
+		public final double meanNanos;
+		public final long p50Nanos;
+		public final long p99Nanos;
+		public final long maxNanos;
+		// -1 if the JVM can't count allocations
+		public final double bytesPerOp;
+
+		Result(String name, long ops, double opsPerSecond, double meanNanos,
+				long p50Nanos, long p99Nanos, long maxNanos, double bytesPerOp) {
+			this.name = name;
+			this.ops = ops;
+			this.opsPerSecond = opsPerSecond;
+			this.meanNanos = meanNanos;
+			this.p50Nanos = p50Nanos;
+			this.p99Nanos = p99Nanos;
+			this.maxNanos = maxNanos;
+			this.bytesPerOp = bytesPerOp;
+		}
+
+		/**
+		 * @return this result as a line of comma-separated values, in the
+		 *         order of {@link Harness#CSV_HEADER}
+		 */
+		public String toCsv() {
+			return String.format(Locale.ROOT, "%s,%d,%.1f,%.1f,%d,%d,%d,%.1f",
+					name, ops, opsPerSecond, meanNanos, p50Nanos, p99Nanos, maxNanos, bytesPerOp);
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "%-32s %12.1f ops/s %12.1f ns/op  p50 %10d  p99 %10d  %12.1f B/op",
+					name, opsPerSecond, meanNanos, p50Nanos, p99Nanos, bytesPerOp);
+		}
+	}
+
+	/**
+	 * The column names of {@link Result#toCsv()}.
+	 */
+	public static final String CSV_HEADER = "benchmark,ops,ops_per_s,mean_ns,p50_ns,p99_ns,max_ns,bytes_per_op";
+
+	// most latencies kept per run; later ones only count towards the mean
+	private static final int MAX_SAMPLES = 1 << 20;
+
+	/**
+	 * Keeps benchmark results reachable.
+	 */
+	public static volatile int sink;
+
+	private final long warmupNanos;
+	private final long measureNanos;
+
+	/**
+	 * Creates a runner.
+	 * @param warmupMillis How long to run each benchmark before measuring
+	 * @param measureMillis How long to measure each benchmark
+	 */
+	public Harness(long warmupMillis, long measureMillis) {
+		if(warmupMillis < 0 || measureMillis <= 0) throw new IllegalArgumentException("Bad run time.");
+		this.warmupNanos = warmupMillis * 1_000_000L;
+		this.measureNanos = measureMillis * 1_000_000L;
+	}
+
+	/**
+	 * Warms up and measures an operation.
+	 * @param name Benchmark name
+	 * @param op Operation
+	 * @return The measurements.
+	 * @throws Exception whatever the operation threw
+	 */
+	public Result run(String name, Op op) throws Exception {
+		long end = System.nanoTime() + warmupNanos;
+		while(System.nanoTime() < end) consume(op.run());
+		System.gc();
+
+		long[] samples = new long[MAX_SAMPLES];
+		long ops = 0;
+		long total = 0;
+		long allocatedBefore = allocatedBytes();
+		long start = System.nanoTime();
+		end = start + measureNanos;
+		long now = start;
+		while(now < end) {
+			long t0 = now;
+			consume(op.run());
+			now = System.nanoTime();
+			long t = now - t0;
+			if(ops < MAX_SAMPLES) samples[(int)ops] = t;
+			total += t;
+			ops++;
+		}
+		long allocatedAfter = allocatedBytes();
+
+		long[] kept = Arrays.copyOf(samples, (int)Math.min(ops, MAX_SAMPLES));
+		Arrays.sort(kept);
+		double bytesPerOp = allocatedBefore < 0 ? -1 : (allocatedAfter - allocatedBefore) / (double)ops;
+		return new Result(name, ops, ops * 1e9 / (now - start), total / (double)ops,
+				percentile(kept, 0.50), percentile(kept, 0.99), kept[kept.length - 1], bytesPerOp);
+	}
+
+	private static long percentile(long[] sorted, double p) {
+		return sorted[(int)Math.min(sorted.length - 1, Math.floor(p * sorted.length))];
+	}
+
+	private static void consume(Object o) {
+		sink ^= System.identityHashCode(o);
+	}
+
+	// bytes allocated so far by this thread, or -1 if the JVM doesn't say
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(!(bean instanceof com.sun.management.ThreadMXBean)) return -1;
+		com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean)bean;
+		if(!sun.isThreadAllocatedMemorySupported() || !sun.isThreadAllocatedMemoryEnabled()) return -1;
+		return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+}
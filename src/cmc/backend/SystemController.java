@@ -1,19 +1,27 @@
 package cmc.backend;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 import cmc.CMCException;
+import cmc.backend.controller.DatabaseController;
+import cmc.backend.controller.Page;
+import cmc.backend.controller.SearchCriteria;
 import cmc.backend.entities.University;
+import cmc.backend.entities.UniversitySummary;
 
 public class SystemController {
 	private DatabaseController myDBController;
 	
-	// Construct a SystemController using the basic (no parameter)
-	// DatabaseController as the underlying database access.
+	// Construct a SystemController on the DatabaseController shared by
+	// the whole process (see DatabaseController.shared()).
 	public SystemController() {
-		this.myDBController = new DatabaseController();
+		this(DatabaseController.shared());
+	}
+	
+	// Construct a SystemController on top of an existing DatabaseController.
+	public SystemController(DatabaseController dbController) {
+		if(dbController == null) throw new IllegalArgumentException("dbController cannot be null.");
+		this.myDBController = dbController;
 	}
 	
 	/**
@@ -55,6 +63,13 @@ public class SystemController {
 		return usersList;
 	}
 	
+	// this ADMIN ONLY method returns one page of the users (and their
+	// data) in username order; pass null for the first page and then
+	// each page's next token
+	public Page<String[]> getUserPage(String token, int size) {
+		return this.myDBController.getUserPage(token, size);
+	}
+	
 	// this ADMIN ONLY method attempts to add a user to the database with the
 	// provided details
 	public boolean addUser(String username, String password,
@@ -82,18 +97,53 @@ public class SystemController {
 	}
 	
 	// this REGULAR USER ONLY method searches for schools in the database
-	// based on provided criteria (just state for now)
+	// based on just the state (blank matches every school); see
+	// search(SearchCriteria) for how the state is matched
 	public List<University> search(String state) {
-		List<University> schoolList = this.myDBController.getAllSchools();
-		
-		List<University> filteredList = new ArrayList<>();
-		for (int i = 0; i < schoolList.size(); i++) {
-			University school = schoolList.get(i);
-			if (state.equals("") || school.getState().equals(state) || school.getState() == "")
-				filteredList.add(school);
-		}
-		
-		return filteredList;
+		SearchCriteria criteria = new SearchCriteria();
+		criteria.setState(state);
+		return this.myDBController.search(criteria);
+	}
+	
+	/**
+	 * Searches for schools in the database that match every criterion
+	 * that is set. This REGULAR USER ONLY method compiles the criteria
+	 * against the cached catalog, so it never goes to the database
+	 * unless the cache is cold, and repeated searches are answered from
+	 * the search result cache.
+	 * @param criteria Search criteria; unset criteria match everything
+	 * @return The matching schools, in database order.
+	 * @throws IllegalArgumentException if criteria is {@code null}
+	 */
+	public List<University> search(SearchCriteria criteria) {
+		return this.myDBController.search(criteria);
+	}
+	
+	/**
+	 * Searches like {@link #search(SearchCriteria)}, but only loads the
+	 * name and state of each school until more is asked for. This
+	 * REGULAR USER ONLY method is for showing a list of results.
+	 * @param criteria Search criteria; unset criteria match everything
+	 * @return Summaries of the matching schools, in database order.
+	 * @throws IllegalArgumentException if criteria is {@code null}
+	 */
+	public List<UniversitySummary> searchSummaries(SearchCriteria criteria) {
+		return this.myDBController.searchSummaries(criteria);
+	}
+	
+	/**
+	 * Gets one page of {@link #searchSummaries(SearchCriteria)}. This is a
+	 * REGULAR USER ONLY method.
+	 * @param criteria Search criteria; unset criteria match everything
+	 * @param token Token from the previous page, or {@code null} for the
+	 *        first page
+	 * @param size Most schools on the page
+	 * @return The page.
+	 * @throws IllegalArgumentException if criteria is {@code null}, size
+	 *         is not positive or the token is not valid
+	 */
+	public Page<UniversitySummary> searchSummaries(SearchCriteria criteria, String token, int size) {
+		return this.myDBController.searchSummaries(criteria, token, size);
 	}
 	
 	// this REGULAR USER ONLY method attempts to add the provided school
@@ -103,10 +153,18 @@ public class SystemController {
 	}
 	
 	// this REGULAR USER ONLY method attempts to retrieve the list of saved
-	// schools for the provided username
+	// schools for the provided username (empty if there are none)
 	public List<String> getSavedSchools(String user) {
-		Map<String, List<String>> usersToSavedSchools = this.myDBController.getUserSavedSchoolMap();
-		return usersToSavedSchools.get(user);
+		return this.myDBController.getSavedSchools(user);
+	}
+	
+	/**
+	 * Gets one university by its exact name.
+	 * @param schoolName University name
+	 * @return A copy of the university, or {@code null} if there is none.
+	 */
+	public University getUniversity(String schoolName) {
+		return this.myDBController.getUniversity(schoolName);
 	}
 	
 	/*
@@ -118,13 +176,10 @@ public class SystemController {
 	 * @version March 24 2025
 	 */
 	public String viewSchool (String schoolName) {
-		List <University> allSchools = this.myDBController.getAllSchools();
+		University school = this.myDBController.getUniversity(schoolName);
 		
-		//loop through list
-		for (University school : allSchools) {
-			
-			//checks to see if the school is there
-			if (school.getName().equals(schoolName)) {
+		//checks to see if the school is there
+		if (school != null) {
 			StringBuilder sb = new StringBuilder(); //string builder sb
 			sb.append("School Name: ").append(school.getName()).append("\n");
 			sb.append("State: ").append(school.getState()).append("\n");
@@ -152,7 +207,6 @@ public class SystemController {
 				sb.append(String.join(", ", school.getEmphases())).append("\n");
 			}
 			return sb.toString(); //proper return
-			}
 		}
 		
 		return schoolName + " " + "is not on the list"; //alt return
@@ -169,6 +223,28 @@ public class SystemController {
 		return myDBController.getAllSchools();
 	}
 	
+	/**
+	 * Gets the name and state of every university in the database, for
+	 * listing them; the rest of a university is loaded on first use.
+	 * @return Summaries of all universities in the database.
+	 */
+	public List<UniversitySummary> getAllUniversitySummaries() {
+		return myDBController.getAllSchoolSummaries();
+	}
+	
+	/**
+	 * Gets one page of {@link #getAllUniversitySummaries()}.
+	 * @param token Token from the previous page, or {@code null} for the
+	 *        first page
+	 * @param size Most universities on the page
+	 * @return The page.
+	 * @throws IllegalArgumentException if size is not positive or the
+	 *         token is not valid
+	 */
+	public Page<UniversitySummary> getUniversitySummaryPage(String token, int size) {
+		return myDBController.getSchoolSummaryPage(token, size);
+	}
+	
 	/**
 	 * Adds a new university to the database by calling the database controller.
 	 * @param uni University
@@ -0,0 +1,117 @@
+package cmc.backend.account;
+
+/**
+ * A CMC account: a username and password plus the owner's name.
+ * Whether the account may log in is tracked by its active flag.
+ */
+public abstract class Account {
+
+	private final String username;
+	private String password;
+	private String firstName;
+	private String lastName;
+	private boolean active = true; // accounts always start activated
+
+	/**
+	 * Creates an active account.
+	 * @param username Unique username
+	 * @param password Password
+	 * @param firstName Owner's first name
+	 * @param lastName Owner's last name
+	 * @throws IllegalArgumentException if username or password is {@code null}
+	 */
+	public Account(String username, String password, String firstName, String lastName) {
+		if(username == null || password == null)
+			throw new IllegalArgumentException("username and password cannot be null.");
+		this.username = username;
+		this.password = password;
+		this.firstName = firstName;
+		this.lastName = lastName;
+	}
+
+	/**
+	 * Checks a password against this account's.
+	 * @param password Password to check
+	 * @return {@code true} if it matches
+	 */
+	public boolean authenticate(String password) {
+		return this.password.equals(password);
+	}
+
+	/**
+	 * @return {@code true} if this is an administrator account
+	 */
+	public abstract boolean isAdmin();
+
+	/**
+	 * @return the type character stored in the database ('a' or 'u')
+	 */
+	public char getType() {
+		return isAdmin() ? 'a' : 'u';
+	}
+
+	/**
+	 * @return the username
+	 */
+	public String getUsername() {
+		return username;
+	}
+
+	/**
+	 * @return the password
+	 */
+	public String getPassword() {
+		return password;
+	}
+
+	/**
+	 * @param password the password to set
+	 */
+	public void setPassword(String password) {
+		if(password == null) throw new IllegalArgumentException("password cannot be null.");
+		this.password = password;
+	}
+
+	/**
+	 * @return the first name
+	 */
+	public String getFirstName() {
+		return firstName;
+	}
+
+	/**
+	 * @param firstName the first name to set
+	 */
+	public void setFirstName(String firstName) {
+		this.firstName = firstName;
+	}
+
+	/**
+	 * @return the last name
+	 */
+	public String getLastName() {
+		return lastName;
+	}
+
+	/**
+	 * @param lastName the last name to set
+	 */
+	public void setLastName(String lastName) {
+		this.lastName = lastName;
+	}
+
+	/**
+	 * @return {@code true} if the account may log in
+	 */
+	public boolean isActive() {
+		return active;
+	}
+
+	/**
+	 * @param active whether the account may log in
+	 */
+	public void setActive(boolean active) {
+		this.active = active;
+	}
+
+}
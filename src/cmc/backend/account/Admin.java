@@ -0,0 +1,24 @@
+package cmc.backend.account;
+
+/**
+ * An administrator account, which manages users and universities.
+ */
+public class Admin extends Account {
+
+	/**
+	 * Creates an active administrator account.
+	 * @param username Unique username
+	 * @param password Password
+	 * @param firstName Owner's first name
+	 * @param lastName Owner's last name
+	 */
+	public Admin(String username, String password, String firstName, String lastName) {
+		super(username, password, firstName, lastName);
+	}
+
+	@Override
+	public boolean isAdmin() {
+		return true;
+	}
+
+}
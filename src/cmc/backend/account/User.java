@@ -0,0 +1,24 @@
+package cmc.backend.account;
+
+/**
+ * A regular user account, which searches for and saves schools.
+ */
+public class User extends Account {
+
+	/**
+	 * Creates an active user account.
+	 * @param username Unique username
+	 * @param password Password
+	 * @param firstName Owner's first name
+	 * @param lastName Owner's last name
+	 */
+	public User(String username, String password, String firstName, String lastName) {
+		super(username, password, firstName, lastName);
+	}
+
+	@Override
+	public boolean isAdmin() {
+		return false;
+	}
+
+}
@@ -0,0 +1,161 @@
+package cmc.backend.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * An in-memory index from each username to the set of schools that
+ * user has saved.
+ *
+ * The whole mapping is only downloaded on the first lookup (or after
+ * {@link #rebuild()}). After that the caller keeps it in sync with
+ * {@link #add(String, String)}, {@link #remove(String, String)} and
+ * {@link #removeUser(String)} whenever it writes to the database,
+ * so checking or changing one user's saved schools no longer touches
+ * anyone else's. The mapping can also be read a few users at a time,
+ * in username order, with {@link #page(String, int)}.
+ */
+public class SavedSchoolIndex {
+
+	private final Supplier<String[][]> loader;
+
+	// Each user's schools in the order they were saved, by username.
+	// null when nothing is loaded.
+	private TreeMap<String, LinkedHashSet<String>> saved;
+
+	/**
+	 * Creates an empty index.
+	 * @param loader Fetches every (username, school) pair from the database.
+	 * @throws IllegalArgumentException if loader is {@code null}
+	 */
+	public SavedSchoolIndex(Supplier<String[][]> loader) {
+		if(loader == null) throw new IllegalArgumentException("loader cannot be null.");
+		this.loader = loader;
+	}
+
+	/**
+	 * Checks if a user has already saved a school.
+	 * @param username Username
+	 * @param school School name
+	 * @return {@code true} if the school is in the user's list.
+	 */
+	public synchronized boolean contains(String username, String school) {
+		ensureLoaded();
+		Set<String> schools = saved.get(username);
+		return schools != null && schools.contains(school);
+	}
+
+	/**
+	 * Gets one user's saved schools.
+	 * @param username Username
+	 * @return A copy of the user's saved schools (empty if there are none).
+	 */
+	public synchronized List<String> get(String username) {
+		ensureLoaded();
+		Set<String> schools = saved.get(username);
+		return schools == null ? new ArrayList<String>() : new ArrayList<>(schools);
+	}
+
+	/**
+	 * Gets every user's saved schools. Users without saved schools
+	 * are not in the map.
+	 * @return A copy of the whole mapping.
+	 */
+	public synchronized Map<String, List<String>> asMap() {
+		ensureLoaded();
+		Map<String, List<String>> result = new HashMap<>(saved.size() * 2);
+		for(Map.Entry<String, LinkedHashSet<String>> e : saved.entrySet()) {
+			result.put(e.getKey(), new ArrayList<>(e.getValue()));
+		}
+		return result;
+	}
+
+	/**
+	 * Gets the saved schools of the users that come after a username,
+	 * in username order. Users without saved schools are skipped.
+	 * @param after Last username of the previous page, or {@code null}
+	 *        to start with the first user
+	 * @param size Most users to return
+	 * @return A copy of up to size users' lists, in username order.
+	 * @throws IllegalArgumentException if size is not positive
+	 */
+	public synchronized Map<String, List<String>> page(String after, int size) {
+		if(size <= 0) throw new IllegalArgumentException("size must be positive.");
+		ensureLoaded();
+		Map<String, LinkedHashSet<String>> rest = after == null ? saved : saved.tailMap(after, false);
+		Map<String, List<String>> result = new LinkedHashMap<>();
+		for(Map.Entry<String, LinkedHashSet<String>> e : rest.entrySet()) {
+			if(result.size() == size) break;
+			result.put(e.getKey(), new ArrayList<>(e.getValue()));
+		}
+		return result;
+	}
+
+	/**
+	 * Records a school that was saved in the database.
+	 * @param username Username
+	 * @param school School name
+	 */
+	public synchronized void add(String username, String school) {
+		if(saved == null) return;
+		LinkedHashSet<String> schools = saved.get(username);
+		if(schools == null) {
+			schools = new LinkedHashSet<>();
+			saved.put(username, schools);
+		}
+		schools.add(school);
+	}
+
+	/**
+	 * Forgets a school that was removed from a user's list in the database.
+	 * @param username Username
+	 * @param school School name
+	 */
+	public synchronized void remove(String username, String school) {
+		if(saved == null) return;
+		Set<String> schools = saved.get(username);
+		if(schools != null && schools.remove(school) && schools.isEmpty()) {
+			saved.remove(username);
+		}
+	}
+
+	/**
+	 * Forgets all of a user's saved schools.
+	 * @param username Username
+	 */
+	public synchronized void removeUser(String username) {
+		if(saved != null) saved.remove(username);
+	}
+
+	/**
+	 * Reloads the whole mapping from the database right away.
+	 */
+	public synchronized void rebuild() {
+		String[][] pairs = loader.get();
+		TreeMap<String, LinkedHashSet<String>> fresh = new TreeMap<>();
+		for(String[] pair : pairs) {
+			LinkedHashSet<String> schools = fresh.get(pair[0]);
+			if(schools == null) {
+				schools = new LinkedHashSet<>();
+				fresh.put(pair[0], schools);
+			}
+			schools.add(pair[1]);
+		}
+		saved = fresh;
+	}
+
+	/**
+	 * Must be called while holding this object's lock.
+	 */
+	private void ensureLoaded() {
+		if(saved == null) rebuild();
+	}
+
+}
@@ -0,0 +1,145 @@
+package cmc.backend.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the rows matched by recent searches, so a search that was
+ * already run against the current catalog is answered without
+ * compiling or scanning anything.
+ *
+ * Searches are keyed by the canonical form of their criteria (see
+ * {@code SearchCriteria.canonicalForm()}), so the same search typed
+ * differently is still a hit. Every result belongs to one version of
+ * the catalog ({@link UniversityCache#getVersion()}); the first lookup
+ * for a newer version drops everything, because any write may change
+ * any result. Beyond that the least recently used results are evicted
+ * once there are more than a maximum number of them, or they hold more
+ * than a maximum number of rows in total.
+ */
+public class SearchResultCache {
+
+	/**
+	 * The default maximum number of cached searches.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 256;
+
+	/**
+	 * The default maximum number of row ids held over all searches.
+	 */
+	public static final int DEFAULT_MAX_ROWS = 1 << 20;
+
+	private final int maxEntries;
+	private final long maxRows;
+
+	// Access-ordered, so the eldest entry is the least recently used
+	private final LinkedHashMap<String, int[]> results = new LinkedHashMap<>(16, 0.75f, true);
+	private long version = Long.MIN_VALUE;
+	private long rows;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * Creates a cache with the default bounds.
+	 */
+	public SearchResultCache() {
+		this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_ROWS);
+	}
+
+	/**
+	 * Creates a cache.
+	 * @param maxEntries Most searches to keep
+	 * @param maxRows Most row ids to keep over all searches
+	 * @throws IllegalArgumentException if either bound is negative
+	 */
+	public SearchResultCache(int maxEntries, long maxRows) {
+		if(maxEntries < 0 || maxRows < 0) throw new IllegalArgumentException("bounds cannot be negative.");
+		this.maxEntries = maxEntries;
+		this.maxRows = maxRows;
+	}
+
+	/**
+	 * Looks up a search.
+	 * @param key Canonical form of the criteria
+	 * @param version Version of the catalog the search would run against
+	 * @return The matching row ids, or {@code null} if the search is not
+	 *         cached for this version. Do not modify them.
+	 */
+	public synchronized int[] get(String key, long version) {
+		sync(version);
+		int[] rows = version == this.version ? results.get(key) : null;
+		if(rows == null) misses.incrementAndGet();
+		else hits.incrementAndGet();
+		return rows;
+	}
+
+	/**
+	 * Stores the result of a search.
+	 * @param key Canonical form of the criteria
+	 * @param version Version of the catalog the search ran against
+	 * @param rows Matching row ids; they are kept, not copied
+	 */
+	public synchronized void put(String key, long version, int[] rows) {
+		sync(version);
+		// a result for an older catalog is already out of date
+		if(version != this.version || rows.length > maxRows) return;
+
+		int[] old = results.put(key, rows);
+		if(old != null) this.rows -= old.length;
+		this.rows += rows.length;
+
+		Iterator<Map.Entry<String, int[]>> eldest = results.entrySet().iterator();
+		while(results.size() > maxEntries || this.rows > maxRows) {
+			this.rows -= eldest.next().getValue().length;
+			eldest.remove();
+			evictions.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Drops every cached search.
+	 */
+	public synchronized void clear() {
+		results.clear();
+		rows = 0;
+	}
+
+	/**
+	 * @return the number of cached searches
+	 */
+	public synchronized int size() {
+		return results.size();
+	}
+
+	/**
+	 * @return the number of lookups that found a result
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of lookups that found nothing
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of results evicted to stay within the bounds
+	 */
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	private void sync(long version) {
+		if(version <= this.version) return;
+		clear();
+		this.version = version;
+	}
+
+}
@@ -0,0 +1,377 @@
+package cmc.backend.cache;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import cmc.backend.catalog.CatalogSnapshot;
+import cmc.backend.catalog.ColumnarCatalog;
+import cmc.backend.entities.University;
+
+/**
+ * An in-process, read-through cache of the university catalog.
+ *
+ * The first read (and any read after the catalog is older than the
+ * staleness bound) loads every university through the loader given
+ * to the constructor. Every other read is served from memory.
+ * Writes that already went to the database should be applied with
+ * {@link #put(University)} and {@link #remove(String)} so the cache
+ * stays in sync without a reload.
+ *
+ * The catalog is held as a frozen {@link ColumnarCatalog}, published
+ * together with its version through an atomic reference. Reads of a
+ * fresh catalog just read that reference, so they never lock and never
+ * wait for a write or for each other. Loads and writes are serialized
+ * by this object's lock: a write builds an edited copy of the catalog
+ * and publishes it in one step, so a catalog returned by
+ * {@link #getCatalog()} never changes underneath a scan. Every
+ * university the cache returns is freshly materialized from the
+ * catalog, so callers may freely edit what they get back.
+ *
+ * With a {@link CatalogSnapshot} set, the first load reads the snapshot
+ * instead of the database if it is younger than the staleness bound,
+ * every database load rewrites it, and any write deletes it, so a
+ * snapshot never holds a catalog older than the database's.
+ */
+public class UniversityCache {
+
+	/**
+	 * The default staleness bound, five minutes.
+	 */
+	public static final long DEFAULT_MAX_AGE_MILLIS = 5 * 60 * 1000L;
+
+	/**
+	 * One published catalog and its version. It never changes once it is
+	 * published, so the two always belong together.
+	 */
+	public static final class Version {
+
+		// null when nothing is loaded
+		private final ColumnarCatalog catalog;
+		private final long number;
+		private final long loadedAt;
+
+		private Version(ColumnarCatalog catalog, long number, long loadedAt) {
+			this.catalog = catalog;
+			this.number = number;
+			this.loadedAt = loadedAt;
+		}
+
+		/**
+		 * @return the catalog, which is frozen
+		 */
+		public ColumnarCatalog getCatalog() {
+			return catalog;
+		}
+
+		/**
+		 * @return the version number, which changes every time the
+		 *         catalog is loaded or written
+		 */
+		public long getNumber() {
+			return number;
+		}
+
+	}
+
+	private final Supplier<List<University>> loader;
+
+	private volatile long maxAgeMillis;
+
+	// Replaced, never changed, by loads and writes while holding this
+	// object's lock. Rows are in the order the loader returned them.
+	private final AtomicReference<Version> current = new AtomicReference<>(new Version(null, 0, 0));
+
+	// null when not snapshotting
+	private CatalogSnapshot snapshot;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong snapshotLoads = new AtomicLong();
+
+	/**
+	 * Creates a cache with the default staleness bound.
+	 * @param loader Fetches the whole catalog from the database.
+	 * @throws IllegalArgumentException if loader is {@code null}
+	 */
+	public UniversityCache(Supplier<List<University>> loader) {
+		this(loader, DEFAULT_MAX_AGE_MILLIS);
+	}
+
+	/**
+	 * Creates a cache.
+	 * @param loader Fetches the whole catalog from the database.
+	 * @param maxAgeMillis How long a loaded catalog may be served before
+	 *        it is reloaded. Zero reloads on every read and a negative
+	 *        value never reloads.
+	 * @throws IllegalArgumentException if loader is {@code null}
+	 */
+	public UniversityCache(Supplier<List<University>> loader, long maxAgeMillis) {
+		if(loader == null) throw new IllegalArgumentException("loader cannot be null.");
+		this.loader = loader;
+		this.maxAgeMillis = maxAgeMillis;
+	}
+
+	/**
+	 * Gets every university in the catalog.
+	 * @return Copies of every university, in database order.
+	 */
+	public List<University> getAll() {
+		return current().catalog.materializeAll();
+	}
+	
+	/**
+	 * Gets the whole catalog in columnar form for scans. The returned
+	 * catalog is frozen and never changed by the cache, so it may be read
+	 * without holding any lock; it just won't see later writes.
+	 * @return The current catalog.
+	 */
+	public ColumnarCatalog getCatalog() {
+		return current().catalog;
+	}
+
+	/**
+	 * Gets the current catalog together with its version, e.g. to cache
+	 * something computed from the catalog under that version.
+	 * @return The current version, loading the catalog if needed.
+	 */
+	public Version current() {
+		Version v = current.get();
+		if(isFresh(v, System.nanoTime())) {
+			hits.incrementAndGet();
+			return v;
+		}
+		synchronized(this) {
+			// another thread may have loaded it while this one waited
+			v = current.get();
+			long now = System.nanoTime();
+			if(isFresh(v, now)) {
+				hits.incrementAndGet();
+				return v;
+			}
+			misses.incrementAndGet();
+			return load(v, now);
+		}
+	}
+
+	/**
+	 * Gets a single university by its exact name.
+	 * @param name University name
+	 * @return A copy of the university, or {@code null} if there is none.
+	 */
+	public University get(String name) {
+		ColumnarCatalog c = current().catalog;
+		int row = c.rowOf(name);
+		return row < 0 ? null : c.materialize(row);
+	}
+
+	/**
+	 * Adds or replaces a university after it was written to the database.
+	 * Nothing happens if the catalog is not loaded yet; the next read
+	 * will load it (including this university) from the database.
+	 * @param u University that was added or edited
+	 * @throws IllegalArgumentException if u is {@code null}
+	 */
+	public synchronized void put(University u) {
+		if(u == null) throw new IllegalArgumentException("u cannot be null.");
+		Version v = current.get();
+		if(v.catalog == null) return;
+		ColumnarCatalog next = v.catalog.copy();
+		next.put(u);
+		publish(next, v.loadedAt);
+		dropSnapshot();
+	}
+
+	/**
+	 * Adds or replaces many universities with a single copy of the
+	 * catalog, instead of the copy per university that
+	 * {@link #put(University)} would make.
+	 * @param list Universities that were added or edited
+	 * @throws IllegalArgumentException if list or any of its elements
+	 *         is {@code null}
+	 */
+	public synchronized void putAll(Collection<University> list) {
+		if(list == null || list.contains(null)) throw new IllegalArgumentException("list cannot contain null.");
+		Version v = current.get();
+		if(v.catalog == null || list.isEmpty()) return;
+		ColumnarCatalog next = v.catalog.copy();
+		for(University u : list) next.put(u);
+		publish(next, v.loadedAt);
+		dropSnapshot();
+	}
+
+	/**
+	 * Removes a university after it was deleted from the database.
+	 * @param name University name
+	 */
+	public synchronized void remove(String name) {
+		Version v = current.get();
+		if(v.catalog == null || v.catalog.rowOf(name) < 0) return;
+		ColumnarCatalog next = v.catalog.copy();
+		next.remove(name);
+		publish(next, v.loadedAt);
+		dropSnapshot();
+	}
+
+	/**
+	 * Removes many universities with a single copy of the catalog.
+	 * @param names Names of universities deleted from the database
+	 */
+	public synchronized void removeAll(Collection<String> names) {
+		Version v = current.get();
+		if(v.catalog == null || names.isEmpty()) return;
+		ColumnarCatalog next = v.catalog.copy();
+		for(String name : names) next.remove(name);
+		publish(next, v.loadedAt);
+		dropSnapshot();
+	}
+
+	/**
+	 * Drops the loaded catalog so the next read goes to the database.
+	 */
+	public synchronized void invalidate() {
+		publish(null, 0);
+		dropSnapshot();
+	}
+
+	/**
+	 * Sets the snapshot file used to start without a database load.
+	 * @param snapshot Snapshot, or {@code null} to stop using one
+	 */
+	public synchronized void setSnapshot(CatalogSnapshot snapshot) {
+		this.snapshot = snapshot;
+	}
+
+	/**
+	 * @return the snapshot file in use, or {@code null}
+	 */
+	public synchronized CatalogSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * @return the number of loads served from the snapshot instead of
+	 *         the database; these are also counted as misses
+	 */
+	public long getSnapshotLoads() {
+		return snapshotLoads.get();
+	}
+
+	/**
+	 * Gets the version of the catalog, which changes every time the
+	 * catalog is loaded or written, so anything computed from one
+	 * version can be recognized as out of date. Use {@link #current()}
+	 * to get a catalog and its version together.
+	 * @return The current version.
+	 */
+	public long getVersion() {
+		return current.get().number;
+	}
+
+	/**
+	 * @return the number of reads served from memory
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of reads that had to load the catalog
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the staleness bound in milliseconds
+	 */
+	public long getMaxAge() {
+		return maxAgeMillis;
+	}
+
+	/**
+	 * @param maxAgeMillis the staleness bound to set; zero reloads on
+	 *        every read and a negative value never reloads
+	 */
+	public void setMaxAge(long maxAgeMillis) {
+		this.maxAgeMillis = maxAgeMillis;
+	}
+
+	private boolean isFresh(Version v, long now) {
+		long maxAge = maxAgeMillis;
+		return v.catalog != null && (maxAge < 0 || (now - v.loadedAt) / 1_000_000L < maxAge);
+	}
+
+	/**
+	 * Freezes a catalog and publishes it as the next version.
+	 * Must be called while holding this object's lock.
+	 */
+	private Version publish(ColumnarCatalog catalog, long loadedAt) {
+		Version next = new Version(catalog == null ? null : catalog.freeze(),
+				current.get().number + 1, loadedAt);
+		current.set(next);
+		return next;
+	}
+
+	/**
+	 * Loads and publishes the catalog.
+	 * Must be called while holding this object's lock.
+	 */
+	private Version load(Version v, long now) {
+		// only the first load may come from the snapshot; once it is stale
+		// so is the snapshot
+		if(v.catalog == null) {
+			Version read = loadSnapshot(now);
+			if(read != null) return read;
+		}
+		Version loaded = publish(ColumnarCatalog.of(loader.get()), now);
+		saveSnapshot(loaded.catalog);
+		return loaded;
+	}
+
+	/**
+	 * Loads the catalog from the snapshot if there is one within the
+	 * staleness bound. Its age counts towards the bound.
+	 * @return The published version, or {@code null} if there was no
+	 *         usable snapshot.
+	 */
+	private Version loadSnapshot(long now) {
+		if(snapshot == null) return null;
+		long writtenAt = snapshot.writtenAt();
+		long age = System.currentTimeMillis() - writtenAt;
+		long maxAge = maxAgeMillis;
+		if(writtenAt < 0 || age < 0 || (maxAge >= 0 && age >= maxAge)) return null;
+		ColumnarCatalog read;
+		try {
+			read = snapshot.read();
+			if(read == null) return null;
+		}
+		catch(IOException e) {
+			// a bad snapshot just means a database load
+			snapshot.delete();
+			return null;
+		}
+		snapshotLoads.incrementAndGet();
+		return publish(read, now - age * 1_000_000L);
+	}
+
+	private void saveSnapshot(ColumnarCatalog catalog) {
+		if(snapshot == null) return;
+		try {
+			snapshot.write(catalog);
+		}
+		catch(IOException e) {
+			// the snapshot only speeds up the next start
+			dropSnapshot();
+		}
+	}
+
+	private void dropSnapshot() {
+		if(snapshot == null) return;
+		snapshot.delete();
+	}
+
+}
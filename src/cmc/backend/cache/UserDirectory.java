@@ -0,0 +1,136 @@
+package cmc.backend.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * An in-memory directory of every user, keyed by username.
+ *
+ * Users are stored as the same {@code String[]} rows that
+ * {@code UniversityDBLibrary.user_getUsers()} returns:
+ * first name, last name, username, password, type, activated.
+ *
+ * The directory loads the user table the first time it is used and
+ * after {@link #rebuild()}. After that, lookups are a single hash
+ * lookup and the caller is expected to keep it in sync with
+ * {@link #put(String[])} and {@link #remove(String)} whenever it
+ * writes a user to the database. Users can also be read a page at a
+ * time in username order with {@link #page(String, int)}.
+ */
+public class UserDirectory {
+
+	/**
+	 * Index of the username column in a user row.
+	 */
+	public static final int USERNAME = 2;
+
+	private final Supplier<String[][]> loader;
+
+	// Keyed by username, in the order the loader returned them.
+	// null when nothing is loaded.
+	private LinkedHashMap<String, String[]> users;
+	// The same rows in username order, for paging
+	private TreeMap<String, String[]> byUsername;
+
+	/**
+	 * Creates an empty directory.
+	 * @param loader Fetches the whole user table from the database.
+	 * @throws IllegalArgumentException if loader is {@code null}
+	 */
+	public UserDirectory(Supplier<String[][]> loader) {
+		if(loader == null) throw new IllegalArgumentException("loader cannot be null.");
+		this.loader = loader;
+	}
+
+	/**
+	 * Gets a user's row.
+	 * @param username Username to look up
+	 * @return A copy of the user's row, or {@code null} if there is none.
+	 */
+	public synchronized String[] get(String username) {
+		ensureLoaded();
+		String[] row = users.get(username);
+		return row == null ? null : row.clone();
+	}
+
+	/**
+	 * Gets every user's row.
+	 * @return Copies of every row, in database order.
+	 */
+	public synchronized List<String[]> getAll() {
+		ensureLoaded();
+		List<String[]> result = new ArrayList<>(users.size());
+		for(String[] row : users.values()) result.add(row.clone());
+		return result;
+	}
+
+	/**
+	 * Gets the users that come after a username, in username order.
+	 * @param after Last username of the previous page, or {@code null}
+	 *        to start with the first user
+	 * @param size Most users to return
+	 * @return Copies of up to size rows.
+	 * @throws IllegalArgumentException if size is not positive
+	 */
+	public synchronized List<String[]> page(String after, int size) {
+		if(size <= 0) throw new IllegalArgumentException("size must be positive.");
+		ensureLoaded();
+		Collection<String[]> rows = after == null ? byUsername.values()
+				: byUsername.tailMap(after, false).values();
+		List<String[]> result = new ArrayList<>(Math.min(size, rows.size()));
+		for(String[] row : rows) {
+			if(result.size() == size) break;
+			result.add(row.clone());
+		}
+		return result;
+	}
+
+	/**
+	 * Adds or replaces a user after it was written to the database.
+	 * Nothing happens if the directory is not loaded yet; the next
+	 * lookup will load it (including this user) from the database.
+	 * @param row The user's full row
+	 * @throws IllegalArgumentException if row is {@code null} or too short
+	 */
+	public synchronized void put(String[] row) {
+		if(row == null || row.length <= USERNAME)
+			throw new IllegalArgumentException("row must contain a username.");
+		if(users == null) return;
+		String[] copy = row.clone();
+		users.put(row[USERNAME], copy);
+		byUsername.put(row[USERNAME], copy);
+	}
+
+	/**
+	 * Removes a user after it was deleted from the database.
+	 * @param username Username to remove
+	 */
+	public synchronized void remove(String username) {
+		if(users == null) return;
+		users.remove(username);
+		byUsername.remove(username);
+	}
+
+	/**
+	 * Reloads the whole user table from the database right away.
+	 */
+	public synchronized void rebuild() {
+		String[][] table = loader.get();
+		LinkedHashMap<String, String[]> fresh = new LinkedHashMap<>(table.length * 2);
+		for(String[] row : table) fresh.put(row[USERNAME], row);
+		users = fresh;
+		byUsername = new TreeMap<>(fresh);
+	}
+
+	/**
+	 * Must be called while holding this object's lock.
+	 */
+	private void ensureLoaded() {
+		if(users == null) rebuild();
+	}
+
+}
@@ -0,0 +1,294 @@
+package cmc.backend.catalog;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import cmc.backend.catalog.ColumnarCatalog.Category;
+import cmc.backend.catalog.ColumnarCatalog.Column;
+
+/**
+ * A binary file holding a {@link ColumnarCatalog} exactly as it is laid
+ * out in memory, so the next start of the program can get the catalog
+ * back without a database round trip or parsing a single number.
+ *
+ * The file is, in order: a header (magic number, version, the time it
+ * was written and the row count), the university names, each numeric
+ * column as fixed-width big-endian values, each string column's
+ * dictionary followed by its codes, and the emphasis dictionary
+ * followed by one posting list of row ids per emphasis. A block of
+ * strings is its count and then each string's UTF-8 length (-1 for
+ * {@code null}) and bytes. Removed rows are left out.
+ *
+ * Reading maps the file with {@link FileChannel#map} and bulk-copies
+ * each column into its array, so the cost is a memory copy per column
+ * plus one string per name and dictionary entry.
+ */
+public class CatalogSnapshot {
+
+	// "CMCC"
+	private static final int MAGIC = 0x434D4343;
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 4 + 4 + 8 + 4;
+
+	private static final Column[] COLUMNS = Column.values();
+	private static final Category[] CATEGORIES = Category.values();
+
+	private final Path file;
+
+	/**
+	 * @param file Snapshot file; it does not have to exist yet
+	 * @throws IllegalArgumentException if file is {@code null}
+	 */
+	public CatalogSnapshot(Path file) {
+		if(file == null) throw new IllegalArgumentException("file cannot be null.");
+		this.file = file;
+	}
+
+	/**
+	 * @return the snapshot file
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * Gets when the snapshot was written without reading the rest of it.
+	 * @return The time it was written in milliseconds since the epoch, or
+	 *         -1 if there is no readable snapshot.
+	 */
+	public long writtenAt() {
+		if(!Files.isRegularFile(file)) return -1;
+		try(FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			if(ch.size() < HEADER_BYTES) return -1;
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			while(header.hasRemaining() && ch.read(header) >= 0) { }
+			header.flip();
+			if(header.getInt() != MAGIC || header.getInt() != VERSION) return -1;
+			return header.getLong();
+		}
+		catch(IOException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * Writes a catalog, replacing any previous snapshot. The file is
+	 * written under a temporary name and renamed into place, so a reader
+	 * never sees half a snapshot.
+	 * @param catalog Catalog to save
+	 * @throws IOException if the file can't be written
+	 */
+	public void write(ColumnarCatalog catalog) throws IOException {
+		// the old row id of every row in the file
+		int[] live = new int[catalog.liveCount()];
+		int n = 0;
+		for(int row = 0; row < catalog.size(); row++) {
+			if(catalog.isLive(row)) live[n++] = row;
+		}
+
+		String[] names = new String[n];
+		for(int i = 0; i < n; i++) names[i] = catalog.getName(live[i]);
+
+		Dictionary emphases = catalog.emphasisDictionary();
+		List<List<Integer>> postings = new ArrayList<>();
+		for(int code = 0; code < emphases.size(); code++) postings.add(new ArrayList<Integer>());
+		for(int i = 0; i < n; i++) {
+			for(int code : catalog.emphasisCodes(live[i])) postings.get(code).add(i);
+		}
+
+		List<byte[]> blocks = new ArrayList<>();
+		blocks.add(strings(names));
+		for(Category c : CATEGORIES) blocks.add(strings(catalog.dictionary(c).values().toArray(new String[0])));
+		blocks.add(strings(emphases.values().toArray(new String[0])));
+
+		long bytes = HEADER_BYTES;
+		for(byte[] b : blocks) bytes += b.length;
+		bytes += (long)n * (5 * 4 + 7 * 8 + CATEGORIES.length * 4);
+		for(List<Integer> p : postings) bytes += 4 + 4L * p.size();
+
+		ByteBuffer buf = ByteBuffer.allocate((int)bytes);
+		buf.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis()).putInt(n);
+		buf.put(blocks.get(0));
+		for(Column c : COLUMNS) {
+			if(c.isInteger()) {
+				int[] values = catalog.intColumn(c);
+				for(int row : live) buf.putInt(values[row]);
+			}
+			else {
+				double[] values = catalog.doubleColumn(c);
+				for(int row : live) buf.putDouble(values[row]);
+			}
+		}
+		for(Category c : CATEGORIES) {
+			buf.put(blocks.get(1 + c.ordinal()));
+			int[] codes = catalog.codes(c);
+			for(int row : live) buf.putInt(codes[row]);
+		}
+		buf.put(blocks.get(blocks.size() - 1));
+		for(List<Integer> p : postings) {
+			buf.putInt(p.size());
+			for(int row : p) buf.putInt(row);
+		}
+		buf.flip();
+
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try(FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while(buf.hasRemaining()) ch.write(buf);
+			ch.force(true);
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Reads the snapshot.
+	 * @return The catalog, with its emphasis index already built, or
+	 *         {@code null} if there is no snapshot file.
+	 * @throws IOException if the file can't be read or is not a snapshot
+	 */
+	public ColumnarCatalog read() throws IOException {
+		if(!Files.isRegularFile(file)) return null;
+		MappedByteBuffer buf;
+		try(FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+		}
+		try {
+			if(buf.getInt() != MAGIC) throw new IOException("Not a catalog snapshot.");
+			int version = buf.getInt();
+			if(version != VERSION) throw new IOException("Unsupported snapshot version " + version + ".");
+			buf.getLong();
+			int n = buf.getInt();
+			if(n < 0 || n > buf.remaining()) throw new IOException("Corrupt catalog snapshot " + file);
+
+			String[] names = readStrings(buf);
+			int[][] ints = new int[5][];
+			double[][] doubles = new double[7][];
+			// columns of each type are numbered in declaration order
+			int ic = 0, dc = 0;
+			for(Column c : COLUMNS) {
+				if(c.isInteger()) {
+					int[] values = new int[n];
+					buf.asIntBuffer().get(values);
+					buf.position(buf.position() + 4 * n);
+					ints[ic++] = values;
+				}
+				else {
+					double[] values = new double[n];
+					buf.asDoubleBuffer().get(values);
+					buf.position(buf.position() + 8 * n);
+					doubles[dc++] = values;
+				}
+			}
+
+			int[][] categories = new int[CATEGORIES.length][];
+			Dictionary[] dictionaries = new Dictionary[CATEGORIES.length];
+			for(Category c : CATEGORIES) {
+				dictionaries[c.ordinal()] = dictionary(readStrings(buf));
+				int[] codes = new int[n];
+				buf.asIntBuffer().get(codes);
+				buf.position(buf.position() + 4 * n);
+				categories[c.ordinal()] = codes;
+			}
+
+			Dictionary emphasisDictionary = dictionary(readStrings(buf));
+			List<BitSet> postings = new ArrayList<>(emphasisDictionary.size());
+			int[] perRow = new int[n];
+			int[][] lists = new int[emphasisDictionary.size()][];
+			for(int code = 0; code < lists.length; code++) {
+				int size = buf.getInt();
+				if(size < 0 || size > n) throw new IOException("Corrupt catalog snapshot " + file);
+				int[] rows = new int[size];
+				buf.asIntBuffer().get(rows);
+				buf.position(buf.position() + 4 * rows.length);
+				lists[code] = rows;
+				BitSet bits = new BitSet(n);
+				for(int row : rows) {
+					bits.set(row);
+					perRow[row]++;
+				}
+				postings.add(bits);
+			}
+			// invert the postings into each row's emphasis codes; a row's
+			// emphases come back in code order rather than the order they
+			// were added in
+			int[][] emphases = new int[n][];
+			for(int row = 0; row < n; row++) emphases[row] = new int[perRow[row]];
+			int[] filled = new int[n];
+			for(int code = 0; code < lists.length; code++) {
+				for(int row : lists[code]) emphases[row][filled[row]++] = code;
+			}
+
+			return new ColumnarCatalog(names, ints, doubles, categories, dictionaries,
+					emphases, emphasisDictionary, postings);
+		}
+		catch(RuntimeException e) {
+			// a truncated or corrupted file runs off the end of the buffer
+			throw new IOException("Corrupt catalog snapshot " + file, e);
+		}
+	}
+
+	/**
+	 * Deletes the snapshot, e.g. because the catalog changed since it
+	 * was written.
+	 * @return {@code true} if there was one
+	 */
+	public boolean delete() {
+		try {
+			return Files.deleteIfExists(file);
+		}
+		catch(IOException e) {
+			return false;
+		}
+	}
+
+	private static byte[] strings(String[] values) {
+		byte[][] encoded = new byte[values.length][];
+		int total = 4;
+		for(int i = 0; i < values.length; i++) {
+			// columns of a university that was never filled in are null
+			encoded[i] = values[i] == null ? null : values[i].getBytes(StandardCharsets.UTF_8);
+			total += 4 + (encoded[i] == null ? 0 : encoded[i].length);
+		}
+		ByteBuffer buf = ByteBuffer.allocate(total);
+		buf.putInt(values.length);
+		for(byte[] b : encoded) {
+			if(b == null) buf.putInt(-1);
+			else buf.putInt(b.length).put(b);
+		}
+		return buf.array();
+	}
+
+	private static String[] readStrings(ByteBuffer buf) {
+		int count = buf.getInt();
+		// every string takes at least its length, so a bigger count is corrupt
+		if(count < 0 || count > buf.remaining() / 4) throw new BufferUnderflowException();
+		String[] values = new String[count];
+		byte[] bytes = new byte[64];
+		for(int i = 0; i < values.length; i++) {
+			int length = buf.getInt();
+			if(length < 0) continue;
+			if(length > bytes.length) bytes = new byte[Math.max(length, 2 * bytes.length)];
+			buf.get(bytes, 0, length);
+			values[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+		}
+		return values;
+	}
+
+	private static Dictionary dictionary(String[] values) {
+		Dictionary d = new Dictionary();
+		for(String v : values) d.encode(v);
+		return d;
+	}
+
+}
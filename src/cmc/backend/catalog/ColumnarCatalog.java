@@ -0,0 +1,580 @@
+package cmc.backend.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+import cmc.backend.entities.University;
+import cmc.backend.entities.UniversitySummary;
+
+/**
+ * The university catalog stored column by column.
+ *
+ * Every university is a row id. Each numeric attribute is one
+ * {@code int[]} or {@code double[]} indexed by row id, state, location,
+ * control and emphases are dictionary-encoded, and {@link University}
+ * objects are only created (by {@link #materialize(int)}) for rows that
+ * are actually returned to a caller. Scans over one attribute therefore
+ * walk one primitive array instead of chasing a pointer per school.
+ *
+ * A {@link SortedIndex} over any numeric column and the
+ * {@link EmphasisIndex} are built the first time they are asked for and
+ * are kept up to date by {@link #put(University)} and
+ * {@link #remove(String)} from then on.
+ *
+ * Row ids stay the same as long as the catalog is only changed through
+ * {@link #put(University)} and {@link #remove(String)}; removed rows
+ * are left as holes until the catalog is copied. This class is not
+ * thread-safe, so a catalog that has been shared with readers must not
+ * be changed; change a {@link #copy()} instead. {@link #freeze()}
+ * enforces that before sharing it.
+ */
+public class ColumnarCatalog {
+
+	/**
+	 * The numeric attributes of a university.
+	 */
+	public enum Column {
+		NUM_STUDENTS(true, 0),
+		PERCENT_FEMALE(false, 0),
+		SAT_VERBAL(false, 1),
+		SAT_MATH(false, 2),
+		EXPENSES(false, 3),
+		PERCENT_FINANCIAL_AID(false, 4),
+		NUM_APPLICANTS(true, 1),
+		PERCENT_ADMITTED(false, 5),
+		PERCENT_ENROLLED(false, 6),
+		SCALE_ACADEMICS(true, 2),
+		SCALE_SOCIAL(true, 3),
+		SCALE_QUALITY_OF_LIFE(true, 4);
+
+		private final boolean integer;
+		private final int slot;
+
+		private Column(boolean integer, int slot) {
+			this.integer = integer;
+			this.slot = slot;
+		}
+
+		/**
+		 * @return {@code true} if this column is stored as an {@code int[]}
+		 */
+		public boolean isInteger() {
+			return integer;
+		}
+
+		/**
+		 * Reads this attribute from a university object.
+		 * @param u University
+		 * @return The attribute's value (-1 if unknown).
+		 */
+		public double of(University u) {
+			switch(this) {
+			case NUM_STUDENTS: return u.getNumStudents();
+			case PERCENT_FEMALE: return u.getPercentFemale();
+			case SAT_VERBAL: return u.getSatVerbal();
+			case SAT_MATH: return u.getSatMath();
+			case EXPENSES: return u.getExpenses();
+			case PERCENT_FINANCIAL_AID: return u.getPercentFinancialAid();
+			case NUM_APPLICANTS: return u.getNumApplicants();
+			case PERCENT_ADMITTED: return u.getPercentAdmitted();
+			case PERCENT_ENROLLED: return u.getPercentEnrolled();
+			case SCALE_ACADEMICS: return u.getScaleAcademics();
+			case SCALE_SOCIAL: return u.getScaleSocial();
+			default: return u.getScaleQualityOfLife();
+			}
+		}
+	}
+
+	/**
+	 * The dictionary-encoded string attributes of a university.
+	 */
+	public enum Category {
+		STATE, LOCATION, CONTROL;
+
+		/**
+		 * Reads this attribute from a university object.
+		 * @param u University
+		 * @return The attribute's value.
+		 */
+		public String of(University u) {
+			switch(this) {
+			case STATE: return u.getState();
+			case LOCATION: return u.getLocation();
+			default: return u.getControl();
+			}
+		}
+	}
+
+	private static final int INT_COLUMNS = 5;
+	private static final int DOUBLE_COLUMNS = 7;
+	private static final int[] NO_EMPHASES = new int[0];
+	private static final Column[] COLUMNS = Column.values();
+	private static final Category[] CATEGORIES = Category.values();
+
+	// Rows in use, including removed ones
+	private int size;
+	private int live;
+
+	private String[] names;
+	private boolean[] removed;
+	private final HashMap<String, Integer> rowOf;
+
+	private final int[][] ints = new int[INT_COLUMNS][];
+	private final double[][] doubles = new double[DOUBLE_COLUMNS][];
+
+	private final int[][] categories = new int[CATEGORIES.length][];
+	private final Dictionary[] dictionaries = new Dictionary[CATEGORIES.length];
+
+	private int[][] emphases;
+	private final Dictionary emphasisDictionary;
+
+	// Built on first use; guarded by this
+	private final SortedIndex[] indexes = new SortedIndex[COLUMNS.length];
+	private EmphasisIndex emphasisIndex;
+	private NameIndex nameIndex;
+
+	// set before the catalog is shared; put and remove refuse from then on
+	private boolean frozen;
+
+	/**
+	 * Creates an empty catalog.
+	 * @param capacity Number of rows to allocate room for up front.
+	 */
+	public ColumnarCatalog(int capacity) {
+		capacity = Math.max(capacity, 16);
+		names = new String[capacity];
+		removed = new boolean[capacity];
+		rowOf = new HashMap<>(capacity * 2);
+		for(int i = 0; i < INT_COLUMNS; i++) ints[i] = new int[capacity];
+		for(int i = 0; i < DOUBLE_COLUMNS; i++) doubles[i] = new double[capacity];
+		for(int i = 0; i < categories.length; i++) {
+			categories[i] = new int[capacity];
+			dictionaries[i] = new Dictionary();
+		}
+		emphases = new int[capacity][];
+		emphasisDictionary = new Dictionary();
+	}
+
+	/**
+	 * Creates a catalog from columns that were already built, e.g. read
+	 * from a {@link CatalogSnapshot}. Every array is kept, not copied.
+	 * @param postings Rows of each emphasis code, or {@code null} to build
+	 *        the emphasis index on first use
+	 */
+	ColumnarCatalog(String[] names, int[][] ints, double[][] doubles, int[][] categories,
+			Dictionary[] dictionaries, int[][] emphases, Dictionary emphasisDictionary, List<BitSet> postings) {
+		size = names.length;
+		live = size;
+		this.names = names;
+		removed = new boolean[size];
+		rowOf = new HashMap<>(size * 2);
+		for(int row = 0; row < size; row++) rowOf.put(names[row], row);
+		System.arraycopy(ints, 0, this.ints, 0, INT_COLUMNS);
+		System.arraycopy(doubles, 0, this.doubles, 0, DOUBLE_COLUMNS);
+		System.arraycopy(categories, 0, this.categories, 0, CATEGORIES.length);
+		System.arraycopy(dictionaries, 0, this.dictionaries, 0, CATEGORIES.length);
+		this.emphases = emphases;
+		this.emphasisDictionary = emphasisDictionary;
+		if(postings != null) emphasisIndex = new EmphasisIndex(emphasisDictionary, postings);
+	}
+
+	/**
+	 * Builds a catalog from a list of universities, e.g. the output of
+	 * {@code DatabaseController.getAllSchools()}. Row ids follow the
+	 * order of the list.
+	 * @param list Universities
+	 * @return A new catalog.
+	 */
+	public static ColumnarCatalog of(List<University> list) {
+		ColumnarCatalog c = new ColumnarCatalog(list.size());
+		for(University u : list) c.put(u);
+		return c;
+	}
+
+	/**
+	 * Makes an independent copy of this catalog. If more than half of
+	 * the rows were removed, the copy leaves the holes out, which
+	 * changes row ids.
+	 * @return A new catalog with the same universities, which is not
+	 *         frozen even if this one is.
+	 */
+	public ColumnarCatalog copy() {
+		if(size - live > live) {
+			ColumnarCatalog c = new ColumnarCatalog(live);
+			for(int row = 0; row < size; row++) {
+				if(!removed[row]) c.put(materialize(row));
+			}
+			return c;
+		}
+		return new ColumnarCatalog(this);
+	}
+
+	private ColumnarCatalog(ColumnarCatalog o) {
+		size = o.size;
+		live = o.live;
+		names = o.names.clone();
+		removed = o.removed.clone();
+		rowOf = new HashMap<>(o.rowOf);
+		for(int i = 0; i < INT_COLUMNS; i++) ints[i] = o.ints[i].clone();
+		for(int i = 0; i < DOUBLE_COLUMNS; i++) doubles[i] = o.doubles[i].clone();
+		for(int i = 0; i < categories.length; i++) {
+			categories[i] = o.categories[i].clone();
+			dictionaries[i] = o.dictionaries[i].copy();
+		}
+		// the per-row arrays are never modified, only replaced
+		emphases = o.emphases.clone();
+		emphasisDictionary = o.emphasisDictionary.copy();
+		synchronized(o) {
+			for(int i = 0; i < indexes.length; i++) {
+				if(o.indexes[i] != null) indexes[i] = o.indexes[i].copy();
+			}
+			if(o.emphasisIndex != null) emphasisIndex = o.emphasisIndex.copy(emphasisDictionary);
+			if(o.nameIndex != null) nameIndex = o.nameIndex.copy();
+		}
+	}
+
+	/**
+	 * Adds a university, or replaces the one with the same name in place.
+	 * @param u University to store (it is not kept, only read)
+	 * @return The university's row id.
+	 * @throws IllegalStateException if the catalog is frozen
+	 */
+	public int put(University u) {
+		ensureNotFrozen();
+		Integer existing = rowOf.get(u.getName());
+		int row;
+		if(existing != null) {
+			row = existing;
+		}
+		else {
+			if(size == names.length) grow();
+			row = size++;
+			live++;
+			names[row] = u.getName();
+			rowOf.put(u.getName(), row);
+			if(nameIndex != null) nameIndex.add(u.getName(), row);
+		}
+
+		for(Column c : COLUMNS) {
+			double value = c.of(u);
+			SortedIndex index = indexes[c.ordinal()];
+			if(index != null) {
+				if(existing != null) index.delete(get(c, row), row);
+				index.insert(value, row);
+			}
+			if(c.integer) ints[c.slot][row] = (int)value;
+			else doubles[c.slot][row] = value;
+		}
+		for(Category c : CATEGORIES) {
+			categories[c.ordinal()][row] = dictionaries[c.ordinal()].encode(c.of(u));
+		}
+
+		if(emphasisIndex != null && existing != null) {
+			for(int code : emphases[row]) emphasisIndex.remove(code, row);
+		}
+		List<String> es = u.getEmphases();
+		if(es.isEmpty()) {
+			emphases[row] = NO_EMPHASES;
+		}
+		else {
+			int[] codes = new int[es.size()];
+			for(int i = 0; i < codes.length; i++) codes[i] = emphasisDictionary.encode(es.get(i));
+			emphases[row] = codes;
+		}
+		if(emphasisIndex != null) {
+			for(int code : emphases[row]) emphasisIndex.add(code, row);
+		}
+		return row;
+	}
+
+	/**
+	 * Removes a university. Its row id becomes a hole.
+	 * @param name University name
+	 * @return {@code true} if it was in the catalog.
+	 * @throws IllegalStateException if the catalog is frozen
+	 */
+	public boolean remove(String name) {
+		ensureNotFrozen();
+		Integer row = rowOf.remove(name);
+		if(row == null) return false;
+		for(Column c : COLUMNS) {
+			SortedIndex index = indexes[c.ordinal()];
+			if(index != null) index.delete(get(c, row), row);
+		}
+		if(emphasisIndex != null) {
+			for(int code : emphases[row]) emphasisIndex.remove(code, row);
+		}
+		if(nameIndex != null) nameIndex.remove(row);
+		removed[row] = true;
+		emphases[row] = NO_EMPHASES;
+		live--;
+		return true;
+	}
+
+	/**
+	 * Makes the catalog read-only, so it can be shared with readers
+	 * that don't lock; later {@link #put(University)} and
+	 * {@link #remove(String)} calls throw. The indexes built on first use
+	 * are still built, under this object's lock.
+	 * @return This catalog.
+	 */
+	public ColumnarCatalog freeze() {
+		frozen = true;
+		return this;
+	}
+
+	/**
+	 * @return {@code true} if {@link #freeze()} was called
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+
+	private void ensureNotFrozen() {
+		if(frozen) throw new IllegalStateException("The catalog is frozen; change a copy instead.");
+	}
+
+	private void grow() {
+		int cap = Math.max(16, names.length * 2);
+		names = Arrays.copyOf(names, cap);
+		removed = Arrays.copyOf(removed, cap);
+		for(int i = 0; i < INT_COLUMNS; i++) ints[i] = Arrays.copyOf(ints[i], cap);
+		for(int i = 0; i < DOUBLE_COLUMNS; i++) doubles[i] = Arrays.copyOf(doubles[i], cap);
+		for(int i = 0; i < categories.length; i++) categories[i] = Arrays.copyOf(categories[i], cap);
+		emphases = Arrays.copyOf(emphases, cap);
+	}
+
+	/**
+	 * @return one past the highest row id; row ids are in {@code [0, size())}
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of universities (rows that were not removed)
+	 */
+	public int liveCount() {
+		return live;
+	}
+
+	/**
+	 * @param row Row id
+	 * @return {@code true} if the row holds a university
+	 */
+	public boolean isLive(int row) {
+		return !removed[row];
+	}
+
+	/**
+	 * @param name University name
+	 * @return the university's row id, or -1 if there is none
+	 */
+	public int rowOf(String name) {
+		Integer row = rowOf.get(name);
+		return row == null ? -1 : row;
+	}
+
+	/**
+	 * @param row Row id
+	 * @return the name of the university in that row
+	 */
+	public String getName(int row) {
+		return names[row];
+	}
+
+	/**
+	 * @param c Column
+	 * @param row Row id
+	 * @return the value of the column in that row (-1 if unknown)
+	 */
+	public double get(Column c, int row) {
+		return c.integer ? ints[c.slot][row] : doubles[c.slot][row];
+	}
+
+	/**
+	 * Gets the raw array behind an integer column. Only the first
+	 * {@link #size()} entries are meaningful. Do not modify it.
+	 * @param c An integer column
+	 * @return The column's values by row id.
+	 * @throws IllegalArgumentException if c is not an integer column
+	 */
+	public int[] intColumn(Column c) {
+		if(!c.integer) throw new IllegalArgumentException(c + " is not an integer column.");
+		return ints[c.slot];
+	}
+
+	/**
+	 * Gets the raw array behind a floating-point column. Only the first
+	 * {@link #size()} entries are meaningful. Do not modify it.
+	 * @param c A floating-point column
+	 * @return The column's values by row id.
+	 * @throws IllegalArgumentException if c is an integer column
+	 */
+	public double[] doubleColumn(Column c) {
+		if(c.integer) throw new IllegalArgumentException(c + " is an integer column.");
+		return doubles[c.slot];
+	}
+
+	/**
+	 * Gets the sorted index over a numeric column, building it the
+	 * first time it is asked for.
+	 * @param c Column
+	 * @return The column's index. Do not modify it.
+	 */
+	public synchronized SortedIndex index(Column c) {
+		SortedIndex index = indexes[c.ordinal()];
+		if(index == null) {
+			index = SortedIndex.build(this, c);
+			indexes[c.ordinal()] = index;
+		}
+		return index;
+	}
+
+	/**
+	 * Gets the emphasis index, building it the first time it is asked for.
+	 * @return The emphasis index. Do not modify it.
+	 */
+	public synchronized EmphasisIndex emphasisIndex() {
+		if(emphasisIndex == null) emphasisIndex = EmphasisIndex.build(this);
+		return emphasisIndex;
+	}
+
+	/**
+	 * Gets the name index, building it the first time it is asked for.
+	 * @return The name index. Do not modify it.
+	 */
+	public synchronized NameIndex nameIndex() {
+		if(nameIndex == null) nameIndex = NameIndex.build(this);
+		return nameIndex;
+	}
+
+	/**
+	 * @param c Column
+	 * @param row Row id
+	 * @return the decoded value of the column in that row
+	 */
+	public String get(Category c, int row) {
+		return dictionaries[c.ordinal()].decode(categories[c.ordinal()][row]);
+	}
+
+	/**
+	 * Gets the raw codes behind a string column. Do not modify it.
+	 * @param c Column
+	 * @return The column's codes by row id; decode them with {@link #dictionary(Category)}.
+	 */
+	public int[] codes(Category c) {
+		return categories[c.ordinal()];
+	}
+
+	/**
+	 * @param c Column
+	 * @return the dictionary for the column's codes
+	 */
+	public Dictionary dictionary(Category c) {
+		return dictionaries[c.ordinal()];
+	}
+
+	/**
+	 * @param row Row id
+	 * @return the codes of the row's emphases; do not modify it
+	 */
+	public int[] emphasisCodes(int row) {
+		return emphases[row];
+	}
+
+	/**
+	 * @return the dictionary for emphasis codes
+	 */
+	public Dictionary emphasisDictionary() {
+		return emphasisDictionary;
+	}
+
+	/**
+	 * Creates a {@link University} object for a row.
+	 * @param row Row id of a live row
+	 * @return A new university object the caller may modify.
+	 */
+	public University materialize(int row) {
+		University u = new University(names[row]);
+		u.setState(get(Category.STATE, row));
+		u.setLocation(get(Category.LOCATION, row));
+		u.setControl(get(Category.CONTROL, row));
+		u.setNumStudents(ints[Column.NUM_STUDENTS.slot][row]);
+		u.setPercentFemale(doubles[Column.PERCENT_FEMALE.slot][row]);
+		u.setSatVerbal(doubles[Column.SAT_VERBAL.slot][row]);
+		u.setSatMath(doubles[Column.SAT_MATH.slot][row]);
+		u.setExpenses(doubles[Column.EXPENSES.slot][row]);
+		u.setPercentFinancialAid(doubles[Column.PERCENT_FINANCIAL_AID.slot][row]);
+		u.setNumApplicants(ints[Column.NUM_APPLICANTS.slot][row]);
+		u.setPercentAdmitted(doubles[Column.PERCENT_ADMITTED.slot][row]);
+		u.setPercentEnrolled(doubles[Column.PERCENT_ENROLLED.slot][row]);
+		u.setScaleAcademics(ints[Column.SCALE_ACADEMICS.slot][row]);
+		u.setScaleSocial(ints[Column.SCALE_SOCIAL.slot][row]);
+		u.setScaleQualityOfLife(ints[Column.SCALE_QUALITY_OF_LIFE.slot][row]);
+		for(int code : emphases[row]) u.addEmphasis(emphasisDictionary.decode(code));
+		return u;
+	}
+
+	/**
+	 * Creates {@link University} objects for some rows.
+	 * @param rows Row ids of live rows
+	 * @return New university objects, in the order of rows.
+	 */
+	public List<University> materialize(int[] rows) {
+		List<University> result = new ArrayList<>(rows.length);
+		for(int row : rows) result.add(materialize(row));
+		return result;
+	}
+
+	/**
+	 * Creates {@link University} objects for every live row.
+	 * @return New university objects, in row order.
+	 */
+	public List<University> materializeAll() {
+		List<University> result = new ArrayList<>(live);
+		for(int row = 0; row < size; row++) {
+			if(!removed[row]) result.add(materialize(row));
+		}
+		return result;
+	}
+
+	/**
+	 * Creates name-and-state summaries of some rows without creating
+	 * University objects; each summary materializes its row from this
+	 * catalog the first time it is asked for the whole university.
+	 * @param rows Row ids of live rows
+	 * @return Summaries, in the order of rows.
+	 */
+	public List<UniversitySummary> summarize(int[] rows) {
+		List<UniversitySummary> result = new ArrayList<>(rows.length);
+		for(int row : rows) result.add(summarize(row));
+		return result;
+	}
+
+	/**
+	 * Creates name-and-state summaries of every live row.
+	 * @return Summaries, in row order.
+	 */
+	public List<UniversitySummary> summarizeAll() {
+		List<UniversitySummary> result = new ArrayList<>(live);
+		for(int row = 0; row < size; row++) {
+			if(!removed[row]) result.add(summarize(row));
+		}
+		return result;
+	}
+
+	/**
+	 * Creates a name-and-state summary of one row, like
+	 * {@link #summarize(int[])}.
+	 * @param row Row id of a live row
+	 * @return The summary.
+	 */
+	public UniversitySummary summarize(int row) {
+		return new UniversitySummary(names[row], get(Category.STATE, row), () -> materialize(row));
+	}
+
+}
@@ -0,0 +1,84 @@
+package cmc.backend.catalog;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Maps a small set of repeated strings (states, locations, emphases, ...)
+ * to dense integer codes, so a column can be stored as an {@code int[]}
+ * and compared by code instead of by string.
+ */
+public class Dictionary {
+
+	private final HashMap<String, Integer> codes;
+	private final ArrayList<String> values;
+
+	/**
+	 * Creates an empty dictionary.
+	 */
+	public Dictionary() {
+		codes = new HashMap<>();
+		values = new ArrayList<>();
+	}
+
+	private Dictionary(Dictionary other) {
+		codes = new HashMap<>(other.codes);
+		values = new ArrayList<>(other.values);
+	}
+
+	/**
+	 * Gets the code for a value, adding it if it is new.
+	 * @param value String to encode
+	 * @return The value's code.
+	 */
+	public int encode(String value) {
+		Integer code = codes.get(value);
+		if(code != null) return code;
+
+		int next = values.size();
+		codes.put(value, next);
+		values.add(value);
+		return next;
+	}
+
+	/**
+	 * Gets the code for a value without adding it.
+	 * @param value String to look up
+	 * @return The value's code, or -1 if it was never encoded.
+	 */
+	public int code(String value) {
+		Integer code = codes.get(value);
+		return code == null ? -1 : code;
+	}
+
+	/**
+	 * @param code A code returned by {@link #encode(String)}
+	 * @return the string for the code
+	 */
+	public String decode(int code) {
+		return values.get(code);
+	}
+
+	/**
+	 * @return the number of distinct values
+	 */
+	public int size() {
+		return values.size();
+	}
+
+	/**
+	 * @return every value, in code order
+	 */
+	public List<String> values() {
+		return new ArrayList<>(values);
+	}
+
+	/**
+	 * @return an independent copy of this dictionary
+	 */
+	public Dictionary copy() {
+		return new Dictionary(this);
+	}
+
+}
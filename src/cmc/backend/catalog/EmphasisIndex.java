@@ -0,0 +1,150 @@
+package cmc.backend.catalog;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An inverted index from each emphasis to the set of rows of a
+ * {@link ColumnarCatalog} that have it.
+ *
+ * Each set is a {@link BitSet} over row ids, so combining emphases is
+ * a word-at-a-time set operation: {@link #allOf(Collection)} is an AND,
+ * {@link #anyOf(Collection)} an OR and {@link #without(BitSet, Collection)}
+ * an AND NOT. The results are plain bitmaps, so they can be intersected
+ * with the rows matched by any other criterion.
+ *
+ * Like the catalog it belongs to, an index is not thread-safe and is
+ * only changed before the catalog is shared. Every method that returns
+ * a bitmap returns a new one the caller may modify.
+ */
+public class EmphasisIndex {
+
+	private final Dictionary dictionary;
+	// Indexed by emphasis code
+	private final List<BitSet> postings;
+
+	EmphasisIndex(Dictionary dictionary, List<BitSet> postings) {
+		this.dictionary = dictionary;
+		this.postings = postings;
+	}
+
+	/**
+	 * Builds the index for a catalog.
+	 * @param catalog Catalog to index
+	 * @return A new index of every live row's emphases.
+	 */
+	public static EmphasisIndex build(ColumnarCatalog catalog) {
+		EmphasisIndex index = new EmphasisIndex(catalog.emphasisDictionary(), new ArrayList<BitSet>());
+		for(int row = 0; row < catalog.size(); row++) {
+			if(!catalog.isLive(row)) continue;
+			for(int code : catalog.emphasisCodes(row)) index.add(code, row);
+		}
+		return index;
+	}
+
+	/**
+	 * Makes an independent copy of this index.
+	 * @param dictionary The emphasis dictionary of the catalog the copy
+	 *        belongs to
+	 * @return The copy.
+	 */
+	EmphasisIndex copy(Dictionary dictionary) {
+		List<BitSet> copy = new ArrayList<>(postings.size());
+		for(BitSet b : postings) copy.add((BitSet)b.clone());
+		return new EmphasisIndex(dictionary, copy);
+	}
+
+	/**
+	 * Records that a row has an emphasis.
+	 * @param code Emphasis code from the catalog's emphasis dictionary
+	 * @param row Row id
+	 */
+	void add(int code, int row) {
+		while(postings.size() <= code) postings.add(new BitSet());
+		postings.get(code).set(row);
+	}
+
+	/**
+	 * Records that a row no longer has an emphasis.
+	 * @param code Emphasis code from the catalog's emphasis dictionary
+	 * @param row Row id
+	 */
+	void remove(int code, int row) {
+		if(code < postings.size()) postings.get(code).clear(row);
+	}
+
+	/**
+	 * @param emphasis Emphasis
+	 * @return the rows with the emphasis
+	 */
+	public BitSet rows(String emphasis) {
+		int code = dictionary.code(emphasis);
+		if(code < 0 || code >= postings.size()) return new BitSet();
+		return (BitSet)postings.get(code).clone();
+	}
+
+	/**
+	 * @param emphasis Emphasis
+	 * @return the number of rows with the emphasis
+	 */
+	public int count(String emphasis) {
+		int code = dictionary.code(emphasis);
+		if(code < 0 || code >= postings.size()) return 0;
+		return postings.get(code).cardinality();
+	}
+
+	/**
+	 * Finds the rows that have every one of some emphases.
+	 * @param emphases Emphases; must not be empty
+	 * @return The matching rows.
+	 * @throws IllegalArgumentException if emphases is empty
+	 */
+	public BitSet allOf(Collection<String> emphases) {
+		if(emphases.isEmpty()) throw new IllegalArgumentException("emphases cannot be empty.");
+		BitSet result = null;
+		for(String e : emphases) {
+			BitSet rows = posting(e);
+			if(rows == null) return new BitSet();
+			if(result == null) result = (BitSet)rows.clone();
+			else result.and(rows);
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the rows that have at least one of some emphases.
+	 * @param emphases Emphases
+	 * @return The matching rows.
+	 */
+	public BitSet anyOf(Collection<String> emphases) {
+		BitSet result = new BitSet();
+		for(String e : emphases) {
+			BitSet rows = posting(e);
+			if(rows != null) result.or(rows);
+		}
+		return result;
+	}
+
+	/**
+	 * Removes the rows that have any of some emphases from a set of rows.
+	 * @param rows Rows to start from; it is not modified
+	 * @param emphases Emphases to exclude
+	 * @return The rows that have none of the emphases.
+	 */
+	public BitSet without(BitSet rows, Collection<String> emphases) {
+		BitSet result = (BitSet)rows.clone();
+		for(String e : emphases) {
+			BitSet exclude = posting(e);
+			if(exclude != null) result.andNot(exclude);
+		}
+		return result;
+	}
+
+	private BitSet posting(String emphasis) {
+		int code = dictionary.code(emphasis);
+		return code < 0 || code >= postings.size() ? null : postings.get(code);
+	}
+
+}
@@ -0,0 +1,273 @@
+package cmc.backend.catalog;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of the university names of a {@link ColumnarCatalog} for
+ * "starts with" and "contains" queries.
+ *
+ * Prefixes are answered from a trie of the names: walking the prefix
+ * finds the subtree of every name that starts with it, which is read
+ * breadth-first, so the shortest (closest) completions come first and
+ * a query for the first few touches only a few nodes. Substrings are
+ * answered from an inverted index of trigrams, the three-character
+ * substrings of each name: a name can only contain the query if it has
+ * every trigram of the query, so intersecting their {@link BitSet}s
+ * leaves a handful of candidates to check instead of every name.
+ *
+ * Matching ignores case. Like the catalog it belongs to, an index is not
+ * thread-safe and is only changed before the catalog is shared.
+ */
+public class NameIndex {
+
+	private static final int GRAM = 3;
+
+	// Sorted children, so a breadth-first walk meets names alphabetically
+	private static final class Node {
+		char[] keys = new char[0];
+		Node[] children = new Node[0];
+		// Row of the name ending here, or -1
+		int row = -1;
+
+		Node child(char c) {
+			int i = Arrays.binarySearch(keys, c);
+			return i < 0 ? null : children[i];
+		}
+
+		Node add(char c) {
+			int i = Arrays.binarySearch(keys, c);
+			if(i >= 0) return children[i];
+			i = -i - 1;
+			int n = keys.length;
+			char[] k = new char[n + 1];
+			Node[] ch = new Node[n + 1];
+			System.arraycopy(keys, 0, k, 0, i);
+			System.arraycopy(children, 0, ch, 0, i);
+			System.arraycopy(keys, i, k, i + 1, n - i);
+			System.arraycopy(children, i, ch, i + 1, n - i);
+			k[i] = c;
+			ch[i] = new Node();
+			keys = k;
+			children = ch;
+			return ch[i];
+		}
+
+		Node copy() {
+			Node n = new Node();
+			// keys arrays are never modified, only replaced, so they can be shared
+			n.keys = keys;
+			n.children = new Node[children.length];
+			for(int i = 0; i < children.length; i++) n.children[i] = children[i].copy();
+			n.row = row;
+			return n;
+		}
+	}
+
+	private final Node root;
+	private final Map<String, BitSet> grams;
+	// Rows of names too short to have a trigram
+	private final BitSet shortNames;
+	// Upper-cased name of each row, null for rows not in the index
+	private final List<String> names;
+
+	private NameIndex(Node root, Map<String, BitSet> grams, BitSet shortNames, List<String> names) {
+		this.root = root;
+		this.grams = grams;
+		this.shortNames = shortNames;
+		this.names = names;
+	}
+
+	/**
+	 * Builds the index for a catalog.
+	 * @param catalog Catalog to index
+	 * @return A new index of every live row's name.
+	 */
+	public static NameIndex build(ColumnarCatalog catalog) {
+		NameIndex index = new NameIndex(new Node(), new HashMap<String, BitSet>(), new BitSet(),
+				new ArrayList<String>(catalog.size()));
+		for(int row = 0; row < catalog.size(); row++) {
+			if(catalog.isLive(row)) index.add(catalog.getName(row), row);
+		}
+		return index;
+	}
+
+	/**
+	 * Makes an independent copy of this index.
+	 * @return The copy.
+	 */
+	NameIndex copy() {
+		Map<String, BitSet> g = new HashMap<>(grams.size() * 2);
+		for(Map.Entry<String, BitSet> e : grams.entrySet()) g.put(e.getKey(), (BitSet)e.getValue().clone());
+		return new NameIndex(root.copy(), g, (BitSet)shortNames.clone(), new ArrayList<>(names));
+	}
+
+	/**
+	 * Records a row's name.
+	 * @param name University name
+	 * @param row Row id
+	 */
+	void add(String name, int row) {
+		String key = name.toUpperCase();
+		while(names.size() <= row) names.add(null);
+		names.set(row, key);
+
+		Node node = root;
+		for(int i = 0; i < key.length(); i++) node = node.add(key.charAt(i));
+		node.row = row;
+
+		if(key.length() < GRAM) shortNames.set(row);
+		for(int i = 0; i + GRAM <= key.length(); i++) {
+			String gram = key.substring(i, i + GRAM);
+			BitSet rows = grams.get(gram);
+			if(rows == null) {
+				rows = new BitSet();
+				grams.put(gram, rows);
+			}
+			rows.set(row);
+		}
+	}
+
+	/**
+	 * Forgets a row's name.
+	 * @param row Row id
+	 */
+	void remove(int row) {
+		String key = row < names.size() ? names.get(row) : null;
+		if(key == null) return;
+		names.set(row, null);
+
+		Node node = find(key);
+		if(node != null && node.row == row) node.row = -1;
+		shortNames.clear(row);
+		for(int i = 0; i + GRAM <= key.length(); i++) {
+			BitSet rows = grams.get(key.substring(i, i + GRAM));
+			if(rows != null) rows.clear(row);
+		}
+	}
+
+	/**
+	 * Finds the names that start with some text.
+	 * @param prefix Text the names must start with
+	 * @param limit Most rows to return
+	 * @return Matching row ids, shortest names first and then
+	 *         alphabetically, so an exact match is always first.
+	 */
+	public int[] startingWith(String prefix, int limit) {
+		Node start = find(prefix.toUpperCase());
+		if(start == null || limit <= 0) return new int[0];
+
+		int[] out = new int[Math.min(limit, 16)];
+		int n = 0;
+		ArrayDeque<Node> queue = new ArrayDeque<>();
+		queue.add(start);
+		while(!queue.isEmpty() && n < limit) {
+			Node node = queue.poll();
+			if(node.row >= 0) {
+				if(n == out.length) out = Arrays.copyOf(out, Math.min(limit, out.length * 2));
+				out[n++] = node.row;
+			}
+			for(Node child : node.children) queue.add(child);
+		}
+		return Arrays.copyOf(out, n);
+	}
+
+	/**
+	 * Finds every name that contains some text.
+	 * @param text Text the names must contain
+	 * @return The matching rows.
+	 */
+	public BitSet containing(String text) {
+		String key = text.toUpperCase();
+		BitSet rows = candidates(key);
+		for(int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+			if(!names.get(row).contains(key)) rows.clear(row);
+		}
+		return rows;
+	}
+
+	/**
+	 * Finds the names that contain some text, best matches first: names
+	 * that start with it, then names with a word that starts with it,
+	 * then the rest, each ordered by how early the text appears, then
+	 * by length and then alphabetically.
+	 * @param text Text the names must contain
+	 * @param limit Most rows to return
+	 * @return Matching row ids, best first.
+	 */
+	public int[] containing(String text, int limit) {
+		String key = text.toUpperCase();
+		BitSet rows = containing(key);
+		Integer[] ranked = new Integer[rows.cardinality()];
+		int n = 0;
+		for(int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) ranked[n++] = row;
+
+		Comparator<Integer> best = Comparator.comparingInt((Integer row) -> rank(names.get(row), key))
+				.thenComparingInt(row -> names.get(row).indexOf(key))
+				.thenComparingInt(row -> names.get(row).length())
+				.thenComparing(row -> names.get(row));
+		Arrays.sort(ranked, best);
+
+		int[] out = new int[Math.min(Math.max(limit, 0), ranked.length)];
+		for(int i = 0; i < out.length; i++) out[i] = ranked[i];
+		return out;
+	}
+
+	/**
+	 * @return the number of distinct trigrams in the index
+	 */
+	public int gramCount() {
+		return grams.size();
+	}
+
+	// rows that may contain key: an AND of its trigrams' rows, or for a
+	// key too short to have one, an OR of every trigram containing it
+	private BitSet candidates(String key) {
+		if(key.isEmpty()) {
+			BitSet all = new BitSet();
+			for(int row = 0; row < names.size(); row++) {
+				if(names.get(row) != null) all.set(row);
+			}
+			return all;
+		}
+		if(key.length() < GRAM) {
+			BitSet rows = (BitSet)shortNames.clone();
+			for(Map.Entry<String, BitSet> e : grams.entrySet()) {
+				if(e.getKey().contains(key)) rows.or(e.getValue());
+			}
+			return rows;
+		}
+
+		BitSet rows = null;
+		for(int i = 0; i + GRAM <= key.length(); i++) {
+			BitSet g = grams.get(key.substring(i, i + GRAM));
+			if(g == null) return new BitSet();
+			if(rows == null) rows = (BitSet)g.clone();
+			else rows.and(g);
+			if(rows.isEmpty()) break;
+		}
+		return rows;
+	}
+
+	private Node find(String key) {
+		Node node = root;
+		for(int i = 0; i < key.length() && node != null; i++) node = node.child(key.charAt(i));
+		return node;
+	}
+
+	// 0 if the name starts with key, 1 if a word in it does, 2 otherwise
+	private static int rank(String name, String key) {
+		if(name.startsWith(key)) return 0;
+		for(int i = name.indexOf(key); i > 0; i = name.indexOf(key, i + 1)) {
+			if(!Character.isLetterOrDigit(name.charAt(i - 1))) return 1;
+		}
+		return 2;
+	}
+
+}
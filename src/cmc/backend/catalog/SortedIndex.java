@@ -0,0 +1,192 @@
+package cmc.backend.catalog;
+
+import java.util.Arrays;
+
+import cmc.backend.catalog.ColumnarCatalog.Column;
+
+/**
+ * A sorted index over one numeric column of a {@link ColumnarCatalog}.
+ *
+ * The index is two parallel primitive arrays: the column values in
+ * ascending order and the row id each value came from (equal values are
+ * ordered by row id). A range of values is found with two binary
+ * searches, so a selective range only touches the rows it matches.
+ * Rows whose value is unknown (-1) are not indexed, since they never
+ * match a range.
+ *
+ * Like the catalog it belongs to, an index is not thread-safe and is
+ * only changed before the catalog is shared.
+ */
+public class SortedIndex {
+
+	private double[] keys;
+	private int[] rows;
+	private int size;
+
+	private SortedIndex(double[] keys, int[] rows, int size) {
+		this.keys = keys;
+		this.rows = rows;
+		this.size = size;
+	}
+
+	/**
+	 * Builds an index over one column of a catalog.
+	 * @param catalog Catalog to index
+	 * @param c Column to index
+	 * @return A new index of every live row with a known value.
+	 */
+	public static SortedIndex build(ColumnarCatalog catalog, Column c) {
+		int n = catalog.size();
+		int[] order = new int[n];
+		double[] values = new double[n];
+		int count = 0;
+		for(int row = 0; row < n; row++) {
+			if(!catalog.isLive(row)) continue;
+			double v = catalog.get(c, row);
+			if(v == -1) continue;
+			order[count] = row;
+			values[row] = v;
+			count++;
+		}
+
+		order = Arrays.copyOf(order, count);
+		sort(order, values);
+
+		double[] keys = new double[Math.max(count, 16)];
+		int[] rows = new int[keys.length];
+		for(int i = 0; i < count; i++) {
+			rows[i] = order[i];
+			keys[i] = values[order[i]];
+		}
+		return new SortedIndex(keys, rows, count);
+	}
+
+	/**
+	 * @return an independent copy of this index
+	 */
+	public SortedIndex copy() {
+		return new SortedIndex(keys.clone(), rows.clone(), size);
+	}
+
+	/**
+	 * @return the number of indexed rows
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Counts the rows whose value is within a range.
+	 * @param lo Inclusive minimum
+	 * @param hi Inclusive maximum
+	 * @return The number of matching rows.
+	 */
+	public int count(double lo, double hi) {
+		return Math.max(0, upperBound(hi) - lowerBound(lo));
+	}
+
+	/**
+	 * Finds the rows whose value is within a range.
+	 * @param lo Inclusive minimum
+	 * @param hi Inclusive maximum
+	 * @return Matching row ids, ordered by value (not by row id).
+	 */
+	public int[] range(double lo, double hi) {
+		int from = lowerBound(lo);
+		int to = upperBound(hi);
+		return from >= to ? new int[0] : Arrays.copyOfRange(rows, from, to);
+	}
+
+	/**
+	 * Adds a row to the index.
+	 * @param key The row's value; -1 (unknown) is ignored
+	 * @param row Row id
+	 */
+	public void insert(double key, int row) {
+		if(key == -1) return;
+		if(size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			rows = Arrays.copyOf(rows, size * 2);
+		}
+
+		int at = lowerBound(key);
+		while(at < size && keys[at] == key && rows[at] < row) at++;
+		System.arraycopy(keys, at, keys, at + 1, size - at);
+		System.arraycopy(rows, at, rows, at + 1, size - at);
+		keys[at] = key;
+		rows[at] = row;
+		size++;
+	}
+
+	/**
+	 * Removes a row from the index.
+	 * @param key The value the row was indexed under
+	 * @param row Row id
+	 * @return {@code true} if the row was in the index.
+	 */
+	public boolean delete(double key, int row) {
+		if(key == -1) return false;
+		for(int at = lowerBound(key); at < size && keys[at] == key; at++) {
+			if(rows[at] != row) continue;
+			System.arraycopy(keys, at + 1, keys, at, size - at - 1);
+			System.arraycopy(rows, at + 1, rows, at, size - at - 1);
+			size--;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the first position whose key is {@code >= key}
+	 */
+	private int lowerBound(double key) {
+		int lo = 0;
+		int hi = size;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(keys[mid] < key) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * @return the first position whose key is {@code > key}
+	 */
+	private int upperBound(double key) {
+		int lo = 0;
+		int hi = size;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(keys[mid] <= key) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Stable merge sort of row ids by their value, without boxing.
+	 * @param order Row ids in ascending order
+	 * @param values Values indexed by row id
+	 */
+	private static void sort(int[] order, double[] values) {
+		int n = order.length;
+		int[] buf = new int[n];
+		for(int width = 1; width < n; width *= 2) {
+			for(int lo = 0; lo < n; lo += 2 * width) {
+				int mid = Math.min(lo + width, n);
+				int hi = Math.min(lo + 2 * width, n);
+				int i = lo;
+				int j = mid;
+				int k = lo;
+				while(i < mid && j < hi) {
+					buf[k++] = values[order[j]] < values[order[i]] ? order[j++] : order[i++];
+				}
+				while(i < mid) buf[k++] = order[i++];
+				while(j < hi) buf[k++] = order[j++];
+			}
+			System.arraycopy(buf, 0, order, 0, n);
+		}
+	}
+
+}
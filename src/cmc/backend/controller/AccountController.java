@@ -14,21 +14,21 @@ import cmc.backend.account.User;
  */
 public class AccountController {
     
-    private DBController dbController;
+    private DatabaseController dbController;
     
     /**
-     * Constructs a new AccountController with the default DBController.
+     * Constructs a new AccountController with the shared DatabaseController.
      */
     public AccountController() {
-        this.dbController = new DBController();
+        this.dbController = DatabaseController.shared();
     }
     
     /**
-     * Constructs a new AccountController with a provided DBController.
+     * Constructs a new AccountController with a provided DatabaseController.
      * 
      * @param dbController the database controller to use
      */
-    public AccountController(DBController dbController) {
+    public AccountController(DatabaseController dbController) {
         this.dbController = dbController;
     }
     
@@ -41,7 +41,7 @@ public class AccountController {
      * @throws CMCException if there is a database error
      */
     public Account login(String username, String password) throws CMCException {
-        String[] userData = dbController.getUserData(username);
+        String[] userData = dbController.getUser(username);
         
         if (userData == null) {
             return null; // User not found
@@ -112,7 +112,7 @@ public class AccountController {
      * @return a list of all user accounts
      */
     public List<Account> getAllUsers() {
-        List<String[]> userDataList = dbController.getAllUserData();
+        List<String[]> userDataList = dbController.getAllUsers();
         List<Account> accounts = new ArrayList<>();
         
         for (String[] userData : userDataList) {
@@ -141,7 +141,7 @@ public class AccountController {
      * @return the user account, or null if not found
      */
     public Account getUser(String username) {
-        String[] userData = dbController.getUserData(username);
+        String[] userData = dbController.getUser(username);
         
         if (userData == null) {
             return null;
@@ -171,7 +171,7 @@ public class AccountController {
      * @return true if the update was successful
      */
     public boolean updateUser(String username, String firstName, String lastName, String password) {
-        String[] userData = dbController.getUserData(username);
+        String[] userData = dbController.getUser(username);
         
         if (userData == null) {
             return false; // User not found
@@ -211,7 +211,7 @@ public class AccountController {
      * @return true if the activation was successful
      */
     public boolean activateUser(String username) {
-        String[] userData = dbController.getUserData(username);
+        String[] userData = dbController.getUser(username);
         
         if (userData == null) {
             return false; // User not found
@@ -0,0 +1,268 @@
+package cmc.backend.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cmc.CMCException;
+import cmc.backend.entities.University;
+import cmc.backend.entities.UniversitySummary;
+
+/**
+ * The data-access calls of a {@link DatabaseController}, each returning a
+ * {@link CompletableFuture} instead of blocking the caller, so independent
+ * calls run at the same time and operations made of several calls can be
+ * written as pipelines.
+ *
+ * Calls run on a bounded executor: a fixed number of threads and a
+ * bounded queue. When the queue is full the caller runs the call itself,
+ * which slows down whoever is submitting too fast instead of queueing
+ * without limit. A call that fails with a {@link CMCException} completes
+ * its future exceptionally with a {@link CompletionException} wrapping it.
+ * A call made after {@link #shutdown()} completes its future
+ * exceptionally with a {@link RejectedExecutionException}.
+ */
+public class AsyncDatabaseController {
+
+	/**
+	 * The default number of threads, one per database call that may run
+	 * at once.
+	 */
+	public static final int DEFAULT_THREADS = 8;
+
+	/**
+	 * The default most calls waiting for a thread.
+	 */
+	public static final int DEFAULT_QUEUE = 1024;
+
+	// runs a call on the submitting thread, unless the executor was shut
+	// down; CallerRunsPolicy would drop it then, and its future would
+	// never complete
+	private static final RejectedExecutionHandler CALLER_RUNS = (r, pool) -> {
+		if(pool.isShutdown()) throw new RejectedExecutionException("The executor was shut down.");
+		r.run();
+	};
+
+	private final DatabaseController db;
+	private final ExecutorService executor;
+
+	// a call that may throw a CMCException
+	private interface Call<T> {
+		T call() throws CMCException;
+	}
+
+	/**
+	 * Runs calls on a new executor with the default bounds.
+	 * @param db Controller to call
+	 * @throws IllegalArgumentException if db is {@code null}
+	 */
+	public AsyncDatabaseController(DatabaseController db) {
+		this(db, boundedExecutor(DEFAULT_THREADS, DEFAULT_QUEUE));
+	}
+
+	/**
+	 * Runs calls on a given executor.
+	 * @param db Controller to call
+	 * @param executor Runs every call
+	 * @throws IllegalArgumentException if either argument is {@code null}
+	 */
+	public AsyncDatabaseController(DatabaseController db, ExecutorService executor) {
+		if(db == null) throw new IllegalArgumentException("db cannot be null.");
+		if(executor == null) throw new IllegalArgumentException("executor cannot be null.");
+		this.db = db;
+		this.executor = executor;
+	}
+
+	/**
+	 * Creates an executor with a fixed number of daemon threads and a
+	 * bounded queue, which runs a call on the submitting thread when the
+	 * queue is full and rejects it once the executor is shut down.
+	 * @param threads Number of threads
+	 * @param queue Most calls waiting for a thread
+	 * @return The executor.
+	 */
+	public static ExecutorService boundedExecutor(int threads, int queue) {
+		AtomicInteger count = new AtomicInteger();
+		return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queue), r -> {
+					Thread t = new Thread(r, "cmc-async-" + count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}, CALLER_RUNS);
+	}
+
+	/**
+	 * @return the controller the calls go to
+	 */
+	public DatabaseController getDatabaseController() {
+		return db;
+	}
+
+	/**
+	 * Stops the executor after the calls already submitted.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	private <T> CompletableFuture<T> async(Call<T> call) {
+		try {
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					return call.call();
+				}
+				catch(CMCException e) {
+					throw new CompletionException(e);
+				}
+			}, executor);
+		}
+		catch(RejectedExecutionException e) {
+			CompletableFuture<T> rejected = new CompletableFuture<>();
+			rejected.completeExceptionally(e);
+			return rejected;
+		}
+	}
+
+	/**
+	 * @param username Username
+	 * @return the user's row, or {@code null} if there is none
+	 * @see DatabaseController#getUser(String)
+	 */
+	public CompletableFuture<String[]> getUser(String username) {
+		return async(() -> db.getUser(username));
+	}
+
+	/**
+	 * @return every user's row
+	 * @see DatabaseController#getAllUsers()
+	 */
+	public CompletableFuture<List<String[]>> getAllUsers() {
+		return async(db::getAllUsers);
+	}
+
+	/**
+	 * @see DatabaseController#addUser(String, String, char, String, String)
+	 */
+	public CompletableFuture<Boolean> addUser(String username, String password, char type,
+			String firstName, String lastName) {
+		return async(() -> db.addUser(username, password, type, firstName, lastName));
+	}
+
+	/**
+	 * Removes a user. The user's saved schools are removed at the same time
+	 * as each other, so this takes about two round trips however many
+	 * schools the user saved.
+	 * @see DatabaseController#removeUser(String)
+	 */
+	public CompletableFuture<Boolean> removeUser(String username) {
+		return async(() -> db.removeUser(username));
+	}
+
+	/**
+	 * @see DatabaseController#updateUser(String, String, String, String, char, char)
+	 */
+	public CompletableFuture<Boolean> updateUser(String username, String firstName, String lastName,
+			String password, char type, char activated) {
+		return async(() -> db.updateUser(username, firstName, lastName, password, type, activated));
+	}
+
+	/**
+	 * @see DatabaseController#saveSchool(String, String)
+	 */
+	public CompletableFuture<Boolean> saveSchool(String username, String schoolName) {
+		return async(() -> db.saveSchool(username, schoolName));
+	}
+
+	/**
+	 * @see DatabaseController#removeSavedSchool(String, String)
+	 */
+	public CompletableFuture<Boolean> removeSavedSchool(String username, String schoolName) {
+		return async(() -> db.removeSavedSchool(username, schoolName));
+	}
+
+	/**
+	 * @see DatabaseController#getSavedSchools(String)
+	 */
+	public CompletableFuture<List<String>> getSavedSchools(String username) {
+		return async(() -> db.getSavedSchools(username));
+	}
+
+	/**
+	 * Gets every school a user saved, looking them all up at once.
+	 * @param username Username
+	 * @return The user's saved schools that are still in the catalog, in
+	 *         the order they were saved.
+	 */
+	public CompletableFuture<List<University>> getSavedSchoolDetails(String username) {
+		return getSavedSchools(username).thenCompose(names -> {
+			List<CompletableFuture<University>> lookups = new ArrayList<>(names.size());
+			for(String name : names) lookups.add(getUniversity(name));
+			return CompletableFuture.allOf(lookups.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+				List<University> schools = new ArrayList<>(lookups.size());
+				for(CompletableFuture<University> f : lookups) {
+					University u = f.join();
+					if(u != null) schools.add(u);
+				}
+				return schools;
+			});
+		});
+	}
+
+	/**
+	 * @see DatabaseController#getAllSchools()
+	 */
+	public CompletableFuture<List<University>> getAllSchools() {
+		return async(db::getAllSchools);
+	}
+
+	/**
+	 * @see DatabaseController#getUniversity(String)
+	 */
+	public CompletableFuture<University> getUniversity(String name) {
+		return async(() -> db.getUniversity(name));
+	}
+
+	/**
+	 * @see DatabaseController#search(SearchCriteria)
+	 */
+	public CompletableFuture<List<University>> search(SearchCriteria criteria) {
+		return async(() -> db.search(criteria));
+	}
+
+	/**
+	 * @see DatabaseController#searchSummaries(SearchCriteria, String, int)
+	 */
+	public CompletableFuture<Page<UniversitySummary>> searchSummaries(SearchCriteria criteria, String token, int size) {
+		return async(() -> db.searchSummaries(criteria, token, size));
+	}
+
+	/**
+	 * @see DatabaseController#addNewUniversity(University)
+	 */
+	public CompletableFuture<Boolean> addNewUniversity(University u) {
+		return async(() -> db.addNewUniversity(u));
+	}
+
+	/**
+	 * @see DatabaseController#editUniversity(University)
+	 */
+	public CompletableFuture<Boolean> editUniversity(University u) {
+		return async(() -> db.editUniversity(u));
+	}
+
+	/**
+	 * @see DatabaseController#removeUniversity(University)
+	 */
+	public CompletableFuture<Boolean> removeUniversity(University u) {
+		return async(() -> db.removeUniversity(u));
+	}
+
+}
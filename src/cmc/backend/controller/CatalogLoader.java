@@ -0,0 +1,175 @@
+package cmc.backend.controller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+import cmc.backend.entities.University;
+
+/**
+ * Loads the whole university catalog from raw database rows.
+ *
+ * The university table and the emphasis table are fetched at the same
+ * time, since each fetch is its own round trip to the database. The
+ * university rows are then parsed in chunks spread over every core
+ * while the emphases are grouped by school, and finally each chunk
+ * attaches its schools' emphases. The result is in database order no
+ * matter how the chunks were scheduled.
+ *
+ * A loader holds no state between loads, so one instance may be used by
+ * any number of threads.
+ */
+public class CatalogLoader {
+
+	/**
+	 * How many rows one parallel task parses. Small enough to keep every
+	 * core busy on a few thousand schools, large enough that scheduling
+	 * a task costs far less than the parsing it does.
+	 */
+	static final int CHUNK_SIZE = 256;
+
+	private final Supplier<String[][]> universityRows;
+	private final Supplier<String[][]> emphasisRows;
+	private final Executor fetchExecutor;
+
+	/**
+	 * Creates a loader that fetches on the common fork/join pool.
+	 * @param universityRows Fetches the rows of the university table, in the
+	 *        format of {@code university_getUniversities()}.
+	 * @param emphasisRows Fetches the (school, emphasis) pairs, in the format
+	 *        of {@code university_getNamesWithEmphases()}.
+	 * @throws IllegalArgumentException if either supplier is {@code null}
+	 */
+	public CatalogLoader(Supplier<String[][]> universityRows, Supplier<String[][]> emphasisRows) {
+		this(universityRows, emphasisRows, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a loader.
+	 * @param universityRows Fetches the rows of the university table, in the
+	 *        format of {@code university_getUniversities()}.
+	 * @param emphasisRows Fetches the (school, emphasis) pairs, in the format
+	 *        of {@code university_getNamesWithEmphases()}.
+	 * @param fetchExecutor Runs the two fetches, which mostly wait on the
+	 *        database.
+	 * @throws IllegalArgumentException if any argument is {@code null}
+	 */
+	public CatalogLoader(Supplier<String[][]> universityRows, Supplier<String[][]> emphasisRows,
+			Executor fetchExecutor) {
+		if(universityRows == null || emphasisRows == null)
+			throw new IllegalArgumentException("Row suppliers cannot be null.");
+		if(fetchExecutor == null) throw new IllegalArgumentException("fetchExecutor cannot be null.");
+		this.universityRows = universityRows;
+		this.emphasisRows = emphasisRows;
+		this.fetchExecutor = fetchExecutor;
+	}
+
+	/**
+	 * Fetches and parses the whole catalog.
+	 * @return Every university, in the order the database returned them.
+	 * @throws NumberFormatException if a numeric column is not a number
+	 * @throws IllegalArgumentException if a row fails {@link University}'s
+	 *         validation
+	 */
+	public List<University> load() {
+		CompletableFuture<Map<String, List<String>>> emphases =
+				CompletableFuture.supplyAsync(emphasisRows, fetchExecutor).thenApply(CatalogLoader::group);
+		CompletableFuture<University[]> schools =
+				CompletableFuture.supplyAsync(universityRows, fetchExecutor).thenApply(CatalogLoader::parseAll);
+
+		try {
+			return schools.thenCombine(emphases, CatalogLoader::attach).join();
+		}
+		catch(CompletionException e) {
+			// surface what the parser or the database library threw
+			Throwable cause = e.getCause();
+			if(cause instanceof RuntimeException) throw (RuntimeException)cause;
+			if(cause instanceof Error) throw (Error)cause;
+			throw e;
+		}
+	}
+
+	/**
+	 * Parses every university row, a chunk per task.
+	 * @param rows Rows of the university table
+	 * @return The parsed universities, without emphases, in row order.
+	 */
+	static University[] parseAll(String[][] rows) {
+		University[] result = new University[rows.length];
+		chunks(rows.length).forEach(c -> {
+			int end = Math.min(rows.length, c + CHUNK_SIZE);
+			for(int i = c; i < end; i++) result[i] = parse(rows[i]);
+		});
+		return result;
+	}
+
+	/**
+	 * Parses one row of the university table.
+	 * @param k Row
+	 * @return The university, without emphases.
+	 */
+	static University parse(String[] k) {
+		University u = new University(k[0]);
+		u.setState(k[1]);
+		u.setLocation(k[2]);
+		u.setControl(k[3]);
+		u.setNumStudents(Integer.parseInt(k[4]));
+		u.setPercentFemale(Double.parseDouble(k[5]));
+		u.setSatVerbal(Double.parseDouble(k[6]));
+		u.setSatMath(Double.parseDouble(k[7]));
+		u.setExpenses(Double.parseDouble(k[8]));
+		u.setPercentFinancialAid(Double.parseDouble(k[9]));
+		u.setNumApplicants(Integer.parseInt(k[10]));
+		u.setPercentAdmitted(Double.parseDouble(k[11]));
+		u.setPercentEnrolled(Double.parseDouble(k[12]));
+		u.setScaleAcademics(Integer.parseInt(k[13]));
+		u.setScaleSocial(Integer.parseInt(k[14]));
+		u.setScaleQualityOfLife(Integer.parseInt(k[15]));
+		return u;
+	}
+
+	/**
+	 * Groups (school, emphasis) pairs by school.
+	 * @param rows Pairs
+	 * @return Each school's emphases, in row order.
+	 */
+	static Map<String, List<String>> group(String[][] rows) {
+		Map<String, List<String>> dict = new HashMap<>(rows.length);
+		for(String[] kv : rows) {
+			List<String> list = dict.get(kv[0]);
+			if(list == null) {
+				list = new ArrayList<>(3);
+				dict.put(kv[0], list);
+			}
+			list.add(kv[1]);
+		}
+		return dict;
+	}
+
+	private static List<University> attach(University[] schools, Map<String, List<String>> emphases) {
+		chunks(schools.length).forEach(c -> {
+			int end = Math.min(schools.length, c + CHUNK_SIZE);
+			for(int i = c; i < end; i++) {
+				List<String> list = emphases.get(schools[i].getName());
+				if(list == null) continue;
+				for(String e : list) schools[i].addEmphasis(e);
+			}
+		});
+		return new ArrayList<>(Arrays.asList(schools));
+	}
+
+	// The first row of every chunk, run in parallel when there is more than one
+	private static IntStream chunks(int rows) {
+		IntStream starts = IntStream.range(0, (rows + CHUNK_SIZE - 1) / CHUNK_SIZE).map(c -> c * CHUNK_SIZE);
+		return rows > CHUNK_SIZE ? starts.parallel() : starts;
+	}
+
+}
@@ -1,13 +1,39 @@
-package controller;
+package cmc.backend.controller;
+
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiFunction;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import cmc.CMCException;
+import cmc.backend.cache.SavedSchoolIndex;
+import cmc.backend.cache.SearchResultCache;
+import cmc.backend.cache.UniversityCache;
+import cmc.backend.cache.UserDirectory;
+import cmc.backend.catalog.CatalogSnapshot;
+import cmc.backend.catalog.ColumnarCatalog;
 import cmc.backend.entities.University;
+import cmc.backend.entities.UniversitySummary;
+import cmc.backend.search.CompiledQuery;
+import cmc.backend.search.SimilarSchools;
+import cmc.backend.storage.CoalescingStorage;
+import cmc.backend.storage.LibraryStorage;
+import cmc.backend.storage.Storage;
+import cmc.backend.storage.Storages;
 import dblibrary.project.csci230.*;
 
 /**
@@ -15,6 +41,13 @@ import dblibrary.project.csci230.*;
  * database library.  It currently just calls the lower-level methods and
  * forwards the result (possibly throwing some exceptions along the way).
  * 
+ * One controller can be shared by any number of threads. Reads go to
+ * caches that are safe to read concurrently. Each write locks the user
+ * or school it writes while it writes the database and updates the
+ * caches, so two writes to the same one never reach the caches in a
+ * different order than the database, while writes to different ones
+ * run at the same time.
+ * 
  * @author Sally Sparrow
  */
 public class DatabaseController {
@@ -24,197 +57,590 @@ public class DatabaseController {
 	 */
 	private static final String SHOULDNT_HAPPEN = "If you're seeing this DatabaseController has a bug.";
 	
-	private UniversityDBLibrary database;
+	/**
+	 * How many schools a batch write sends to the database at once.
+	 */
+	private static final int BATCH_WRITERS = 8;
+	
+	/**
+	 * How many locks the users and schools being written are spread over.
+	 */
+	private static final int LOCK_STRIPES = 64;
+	
+	/**
+	 * Runs the independent round trips of one operation at the same time,
+	 * e.g. each school of a batch write. Its tasks only call the storage
+	 * and never wait on this class's locks, so an operation may hold a
+	 * lock while it waits for them.
+	 */
+	private static final ExecutorService ROUND_TRIPS = Executors.newFixedThreadPool(BATCH_WRITERS, r -> {
+		Thread t = new Thread(r, "cmc-round-trip");
+		t.setDaemon(true);
+		return t;
+	});
+	
+	/**
+	 * The system property naming a catalog snapshot file, which lets the
+	 * program start without loading the catalog from the database.
+	 */
+	public static final String SNAPSHOT_PROPERTY = "cmc.snapshot";
+	
+	private final Storage database;
+	
+	/**
+	 * In-memory copy of the university catalog. Reads are served from
+	 * here without locking and every university write publishes an
+	 * edited copy of it.
+	 */
+	private final UniversityCache catalog;
+	
+	// every user keyed by username, so logins don't scan the user table
+	private final UserDirectory users;
+	
+	// each user's saved schools, so one user's list can be checked or
+	// changed without downloading everyone's
+	private final SavedSchoolIndex savedSchools;
+	
+	// locked by every write from its database write to its cache update,
+	// per user and per school
+	private final KeyLocks locks = new KeyLocks(LOCK_STRIPES);
+	
+	// rows matched by recent searches, per catalog version
+	private final SearchResultCache searches = new SearchResultCache();
+	
+	// catalogs with at least this many rows are searched on the common
+	// fork/join pool
+	private volatile int parallelThreshold = CompiledQuery.DEFAULT_PARALLEL_THRESHOLD;
+	
+	// feature matrix of the catalog it was built from; rebuilt when the
+	// cache hands out a different catalog
+	private volatile SimilarSchools similar;
 
-	// The default constructor that connects to the underlying
-	// UniversityDBLibrary object using your team's info.
+	// The default constructor that connects to the storage chosen at
+	// startup (the cmc.storage system property), which by default is the
+	// underlying UniversityDBLibrary object using your team's info.
+	// The catalog is snapshotted to the cmc.snapshot file if it is set.
 	public DatabaseController() {
-		this.database = new UniversityDBLibrary("dei", "Csci230$");
+		this(Storages.fromSystemProperties());
+		String snapshot = System.getProperty(SNAPSHOT_PROPERTY);
+		if(snapshot != null) catalog.setSnapshot(new CatalogSnapshot(Paths.get(snapshot)));
+	}
+	
+	/**
+	 * Gets the controller that the no-argument constructors of the other
+	 * controllers share, so one process has one set of caches and one
+	 * database call limit no matter how many controllers it makes. It is
+	 * created like {@link #DatabaseController()} on first use.
+	 * @return The shared controller.
+	 */
+	public static DatabaseController shared() {
+		return Shared.INSTANCE;
+	}
+	
+	// created when shared() is first called
+	private static class Shared {
+		static final DatabaseController INSTANCE = new DatabaseController();
+	}
+	
+	// Connects to a given UniversityDBLibrary object instead, e.g. one
+	// pointing at another database or an in-memory stand-in.
+	// Concurrent reads of a whole table share one round trip.
+	public DatabaseController(UniversityDBLibrary database) {
+		this(new CoalescingStorage(new LibraryStorage(database)));
+	}
+	
+	// Keeps everything in the given storage backend.
+	public DatabaseController(Storage storage) {
+		if(storage == null) throw new IllegalArgumentException("storage cannot be null.");
+		this.database = storage;
+		CatalogLoader loader = new CatalogLoader(this.database::getUniversities,
+				this.database::getNamesWithEmphases);
+		this.catalog = new UniversityCache(loader::load);
+		this.users = new UserDirectory(this.database::getUsers);
+		this.savedSchools = new SavedSchoolIndex(this.database::getSavedSchools);
+	}
+	
+	/**
+	 * Gets the cache that serves university reads, e.g. to change its
+	 * staleness bound or to read its hit/miss counters.
+	 * @return The university catalog cache.
+	 */
+	public UniversityCache getUniversityCache() {
+		return catalog;
+	}
+
+	/**
+	 * Gets the storage every read and write goes to, e.g. to read a
+	 * {@link CoalescingStorage}'s in-flight counters.
+	 * @return The storage.
+	 */
+	public Storage getStorage() {
+		return database;
+	}
+
+	// get the in-memory user directory (e.g. to rebuild it after the
+	// user table was changed by someone else)
+	public UserDirectory getUserDirectory() {
+		return users;
 	}
 
 	// add a user to the db
 	// TODO: it would be nice if this could take a User object instead
 	// (so "higher-abstraction" classes don't have to worry about the order
 	//  of properties)
+	@SuppressWarnings("try")
 	public boolean addUser(String username, String password, char type,
 			String firstName, String lastName) throws CMCException {
-		int result = this.database.user_addUser(firstName, lastName, username, password, type);
+		try(KeyLocks.Held held = locks.lock(userKey(username))) {
+			int result = this.database.addUser(firstName, lastName, username, password, type);
 		
-		if (result == -1) {
-			throw new CMCException("Error adding user to the DB");
-		}
-		else {
-			return true;
+			if (result == -1) {
+				throw new CMCException("Error adding user to the DB");
+			}
+			else {
+				// users always start activated
+				users.put(new String[] { firstName, lastName, username, password,
+						String.valueOf(type), "Y" });
+				return true;
+			}
 		}
 	}
 	
 	// remove a user from the db
+	@SuppressWarnings("try")
 	public boolean removeUser(String username) throws CMCException {
+		try(KeyLocks.Held held = locks.lock(userKey(username))) {
+			// each saved school is its own round trip, so remove them all at once
+			List<String> saved = savedSchools.get(username);
+			List<CompletableFuture<Integer>> removals = new ArrayList<>(saved.size());
+			for(String s : saved) {
+				removals.add(CompletableFuture.supplyAsync(() -> database.removeSchool(username, s), ROUND_TRIPS));
+			}
+			// only forget the schools the database really removed, and keep
+			// the user unless it removed them all
+			RuntimeException thrown = null;
+			int failed = 0;
+			for(int i = 0; i < saved.size(); i++) {
+				int result;
+				try {
+					result = removals.get(i).join();
+				}
+				catch(CompletionException e) {
+					if(thrown == null) thrown = e.getCause() instanceof RuntimeException
+							? (RuntimeException) e.getCause() : e;
+					continue;
+				}
+				if(result == 1) savedSchools.remove(username, saved.get(i));
+				else failed++;
+			}
+			if(thrown != null) throw thrown;
+			if(failed > 0) {
+				throw new CMCException(String.format("Error removing %d of user \"%s\"'s saved schools from the DB.",
+						failed, username));
+			}
+			savedSchools.removeUser(username);
 		
-		Map<String, List<String>> schoolMap = getUserSavedSchoolMap();
-		List<String> schools = schoolMap.get(username);
-		if(schools != null) {
-			for(String s : schools) database.user_removeSchool(username, s);
-		}
-		
-		int result = this.database.user_deleteUser(username);
+			int result = this.database.deleteUser(username);
 		
-		if (result != 1) {
-			// TODO: How can we tell the difference?
-			throw new CMCException("Error removing user \"" + username +
-					"\" from the DB.  Not present?  DB error?");
-		}
-		else {
-			return true;
+			if (result != 1) {
+				// TODO: How can we tell the difference?
+				throw new CMCException("Error removing user \"" + username +
+						"\" from the DB.  Not present?  DB error?");
+			}
+			else {
+				users.remove(username);
+				return true;
+			}
 		}
 	}
 	
 	// get a user; null if not in DB
 	public String[] getUser(String username) {
-		String[][] databaseUserStrings = this.database.user_getUsers();
-		
-		for (String[] singleUser : databaseUserStrings) {
-			String thisUsername = singleUser[2];
-			if (thisUsername.equals(username)) {
-				return singleUser;
-			}
-		}
-		
-		return null;
+		return users.get(username);
 	}
 	
 	// get the list of all the users in the DB
 	public List<String[]> getAllUsers() {
-		String[][] dbUserList = this.database.user_getUsers();
-		
-		ArrayList<String[]> result = new ArrayList<String[]>();
-		for (String[] user : dbUserList) {
-			result.add(user);
+		return users.getAll();
+	}
+	
+	/**
+	 * Gets one page of the users in the DB, in username order.
+	 * @param token Token from the previous page, or {@code null} for the
+	 *        first page
+	 * @param size Most users on the page
+	 * @return Rows like {@link #getAllUsers()}'s.
+	 * @throws IllegalArgumentException if size is not positive
+	 */
+	public Page<String[]> getUserPage(String token, int size) {
+		List<String[]> rows = users.page(token, size);
+		String last = rows.size() < size ? null : rows.get(rows.size() - 1)[UserDirectory.USERNAME];
+		// a full page may still be the last one
+		if(last != null && users.page(last, 1).isEmpty()) last = null;
+		return new Page<>(rows, last);
+	}
+	
+	// edit every field of an existing user (except the username)
+	@SuppressWarnings("try")
+	public boolean updateUser(String username, String firstName, String lastName,
+			String password, char type, char activated) throws CMCException {
+		try(KeyLocks.Held held = locks.lock(userKey(username))) {
+			int result = this.database.editUser(username, firstName, lastName, password, type, activated);
+			if (result == -1) {
+				throw new CMCException("Error editing user in the DB");
+			}
+			else {
+				users.put(new String[] { firstName, lastName, username, password,
+						String.valueOf(type), String.valueOf(activated) });
+				return true;
+			}
 		}
-		
-		return result;
 	}
 	
 	// deactivate a user in the database
 	// This is messy, and it would be much cleaner to do
 	// an editUser with an updated User object!
+	// The user stays locked from the read to the write, so a concurrent
+	// updateUser can't be overwritten with the fields read here.
+	@SuppressWarnings("try")
 	public boolean deactivateUser(String username) throws CMCException {
-		String[] theUser = getUser(username);
-		if (theUser == null)
-			return false;
-		int result = this.database.user_editUser(theUser[2], theUser[0], theUser[1], theUser[3], theUser[4].charAt(0), 'N');
-		if (result == -1) {
-			throw new CMCException("Error editing user (to deactivate) in the DB");
-		}
-		else {
-			return true;
+		try(KeyLocks.Held held = locks.lock(userKey(username))) {
+			String[] theUser = getUser(username);
+			if (theUser == null)
+				return false;
+			return updateUser(theUser[2], theUser[0], theUser[1], theUser[3], theUser[4].charAt(0), 'N');
 		}
 	}
 	
 	// save a school to a particular user's list
 	// TODO: It feels like we should be able to do this as part of
 	//       "updating" a user in the DB.
+	@SuppressWarnings("try")
 	public boolean saveSchool(String username, String schoolName) throws CMCException {
+		try(KeyLocks.Held held = locks.lock(userKey(username))) {
+			if(savedSchools.contains(username, schoolName)) return false;
 		
-		Map<String, List<String>> schools = getUserSavedSchoolMap();
-		List<String> userSchools = schools.get(username);
-		// userSchools will be null if there are no saved schools
-		if(userSchools != null && userSchools.contains(schoolName)) return false;
-		
-		int result = this.database.user_saveSchool(username, schoolName);
-		if (result != 1) {
-			String msg = String.format("(%d) Error saving school \"%s\" to user \"%s\" in the DB.",
-					result, schoolName, username);
-			throw new Error(msg + " Already present?  DB error?");
+			int result = this.database.saveSchool(username, schoolName);
+			if (result != 1) {
+				String msg = String.format("(%d) Error saving school \"%s\" to user \"%s\" in the DB.",
+						result, schoolName, username);
+				throw new CMCException(msg + " No such school?  DB error?");
+			}
+			else {
+				savedSchools.add(username, schoolName);
+				return true;
+			}
 		}
-		else {
+	}
+	
+	// remove a school from a particular user's saved list; false if it
+	// wasn't in the list
+	@SuppressWarnings("try")
+	public boolean removeSavedSchool(String username, String schoolName) throws CMCException {
+		try(KeyLocks.Held held = locks.lock(userKey(username))) {
+			if(!savedSchools.contains(username, schoolName)) return false;
+			
+			int result = this.database.removeSchool(username, schoolName);
+			if (result != 1) {
+				throw new CMCException(String.format("(%d) Error removing school \"%s\" from user \"%s\" in the DB.",
+						result, schoolName, username));
+			}
+			savedSchools.remove(username, schoolName);
 			return true;
 		}
 	}
 	
+	// get a single user's saved universities (empty if there are none)
+	public List<String> getSavedSchools(String username) {
+		return savedSchools.get(username);
+	}
+	
 	// get the mapping from users to their saved universities in the DB
 	// e.g., peter -> {CSBSJU, HARVARD}
 	//       juser -> {YALE, AUGSBURG, STANFORD}
 	public Map<String, List<String>> getUserSavedSchoolMap() {
-		String[][] dbMapping = this.database.user_getUsernamesWithSavedSchools();
-
-		HashMap<String, List<String>> result = new HashMap<String, List<String>>();
-		
-		for (String[] entry : dbMapping) {
-			String user = entry[0];
-			String school = entry[1];
-			
-			if (!result.containsKey(user))
-				result.put(user, new ArrayList<String>());
-			
-			result.get(user).add(school);
-		}
-
-		return result;
+		return savedSchools.asMap();
 	}
 	
 	/**
-	 * Gets all universities' emphases.
-	 * Note that the caller should not assume that all universities
-	 * are in the dictionary and if a university has no emphases
-	 * it will not be in the dictionary and hence 'get' would
-	 * return {@code null}.
-	 * @return A map of university names to a list of emphases.
-	 * @author Roman Lefler
-	 * @version Mar 14, 2025
+	 * Gets one page of {@link #getUserSavedSchoolMap()}, in username order.
+	 * @param token Token from the previous page, or {@code null} for the
+	 *        first page
+	 * @param size Most users on the page
+	 * @return Each user and their saved schools.
+	 * @throws IllegalArgumentException if size is not positive
 	 */
-	private Map<String, List<String>> getUniversitiesEmphases() {
-		String[][] emphases = database.university_getNamesWithEmphases();
-		Map<String, List<String>> dict = new HashMap<String, List<String>>();
-		for(String[] kv : emphases) {
-			
-			List<String> list = dict.get(kv[0]);
-			if(list == null) {
-				list = new ArrayList<>(3);
-				dict.put(kv[0], list);
-			}
-			list.add(kv[1]);
-		}
-		return dict;
+	public Page<Map.Entry<String, List<String>>> getUserSavedSchoolPage(String token, int size) {
+		List<Map.Entry<String, List<String>>> entries = new ArrayList<>(savedSchools.page(token, size).entrySet());
+		String last = entries.size() < size ? null : entries.get(entries.size() - 1).getKey();
+		if(last != null && savedSchools.page(last, 1).isEmpty()) last = null;
+		return new Page<>(entries, last);
+	}
+	
+	// get the saved-school index (e.g. to rebuild it after the saved
+	// schools were changed by someone else)
+	public SavedSchoolIndex getSavedSchoolIndex() {
+		return savedSchools;
 	}
 	
 	/**
-	 * Gets the list of all the universities in the DB
+	 * Gets the list of all the universities in the DB.
+	 * This is served from the catalog cache, so it only goes to the
+	 * database when the cache is cold or stale.
 	 * @return A list of universities
 	 * @author Roman Lefler
 	 * @version Mar 13, 2025
 	 */
 	public List<University> getAllSchools() {
-		String[][] dbUniversityList = this.database.university_getUniversities();
-
-		Map<String, List<String>> emphases = getUniversitiesEmphases();
-		ArrayList<University> result = new ArrayList<>();
-		for (String[] k : dbUniversityList) {
-			University u = new University(k[0]);
-			u.setState(k[1]);
-			u.setLocation(k[2]);
-			u.setControl(k[3]);
-			u.setNumStudents(Integer.parseInt(k[4]));
-			u.setPercentFemale(Double.parseDouble(k[5]));
-			u.setSatVerbal(Double.parseDouble(k[6]));
-			u.setSatMath(Double.parseDouble(k[7]));
-			u.setExpenses(Double.parseDouble(k[8]));
-			u.setPercentFinancialAid(Double.parseDouble(k[9]));
-			u.setNumApplicants(Integer.parseInt(k[10]));
-			u.setPercentAdmitted(Double.parseDouble(k[11]));
-			u.setPercentEnrolled(Double.parseDouble(k[12]));
-			u.setScaleAcademics(Integer.parseInt(k[13]));
-			u.setScaleSocial(Integer.parseInt(k[14]));
-			u.setScaleQualityOfLife(Integer.parseInt(k[15]));
-			List<String> schoolEmphases = emphases.get(k[0]);
-			if(schoolEmphases != null) {
-				for(String e : schoolEmphases) u.addEmphasis(e);
-			}
-			
-			result.add(u);
+		return catalog.getAll();
+	}
+	
+	/**
+	 * Gets the name and state of every university, without creating a
+	 * University object for each; one is only created when a summary is
+	 * asked for its whole university.
+	 * @return Summaries of every university, in database order.
+	 */
+	public List<UniversitySummary> getAllSchoolSummaries() {
+		return catalog.getCatalog().summarizeAll();
+	}
+	
+	/**
+	 * Gets one page of the universities in the DB, in database order.
+	 * Only the universities on the page are created, so this uses memory
+	 * for one page rather than for the whole catalog.
+	 * @param token Token from the previous page, or {@code null} for the
+	 *        first page
+	 * @param size Most universities on the page
+	 * @return The page.
+	 * @throws IllegalArgumentException if size is not positive or the
+	 *         token was not made by this class
+	 */
+	public Page<University> getSchoolPage(String token, int size) {
+		return page(token, size, (c, row) -> c.materialize(row));
+	}
+	
+	/**
+	 * Gets one page of {@link #getAllSchoolSummaries()}.
+	 * @param token Token from the previous page, or {@code null} for the
+	 *        first page
+	 * @param size Most universities on the page
+	 * @return The page.
+	 * @throws IllegalArgumentException if size is not positive or the
+	 *         token was not made by this class
+	 */
+	public Page<UniversitySummary> getSchoolSummaryPage(String token, int size) {
+		return page(token, size, (c, row) -> c.summarize(row));
+	}
+	
+	/**
+	 * Streams every university in the DB, in database order. Each one is
+	 * created as the stream reaches it, so a stream that is stopped early
+	 * or consumed one at a time never holds the whole catalog.
+	 * @return The universities of the catalog as it is now; later writes
+	 *         are not seen.
+	 */
+	public Stream<University> streamSchools() {
+		ColumnarCatalog c = catalog.getCatalog();
+		return IntStream.range(0, c.size()).filter(c::isLive).mapToObj(c::materialize);
+	}
+	
+	private <T> Page<T> page(String token, int size, BiFunction<ColumnarCatalog, Integer, T> project) {
+		if(size <= 0) throw new IllegalArgumentException("size must be positive.");
+		ColumnarCatalog c = catalog.getCatalog();
+		List<T> items = new ArrayList<>(Math.min(size, c.liveCount()));
+		int row = resume(c, token);
+		int last = -1;
+		for(; row < c.size() && items.size() < size; row++) {
+			if(!c.isLive(row)) continue;
+			items.add(project.apply(c, row));
+			last = row;
 		}
-
-		return result;
+		while(row < c.size() && !c.isLive(row)) row++;
+		return new Page<>(items, row < c.size() ? token(c, last) : null);
+	}
+	
+	// A page token is the row after the page's last one and that last
+	// row's name. Row ids change when the catalog is compacted or
+	// reloaded, so if the row no longer has that name, the page goes on
+	// from wherever the name is now, or from the same row if it is gone.
+	private static String token(ColumnarCatalog c, int lastRow) {
+		return (lastRow + 1) + ":" + c.getName(lastRow);
+	}
+	
+	private static int resume(ColumnarCatalog c, String token) {
+		if(token == null) return 0;
+		int colon = token.indexOf(':');
+		int row;
+		try {
+			row = Integer.parseInt(token.substring(0, Math.max(colon, 0)));
+		}
+		catch(NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid page token \"" + token + "\".");
+		}
+		if(row <= 0) throw new IllegalArgumentException("Invalid page token \"" + token + "\".");
+		String name = token.substring(colon + 1);
+		if(row <= c.size() && name.equals(c.getName(row - 1))) return row;
+		int moved = c.rowOf(name);
+		return moved >= 0 ? moved + 1 : Math.min(row, c.size());
+	}
+	
+	/**
+	 * Gets the whole catalog in columnar form, for scanning it without
+	 * creating a University object per school.
+	 * @return The current catalog. Do not modify it.
+	 */
+	public ColumnarCatalog getCatalog() {
+		return catalog.getCatalog();
+	}
+	
+	/**
+	 * Gets a single university by its exact name without copying the
+	 * whole catalog.
+	 * @param name University name
+	 * @return The university, or {@code null} if there is none.
+	 */
+	public University getUniversity(String name) {
+		return catalog.get(name);
+	}
+	
+	/**
+	 * Finds the universities whose names start with some text, from the
+	 * name index rather than a scan of the catalog.
+	 * @param prefix Text the names must start with, in any case
+	 * @param limit Most universities to return
+	 * @return The universities, shortest names first.
+	 * @throws IllegalArgumentException if prefix is {@code null}
+	 */
+	public List<University> getSchoolsStartingWith(String prefix, int limit) {
+		if(prefix == null) throw new IllegalArgumentException("prefix cannot be null.");
+		ColumnarCatalog c = catalog.getCatalog();
+		return c.materialize(c.nameIndex().startingWith(prefix.trim(), limit));
+	}
+	
+	/**
+	 * Finds the universities whose names contain some text, from the
+	 * name index rather than a scan of the catalog.
+	 * @param text Text the names must contain, in any case
+	 * @param limit Most universities to return
+	 * @return The universities, best matches first: names starting
+	 *         with the text, then names with a word starting with it,
+	 *         then the rest.
+	 * @throws IllegalArgumentException if text is {@code null}
+	 */
+	public List<University> getSchoolsContaining(String text, int limit) {
+		if(text == null) throw new IllegalArgumentException("text cannot be null.");
+		ColumnarCatalog c = catalog.getCatalog();
+		return c.materialize(c.nameIndex().containing(text.trim(), limit));
+	}
+	
+	/**
+	 * Searches the catalog. A search whose criteria have the same
+	 * canonical form as one already run against the current catalog is
+	 * answered from the search result cache without scanning. A
+	 * catalog of at least {@link #getParallelThreshold()} rows is
+	 * scanned on all cores.
+	 * @param criteria Search criteria; unset criteria match everything
+	 * @return New university objects for the matching schools, in
+	 *         database order.
+	 * @throws IllegalArgumentException if criteria is {@code null}
+	 */
+	public List<University> search(SearchCriteria criteria) {
+		return search(criteria, (c, rows) -> c.materialize(rows));
+	}
+	
+	/**
+	 * Searches the catalog like {@link #search(SearchCriteria)}, but only
+	 * reads the name and state of each match, for result lists.
+	 * @param criteria Search criteria; unset criteria match everything
+	 * @return Summaries of the matching schools, in database order.
+	 * @throws IllegalArgumentException if criteria is {@code null}
+	 */
+	public List<UniversitySummary> searchSummaries(SearchCriteria criteria) {
+		return search(criteria, (c, rows) -> c.summarize(rows));
+	}
+	
+	/**
+	 * Gets one page of {@link #searchSummaries(SearchCriteria)}. The
+	 * matching rows are cached, so later pages don't search again.
+	 * @param criteria Search criteria; unset criteria match everything
+	 * @param token Token from the previous page, or {@code null} for the
+	 *        first page
+	 * @param size Most schools on the page
+	 * @return The page.
+	 * @throws IllegalArgumentException if criteria is {@code null}, size
+	 *         is not positive or the token was not made by this class
+	 */
+	public Page<UniversitySummary> searchSummaries(SearchCriteria criteria, String token, int size) {
+		if(size <= 0) throw new IllegalArgumentException("size must be positive.");
+		return search(criteria, (c, rows) -> {
+			// rows are ascending, so the page starts at the first one past the token
+			int from = Arrays.binarySearch(rows, resume(c, token));
+			if(from < 0) from = -from - 1;
+			int to = Math.min(rows.length, from + size);
+			return new Page<>(c.summarize(Arrays.copyOfRange(rows, from, to)),
+					to < rows.length ? token(c, rows[to - 1]) : null);
+		});
+	}
+	
+	private <T> T search(SearchCriteria criteria, BiFunction<ColumnarCatalog, int[], T> project) {
+		if(criteria == null) throw new IllegalArgumentException("criteria cannot be null.");
+		UniversityCache.Version current = catalog.current();
+		ColumnarCatalog c = current.getCatalog();
+		long version = current.getNumber();
+		String key = criteria.canonicalForm();
+		int[] rows = searches.get(key, version);
+		if(rows == null) {
+			rows = CompiledQuery.compile(criteria, c).execute(ForkJoinPool.commonPool(), parallelThreshold);
+			searches.put(key, version, rows);
+		}
+		return project.apply(c, rows);
+	}
+	
+	/**
+	 * @return the catalog size from which searches run in parallel
+	 */
+	public int getParallelThreshold() {
+		return parallelThreshold;
+	}
+	
+	/**
+	 * @param parallelThreshold the catalog size from which searches run
+	 *        in parallel; {@link Integer#MAX_VALUE} keeps every search on
+	 *        the calling thread
+	 */
+	public void setParallelThreshold(int parallelThreshold) {
+		this.parallelThreshold = parallelThreshold;
+	}
+	
+	/**
+	 * Gets the cache of search results, e.g. to read its hit/miss counters.
+	 * @return The search result cache.
+	 */
+	public SearchResultCache getSearchResultCache() {
+		return searches;
+	}
+	
+	/**
+	 * Finds the universities most like a university by their numeric
+	 * attributes (SAT scores, expenses, admission rates and the three
+	 * scales). The first call after the catalog changes builds a feature
+	 * matrix of the whole catalog; later calls only scan it.
+	 * @param name Name of the university to compare to
+	 * @param k Most universities to return
+	 * @return The universities, most similar first, or an empty list if
+	 *         there is no university with the name.
+	 */
+	public List<University> getSimilarSchools(String name, int k) {
+		ColumnarCatalog c = catalog.getCatalog();
+		int row = c.rowOf(name);
+		if(row < 0) return new ArrayList<University>();
+		SimilarSchools s = similar;
+		if(s == null || s.getCatalog() != c) {
+			s = SimilarSchools.build(c);
+			similar = s;
+		}
+		return c.materialize(s.nearest(row, k));
 	}
 	
 	/**
@@ -225,7 +651,7 @@ public class DatabaseController {
 	 */
 	public List<String> getAllEmphases() {
 		// It's not clear to me why this returns a 2D array
-		String[][] arr = database.university_getEmphases();
+		String[][] arr = database.getEmphases();
 		List<String> list = new ArrayList<String>();
 		for(int i = 0; i < arr.length; i++) {
 			for(int j = 0; j < arr[i].length; j++) list.add(arr[i][j]);
@@ -248,7 +674,7 @@ public class DatabaseController {
 	 * @version Mar 16, 2025
 	 */
 	private boolean removeEmphasis(String uniName, String emphasis) {
-		int result = database.university_removeUniversityEmphasis(uniName, emphasis);
+		int result = database.removeEmphasis(uniName, emphasis);
 		return result > 0;
 	}
 	
@@ -266,7 +692,7 @@ public class DatabaseController {
 	 * @version Mar 16, 2025
 	 */
 	private boolean addEmphasis(String uniName, String emphasis) {
-		int result = database.university_addUniversityEmphasis(uniName, emphasis);
+		int result = database.addEmphasis(uniName, emphasis);
 		return result > 0;
 	}
 	
@@ -276,26 +702,58 @@ public class DatabaseController {
 	 * @return {@code true} if the operation succeeded.
 	 * @see #editUniversity(University)
 	 * @see #removeUniversity(University)
+	 * @see #addUniversities(Collection)
 	 * @author Roman Lefler
 	 * @version Mar 13, 2025
 	 */
+	@SuppressWarnings("try")
 	public boolean addNewUniversity(University u) {
-		int result = database.university_addUniversity(
-				u.getName(), u.getState(), u.getLocation(), u.getControl(),
-				u.getNumStudents(), u.getPercentFemale(), u.getSatVerbal(),
-				u.getSatMath(), u.getExpenses(), u.getPercentFinancialAid(),
-				u.getNumApplicants(), u.getPercentAdmitted(),
-				u.getPercentEnrolled(), u.getScaleAcademics(),
-				u.getScaleSocial(), u.getScaleQualityOfLife());
+		if(u == null) throw new IllegalArgumentException("u cannot be null.");
+		try(KeyLocks.Held held = locks.lock(schoolKey(u.getName()))) {
+			boolean added;
+			try {
+				added = insert(u);
+			}
+			catch(RuntimeException e) {
+				// the school may have been only partly written
+				catalog.invalidate();
+				throw e;
+			}
+			if(!added) return false;
+			catalog.put(u);
+			return true;
+		}
+	}
+	
+	/**
+	 * Adds many new universities to the database. Several schools are
+	 * written at a time and the catalog cache is updated once at the end,
+	 * so this is much faster than calling
+	 * {@link #addNewUniversity(University)} for each school.
+	 * @param list Universities to add
+	 * @return Whether each university was added, in the order of list.
+	 * @throws IllegalArgumentException if list or any of its elements
+	 *         is {@code null}
+	 */
+	@SuppressWarnings("try")
+	public List<Boolean> addUniversities(Collection<University> list) {
+		List<University> schools = batch(list);
+		try(KeyLocks.Held held = locks.lockAll(schoolKeys(schools))) {
+			List<Boolean> result = writeAll(schools.size(), i -> insert(schools.get(i)));
 		
-		if(result != 1) return false;
+			List<University> added = new ArrayList<>();
+			for(int i = 0; i < schools.size(); i++) {
+				if(result.get(i) == null) continue;
+				if(result.get(i)) added.add(schools.get(i));
+			}
+			if(result.contains(null)) {
+				// a school was only partly written, so our copy can't be trusted
+				catalog.invalidate();
+			}
+			else catalog.putAll(added);
 		
-		String uniName = u.getName();
-		for(String e : u.getEmphases()) {
-			if(!addEmphasis(uniName, e)) throw new IllegalStateException(SHOULDNT_HAPPEN);
+			return failedAsFalse(result);
 		}
-		
-		return true;
 	}
 	
 	/**
@@ -308,24 +766,26 @@ public class DatabaseController {
 	 * @author Roman Lefler
 	 * @version Mar 14, 2025
 	 */
+	@SuppressWarnings("try")
 	public boolean removeUniversity(University u) {
-		
 		if(u == null) throw new IllegalArgumentException("u cannot be null.");
-		
-		String uniName = u.getName();
-		// Since u's emphasis list can be out of sync with the database's
-		// emphases, we must rely on database's reported emphases
-		Map<String, List<String>> emphasesDict = getUniversitiesEmphases();
-		List<String> emphases = emphasesDict.get(uniName);
-		if(emphases != null) {
-			for(String k : u.getEmphases()) {
-				
-				if(!removeEmphasis(uniName, k)) throw new IllegalStateException(SHOULDNT_HAPPEN);
+		try(KeyLocks.Held held = locks.lock(schoolKey(u.getName()))) {
+			// Since u's emphasis list can be out of sync with the database's
+			// emphases, we must rely on the catalog's copy of the emphases
+			boolean deleted;
+			try {
+				deleted = delete(u.getName(), catalog.getCatalog());
 			}
-		}
+			catch(RuntimeException e) {
+				// some of the emphases may already be gone
+				catalog.invalidate();
+				throw e;
+			}
+			if(!deleted) return false;
 		
-		int result = database.university_deleteUniversity(u.getName());
-		return result > 0;
+			catalog.remove(u.getName());
+			return true;
+		}
 	}
 	
 	/**
@@ -335,47 +795,262 @@ public class DatabaseController {
 	 * @return {@code true} if successful.
 	 * @see #addNewUniversity(University)
 	 * @see #removeUniversity(University)
+	 * @see #editUniversities(Collection)
 	 * @author Roman Lefler
 	 * @version Mar 16, 2025
 	 */
+	@SuppressWarnings("try")
 	public boolean editUniversity(University u) {
+		if(u == null) throw new IllegalArgumentException("u cannot be null.");
+		try(KeyLocks.Held held = locks.lock(schoolKey(u.getName()))) {
+			Boolean result;
+			try {
+				result = update(u, catalog.getCatalog());
+			}
+			catch(RuntimeException e) {
+				// some of the emphases may already be changed
+				catalog.invalidate();
+				throw e;
+			}
+			if(result == null) return false;
 		
-		// # Emphases:
-		// Anything that is present in the database but not u
-		// was removed.
-		// Anything that is present in u but not in the database
-		// was added.
-		String uniName = u.getName();
-		University old = University.find(getAllSchools(), uniName);
-		List<String> oldE = old.getEmphases();
-		List<String> newE = u.getEmphases();
-		// Create a total set of all emphases
-		Set<String> both = new HashSet<>(oldE);
-		both.addAll(newE);
-		// Iterate through the total set of all emphases
-		for(String em : both) {
-			if(oldE.contains(em)) {
-				// In old but not new; Newly removed
-				if(!newE.contains(em)) {
-					if(!removeEmphasis(uniName, em)) throw new IllegalStateException(SHOULDNT_HAPPEN);
-				}
+			if(!result) {
+				// The emphases were already changed, so our copy can't be trusted
+				catalog.invalidate();
+				return false;
+			}
+		
+			catalog.put(u);
+			return true;
+		}
+	}
+	
+	/**
+	 * Edits many universities, which must already be in the database.
+	 * Every school's emphasis changes are worked out against one snapshot
+	 * of the catalog cache, several schools are written at a time and the
+	 * cache is updated once at the end.
+	 * @param list University information
+	 * @return Whether each university was edited, in the order of list.
+	 * @throws IllegalArgumentException if list or any of its elements
+	 *         is {@code null}
+	 */
+	@SuppressWarnings("try")
+	public List<Boolean> editUniversities(Collection<University> list) {
+		List<University> schools = batch(list);
+		try(KeyLocks.Held held = locks.lockAll(schoolKeys(schools))) {
+			ColumnarCatalog before = catalog.getCatalog();
+			boolean[] absent = new boolean[schools.size()];
+			List<Boolean> result = writeAll(schools.size(), i -> {
+				Boolean ok = update(schools.get(i), before);
+				absent[i] = ok == null;
+				return ok != null && ok;
+			});
+		
+			List<University> edited = new ArrayList<>();
+			boolean trusted = true;
+			for(int i = 0; i < schools.size(); i++) {
+				Boolean ok = result.get(i);
+				if(ok != null && ok) edited.add(schools.get(i));
+				// a failed write may have already changed the school's emphases
+				else if(!absent[i]) trusted = false;
 			}
-			// Not in old (and therefore must be in new); Newly added
+			if(trusted) catalog.putAll(edited);
+			else catalog.invalidate();
+		
+			return failedAsFalse(result);
+		}
+	}
+	
+	/**
+	 * Removes many universities (by name) from the database, several at
+	 * a time.
+	 * @param list Universities to remove (only the names are used)
+	 * @return Whether each university was removed, in the order of list.
+	 * @throws IllegalArgumentException if list or any of its elements
+	 *         is {@code null}
+	 */
+	@SuppressWarnings("try")
+	public List<Boolean> removeUniversities(Collection<University> list) {
+		List<University> schools = batch(list);
+		try(KeyLocks.Held held = locks.lockAll(schoolKeys(schools))) {
+			ColumnarCatalog before = catalog.getCatalog();
+			List<Boolean> result = writeAll(schools.size(), i -> delete(schools.get(i).getName(), before));
+		
+			if(result.contains(null)) catalog.invalidate();
 			else {
-				if(!addEmphasis(uniName, em)) throw new IllegalStateException(SHOULDNT_HAPPEN);
+				List<String> removed = new ArrayList<>();
+				for(int i = 0; i < schools.size(); i++) {
+					if(result.get(i)) removed.add(schools.get(i).getName());
+				}
+				catalog.removeAll(removed);
 			}
+		
+			return failedAsFalse(result);
 		}
+	}
+	
+	/**
+	 * Writes a new university and its emphases to the database without
+	 * touching the catalog cache.
+	 * @param u University
+	 * @return {@code true} if the university was added.
+	 * @throws IllegalStateException if an emphasis could not be added
+	 *         after the university was
+	 */
+	private boolean insert(University u) {
+		int result = database.addUniversity(u);
 		
-		// Here's the easy part
-		int result = database.university_editUniversity(
-				u.getName(), u.getState(), u.getLocation(), u.getControl(),
-				u.getNumStudents(), u.getPercentFemale(), u.getSatVerbal(),
-				u.getSatMath(), u.getExpenses(), u.getPercentFinancialAid(),
-				u.getNumApplicants(), u.getPercentAdmitted(),
-				u.getPercentEnrolled(), u.getScaleAcademics(),
-				u.getScaleSocial(), u.getScaleQualityOfLife());
+		if(result != 1) return false;
+		
+		String uniName = u.getName();
+		for(String e : u.getEmphases()) {
+			if(!addEmphasis(uniName, e)) throw new IllegalStateException(SHOULDNT_HAPPEN);
+		}
+		return true;
+	}
+	
+	/**
+	 * Deletes a university and the emphases a catalog says it has from
+	 * the database without touching the catalog cache.
+	 * @param uniName University name
+	 * @param known Catalog to read the university's emphases from
+	 * @return {@code true} if the university was deleted.
+	 * @throws IllegalStateException if an emphasis could not be removed
+	 */
+	private boolean delete(String uniName, ColumnarCatalog known) {
+		for(String k : emphasesOf(known, uniName)) {
+			if(!removeEmphasis(uniName, k)) throw new IllegalStateException(SHOULDNT_HAPPEN);
+		}
+		
+		int result = database.deleteUniversity(uniName);
+		return result > 0;
+	}
+	
+	/**
+	 * Writes a university's new attributes and emphasis changes to the
+	 * database without touching the catalog cache.
+	 * @param u University information
+	 * @param known Catalog holding the university's current state
+	 * @return {@code null} if the university is not in known (nothing was
+	 *         written), otherwise whether the edit succeeded.
+	 * @throws IllegalStateException if an emphasis could not be changed
+	 */
+	private Boolean update(University u, ColumnarCatalog known) {
+		String uniName = u.getName();
+		if(known.rowOf(uniName) < 0) return null;
+		
+		List<String> added = new ArrayList<>();
+		List<String> removed = new ArrayList<>();
+		diffEmphases(emphasesOf(known, uniName), u.getEmphases(), added, removed);
+		for(String em : removed) {
+			if(!removeEmphasis(uniName, em)) throw new IllegalStateException(SHOULDNT_HAPPEN);
+		}
+		for(String em : added) {
+			if(!addEmphasis(uniName, em)) throw new IllegalStateException(SHOULDNT_HAPPEN);
+		}
 		
+		// Here's the easy part
+		int result = database.editUniversity(u);
 		return result == 1;
 	}
 	
+	/**
+	 * Works out how to turn one emphasis list into another.
+	 * Anything that is in oldE but not newE was removed and anything
+	 * that is in newE but not oldE was added.
+	 * @param oldE Emphases in the database
+	 * @param newE Emphases wanted
+	 * @param added Receives the emphases to add
+	 * @param removed Receives the emphases to remove
+	 */
+	static void diffEmphases(Collection<String> oldE, Collection<String> newE,
+			List<String> added, List<String> removed) {
+		Set<String> oldSet = new HashSet<>(oldE);
+		Set<String> newSet = new HashSet<>(newE);
+		for(String em : oldSet) {
+			if(!newSet.contains(em)) removed.add(em);
+		}
+		for(String em : newSet) {
+			if(!oldSet.contains(em)) added.add(em);
+		}
+	}
+	
+	// a school's emphases according to a catalog; empty if it isn't there
+	private static List<String> emphasesOf(ColumnarCatalog known, String uniName) {
+		List<String> list = new ArrayList<>();
+		int row = known.rowOf(uniName);
+		if(row < 0) return list;
+		for(int code : known.emphasisCodes(row)) list.add(known.emphasisDictionary().decode(code));
+		return list;
+	}
+	
+	// the lock key of a user's row and saved schools
+	private static String userKey(String username) {
+		return "user:" + username;
+	}
+	
+	// the lock key of a school's row and emphases
+	private static String schoolKey(String name) {
+		return "school:" + name;
+	}
+	
+	private static List<String> schoolKeys(List<University> schools) {
+		List<String> keys = new ArrayList<>(schools.size());
+		for(University u : schools) keys.add(schoolKey(u.getName()));
+		return keys;
+	}
+	
+	// checks a batch argument and fixes its order
+	private static List<University> batch(Collection<University> list) {
+		if(list == null) throw new IllegalArgumentException("list cannot be null.");
+		List<University> schools = new ArrayList<>(list);
+		for(University u : schools) {
+			if(u == null) throw new IllegalArgumentException("list cannot contain null.");
+		}
+		return schools;
+	}
+	
+	/**
+	 * Runs a write for every school of a batch on {@link #ROUND_TRIPS}.
+	 * The database library opens a connection per call, so writes for
+	 * different schools don't wait on each other's round trips.
+	 * @param count Number of schools
+	 * @param write Write for the school at an index
+	 * @return Each write's result by index, or {@code null} where the write
+	 *         threw (and may have been left half done).
+	 */
+	private static List<Boolean> writeAll(int count, IntPredicate write) {
+		List<CompletableFuture<Boolean>> futures = new ArrayList<>(count);
+		for(int i = 0; i < count; i++) {
+			int index = i;
+			futures.add(CompletableFuture.supplyAsync(() -> write.test(index), ROUND_TRIPS));
+		}
+		
+		List<Boolean> result = new ArrayList<>(count);
+		for(CompletableFuture<Boolean> f : futures) {
+			try {
+				result.add(f.get());
+			}
+			catch(ExecutionException e) {
+				result.add(null);
+			}
+			catch(InterruptedException e) {
+				// give up on what hasn't run; what has run may be half done
+				Thread.currentThread().interrupt();
+				for(CompletableFuture<Boolean> g : futures) g.cancel(false);
+				while(result.size() < count) result.add(null);
+				break;
+			}
+		}
+		return result;
+	}
+	
+	private static List<Boolean> failedAsFalse(List<Boolean> result) {
+		for(int i = 0; i < result.size(); i++) {
+			if(result.get(i) == null) result.set(i, false);
+		}
+		return result;
+	}
+	
 }
\ No newline at end of file
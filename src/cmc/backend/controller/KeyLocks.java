@@ -0,0 +1,84 @@
+package cmc.backend.controller;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped locks over string keys, so writes to the same user or school
+ * run one at a time while writes to different ones run at once.
+ *
+ * Each key maps to one of a fixed number of locks by its hash, so two
+ * keys may share a lock now and then; that only costs some waiting.
+ * Several keys are always locked in stripe order, so two threads
+ * locking overlapping sets can't deadlock.
+ */
+class KeyLocks {
+
+	/**
+	 * Locks held by one thread; closing it releases them. It is used in
+	 * try-with-resources without being referenced, so methods that do so
+	 * suppress javac's "try" lint warning.
+	 */
+	static final class Held implements AutoCloseable {
+
+		private final ReentrantLock[] locks;
+
+		private Held(ReentrantLock[] locks) {
+			this.locks = locks;
+		}
+
+		@Override
+		public void close() {
+			for(int i = locks.length - 1; i >= 0; i--) locks[i].unlock();
+		}
+
+	}
+
+	private final ReentrantLock[] stripes;
+
+	/**
+	 * @param count Number of locks the keys are spread over
+	 * @throws IllegalArgumentException if count is not positive
+	 */
+	KeyLocks(int count) {
+		if(count <= 0) throw new IllegalArgumentException("count must be positive.");
+		stripes = new ReentrantLock[count];
+		for(int i = 0; i < count; i++) stripes[i] = new ReentrantLock();
+	}
+
+	/**
+	 * Locks one key.
+	 * @param key Key to lock
+	 * @return The held lock, to close when done.
+	 */
+	Held lock(String key) {
+		ReentrantLock lock = stripes[stripe(key)];
+		lock.lock();
+		return new Held(new ReentrantLock[] { lock });
+	}
+
+	/**
+	 * Locks every key of a batch.
+	 * @param keys Keys to lock
+	 * @return The held locks, to close when done.
+	 */
+	Held lockAll(Collection<String> keys) {
+		TreeSet<Integer> order = new TreeSet<>();
+		for(String key : keys) order.add(stripe(key));
+		ReentrantLock[] held = new ReentrantLock[order.size()];
+		int n = 0;
+		for(int i : order) {
+			stripes[i].lock();
+			held[n++] = stripes[i];
+		}
+		return new Held(held);
+	}
+
+	private int stripe(String key) {
+		int h = key.hashCode();
+		h ^= h >>> 16;
+		return Math.floorMod(h, stripes.length);
+	}
+
+}
@@ -0,0 +1,56 @@
+package cmc.backend.controller;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a longer listing, plus a continuation token for the next.
+ *
+ * Tokens are opaque: pass {@link #getNextToken()} back to the method that
+ * returned this page to get the page after it, or {@code null} to start
+ * from the beginning. A token stays usable after the listing changes;
+ * the next page then starts after the last item of this one, wherever
+ * it is now.
+ * @param <T> Type of the items
+ */
+public class Page<T> {
+
+	private final List<T> items;
+	private final String nextToken;
+
+	/**
+	 * Creates a page.
+	 * @param items Items on this page
+	 * @param nextToken Token for the next page, or {@code null} if this
+	 *        is the last one
+	 * @throws IllegalArgumentException if items is {@code null}
+	 */
+	public Page(List<T> items, String nextToken) {
+		if(items == null) throw new IllegalArgumentException("items cannot be null.");
+		this.items = Collections.unmodifiableList(items);
+		this.nextToken = nextToken;
+	}
+
+	/**
+	 * @return the items on this page, in listing order
+	 */
+	public List<T> getItems() {
+		return items;
+	}
+
+	/**
+	 * @return the token for the next page, or {@code null} if this is the
+	 *         last one
+	 */
+	public String getNextToken() {
+		return nextToken;
+	}
+
+	/**
+	 * @return {@code true} if there is a page after this one
+	 */
+	public boolean hasNext() {
+		return nextToken != null;
+	}
+
+}
@@ -2,6 +2,7 @@ package cmc.backend.controller;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.TreeSet;
 
 /**
  * The SearchCriteria class represents the search parameters for university searches.
@@ -425,4 +426,154 @@ public class SearchCriteria {
 
     /**
      * @param minSocialScale the minSocialScale to set
-     * */
\ No newline at end of file
+     */
+    public void setMinSocialScale(int minSocialScale) {
+        this.minSocialScale = minSocialScale;
+    }
+
+    /**
+     * @return the maxSocialScale
+     */
+    public int getMaxSocialScale() {
+        return maxSocialScale;
+    }
+
+    /**
+     * @param maxSocialScale the maxSocialScale to set
+     */
+    public void setMaxSocialScale(int maxSocialScale) {
+        this.maxSocialScale = maxSocialScale;
+    }
+
+    /**
+     * @return the minQualityOfLifeScale
+     */
+    public int getMinQualityOfLifeScale() {
+        return minQualityOfLifeScale;
+    }
+
+    /**
+     * @param minQualityOfLifeScale the minQualityOfLifeScale to set
+     */
+    public void setMinQualityOfLifeScale(int minQualityOfLifeScale) {
+        this.minQualityOfLifeScale = minQualityOfLifeScale;
+    }
+
+    /**
+     * @return the maxQualityOfLifeScale
+     */
+    public int getMaxQualityOfLifeScale() {
+        return maxQualityOfLifeScale;
+    }
+
+    /**
+     * @param maxQualityOfLifeScale the maxQualityOfLifeScale to set
+     */
+    public void setMaxQualityOfLifeScale(int maxQualityOfLifeScale) {
+        this.maxQualityOfLifeScale = maxQualityOfLifeScale;
+    }
+
+    /**
+     * @return the emphases; a matching university must have all of them
+     */
+    public List<String> getEmphases() {
+        return emphases;
+    }
+
+    /**
+     * @param emphases the emphases to set
+     */
+    public void setEmphases(List<String> emphases) {
+        this.emphases = (emphases != null) ? emphases : new ArrayList<String>();
+    }
+
+    /**
+     * Adds an emphasis that a matching university must have.
+     * 
+     * @param emphasis the emphasis to add
+     */
+    public void addEmphasis(String emphasis) {
+        this.emphases.add(emphasis);
+    }
+
+    /**
+     * Gets a canonical form of these criteria, so that searches that
+     * were set up differently but always match the same universities can
+     * be recognized as the same search. Strings are trimmed and
+     * upper-cased, blank strings count as unset, emphases are sorted
+     * with duplicates removed, and bounds left at -1 (no limit) are
+     * written the same whichever way they were set.
+     * 
+     * @return the canonical form
+     */
+    public String canonicalForm() {
+        StringBuilder key = new StringBuilder();
+        for (String s : new String[] { name, state, location, control }) {
+            append(key, normalize(s));
+        }
+
+        double[] bounds = { minStudents, maxStudents, minPercentFemale, maxPercentFemale,
+                minSatVerbal, maxSatVerbal, minSatMath, maxSatMath, minExpenses, maxExpenses,
+                minPercentFinancialAid, maxPercentFinancialAid, minApplicants, maxApplicants,
+                minPercentAdmitted, maxPercentAdmitted, minPercentEnrolled, maxPercentEnrolled,
+                minAcademicScale, maxAcademicScale, minSocialScale, maxSocialScale,
+                minQualityOfLifeScale, maxQualityOfLifeScale };
+        for (double bound : bounds) {
+            if (bound == -1) {
+                key.append('*');
+            } else {
+                // 0.0 and -0.0 are the same bound
+                key.append(bound == 0 ? 0d : bound);
+            }
+            key.append('|');
+        }
+
+        TreeSet<String> sorted = new TreeSet<>();
+        for (String emphasis : emphases) {
+            String e = normalize(emphasis);
+            if (e != null) {
+                sorted.add(e);
+            }
+        }
+        for (String e : sorted) {
+            append(key, e);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Compares the canonical forms of two criteria. As the criteria can
+     * be changed, do not change them while they are a key in a map.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SearchCriteria)) {
+            return false;
+        }
+        return canonicalForm().equals(((SearchCriteria) o).canonicalForm());
+    }
+
+    @Override
+    public int hashCode() {
+        return canonicalForm().hashCode();
+    }
+
+    // length-prefixed, so no string can run into the next one
+    private static void append(StringBuilder key, String s) {
+        if (s == null) {
+            key.append("-|");
+        } else {
+            key.append(s.length()).append(':').append(s).append('|');
+        }
+    }
+
+    private static String normalize(String s) {
+        if (s == null || s.trim().isEmpty()) {
+            return null;
+        }
+        return s.trim().toUpperCase();
+    }
+}
@@ -1,6 +1,8 @@
 package cmc.backend.controller;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import cmc.backend.entities.University;
 
@@ -10,21 +12,21 @@ import cmc.backend.entities.University;
  */
 public class UniversityController {
     
-    private DBController dbController;
+    private DatabaseController dbController;
     
     /**
-     * Constructs a new UniversityController with the default DBController.
+     * Constructs a new UniversityController with the shared DatabaseController.
      */
     public UniversityController() {
-        this.dbController = new DBController();
+        this.dbController = DatabaseController.shared();
     }
     
     /**
-     * Constructs a new UniversityController with a provided DBController.
+     * Constructs a new UniversityController with a provided DatabaseController.
      * 
      * @param dbController the database controller to use
      */
-    public UniversityController(DBController dbController) {
+    public UniversityController(DatabaseController dbController) {
         this.dbController = dbController;
     }
     
@@ -34,7 +36,29 @@ public class UniversityController {
      * @return a list of all universities
      */
     public List<University> getAllUniversities() {
-        return dbController.getAllUniversities();
+        return dbController.getAllSchools();
+    }
+    
+    /**
+     * Retrieves one page of the universities in the database.
+     * 
+     * @param token the previous page's next token, or null for the first page
+     * @param size the most universities on the page
+     * @return the page of universities
+     * @throws IllegalArgumentException if size is not positive or the token is not valid
+     */
+    public Page<University> getUniversityPage(String token, int size) {
+        return dbController.getSchoolPage(token, size);
+    }
+    
+    /**
+     * Streams all universities in the database, creating each one only
+     * when the stream reaches it.
+     * 
+     * @return a stream of all universities
+     */
+    public Stream<University> streamUniversities() {
+        return dbController.streamSchools();
     }
     
     /**
@@ -48,16 +72,53 @@ public class UniversityController {
             return null;
         }
         
-        String searchName = name.toUpperCase();
-        List<University> universities = dbController.getAllUniversities();
-        
-        for (University university : universities) {
-            if (university.getName().equals(searchName)) {
-                return university;
-            }
+        return dbController.getUniversity(name.toUpperCase());
+    }
+    
+    /**
+     * Finds the universities whose names start with the given text,
+     * e.g. for suggestions while a name is typed.
+     * 
+     * @param prefix the text the names must start with, in any case
+     * @param limit the most universities to return
+     * @return the universities, shortest names first
+     */
+    public List<University> findUniversitiesStartingWith(String prefix, int limit) {
+        if (prefix == null) {
+            return new ArrayList<>();
         }
-        
-        return null;
+        return dbController.getSchoolsStartingWith(prefix, limit);
+    }
+    
+    /**
+     * Finds the universities whose names contain the given text.
+     * 
+     * @param text the text the names must contain, in any case
+     * @param limit the most universities to return
+     * @return the universities, best matches first
+     */
+    public List<University> findUniversitiesContaining(String text, int limit) {
+        if (text == null || text.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        return dbController.getSchoolsContaining(text, limit);
+    }
+    
+    /**
+     * Finds the universities most like the given one, comparing SAT
+     * scores, expenses, admission and enrollment rates, financial aid
+     * and the three 1-5 scales.
+     * 
+     * @param name the name of the university to compare to
+     * @param k the most universities to return
+     * @return the universities, most similar first, or an empty list if
+     *         the university is not found
+     */
+    public List<University> findSimilarUniversities(String name, int k) {
+        if (name == null || name.trim().isEmpty()) {
+            return new ArrayList<>();
+        }
+        return dbController.getSimilarSchools(name.toUpperCase(), k);
     }
     
     /**
@@ -77,7 +138,7 @@ public class UniversityController {
             return false; // University with this name already exists
         }
         
-        return dbController.addUniversity(university);
+        return dbController.addNewUniversity(university);
     }
     
     /**
@@ -97,7 +158,7 @@ public class UniversityController {
             return false; // University doesn't exist
         }
         
-        return dbController.updateUniversity(university);
+        return dbController.editUniversity(university);
     }
     
     /**
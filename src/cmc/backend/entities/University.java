@@ -1,6 +1,7 @@
 package cmc.backend.entities;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -41,7 +42,35 @@ public class University {
 		ensureCaps(name);
 		this.name = name;
 	}
-	
+
+	/**
+	 * Creates a copy of another university, including its emphases.
+	 * Changes to the copy do not affect the original and vice versa.
+	 * @param other The university to copy.
+	 * @throws IllegalArgumentException if other is {@code null}
+	 */
+	public University(University other) {
+		if(other == null) throw new IllegalArgumentException("University cannot be null.");
+		// other was already validated by its setters
+		this.name = other.name;
+		this.state = other.state;
+		this.location = other.location;
+		this.control = other.control;
+		this.numStudents = other.numStudents;
+		this.numApplicants = other.numApplicants;
+		this.scaleAcademics = other.scaleAcademics;
+		this.scaleSocial = other.scaleSocial;
+		this.scaleQualityOfLife = other.scaleQualityOfLife;
+		this.percentFemale = other.percentFemale;
+		this.satVerbal = other.satVerbal;
+		this.satMath = other.satMath;
+		this.expenses = other.expenses;
+		this.percentFinancialAid = other.percentFinancialAid;
+		this.percentAdmitted = other.percentAdmitted;
+		this.percentEnrolled = other.percentEnrolled;
+		this.emphases.addAll(other.emphases);
+	}
+
 	/**
 	 * Ensures that a given value is -1 or between the given range.
 	 * @param lo Inclusive minimum
@@ -64,9 +93,26 @@ public class University {
 	 */
 	private static void ensureCaps(String s) {
 		if(s == null) throw new IllegalArgumentException("String cannot be null.");
-		else if(!s.toUpperCase().equals(s))
+		else if(!isCaps(s))
 			throw new IllegalArgumentException("'" + s + "' must be in all caps.");
 	}
+	
+	/**
+	 * Checks whether a string equals its {@link String#toUpperCase()}
+	 * without building the upper-case copy when the string is plain ASCII,
+	 * which every value loaded from the database is.
+	 * @param s Non-null string
+	 * @return {@code true} if s is all caps
+	 */
+	private static boolean isCaps(String s) {
+		for(int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if(c >= 'a' && c <= 'z') return false;
+			// case mapping outside ASCII is locale and context dependent
+			if(c > 0x7F) return s.toUpperCase().equals(s);
+		}
+		return true;
+	}
 
 	/**
 	 * @return the name
@@ -308,8 +354,12 @@ public class University {
 		return emphases.remove(e);
 	}
 	
+	/**
+	 * @return a read-only view of the emphases; change them with
+	 *         {@link #addEmphasis(String)} and {@link #removeEmphasis(String)}
+	 */
 	public List<String> getEmphases() {
-		return emphases;
+		return Collections.unmodifiableList(emphases);
 	}
 	
 	/**
@@ -0,0 +1,72 @@
+package cmc.backend.entities;
+
+import java.util.function.Supplier;
+
+/**
+ * The name and state of a university, for screens that list many
+ * universities but show little about each. The rest of the university
+ * is only loaded the first time {@link #getUniversity()} is called.
+ */
+public class UniversitySummary {
+
+	private final String name;
+	private final String state;
+
+	// null once the university is loaded
+	private Supplier<University> loader;
+	private University university;
+
+	/**
+	 * Creates a summary.
+	 * @param name University name
+	 * @param state University state
+	 * @param loader Loads the whole university when it is first needed
+	 * @throws IllegalArgumentException if name or loader is {@code null}
+	 */
+	public UniversitySummary(String name, String state, Supplier<University> loader) {
+		if(name == null) throw new IllegalArgumentException("name cannot be null.");
+		if(loader == null) throw new IllegalArgumentException("loader cannot be null.");
+		this.name = name;
+		this.state = state;
+		this.loader = loader;
+	}
+
+	/**
+	 * @return the name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the state
+	 */
+	public String getState() {
+		return state;
+	}
+
+	/**
+	 * @return {@code true} if the whole university was loaded already
+	 */
+	public synchronized boolean isLoaded() {
+		return loader == null;
+	}
+
+	/**
+	 * Gets the whole university, loading it the first time.
+	 * @return The university; every call returns the same object.
+	 */
+	public synchronized University getUniversity() {
+		if(loader != null) {
+			university = loader.get();
+			loader = null;
+		}
+		return university;
+	}
+
+	@Override
+	public String toString() {
+		return name + " | " + state;
+	}
+
+}
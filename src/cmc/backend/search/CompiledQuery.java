@@ -0,0 +1,493 @@
+package cmc.backend.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import cmc.backend.catalog.ColumnarCatalog;
+import cmc.backend.catalog.ColumnarCatalog.Category;
+import cmc.backend.catalog.ColumnarCatalog.Column;
+import cmc.backend.catalog.EmphasisIndex;
+import cmc.backend.catalog.NameIndex;
+import cmc.backend.catalog.SortedIndex;
+import cmc.backend.controller.SearchCriteria;
+import cmc.backend.entities.University;
+
+/**
+ * A {@link SearchCriteria} compiled against one {@link ColumnarCatalog}.
+ *
+ * Compiling turns every criterion that is actually set into a filter
+ * over one column; criteria left at their "no limit" value (-1 for
+ * numbers, {@code null} or empty for strings) produce no filter at all.
+ * The filters are ordered so that the one estimated to reject the most
+ * rows runs first, and the catalog is then evaluated in one pass,
+ * stopping at the first filter a row fails. Numeric ranges get an exact
+ * selectivity from the column's {@link SortedIndex}, emphases from
+ * the {@link EmphasisIndex} and the name from the {@link NameIndex};
+ * if the most selective filter has such an index and matches few
+ * enough rows, the index supplies the candidate rows and only those
+ * are evaluated.
+ *
+ * A university whose value for a filtered attribute is unknown (-1)
+ * never matches that filter. Strings are matched case-insensitively;
+ * state, location and control must match exactly and the name only
+ * has to contain the given text. A university whose state is blank
+ * matches any state, as state searches always have. A university must
+ * have every emphasis in the criteria.
+ *
+ * A large catalog can be searched on several threads with
+ * {@link #execute(ForkJoinPool, int)}, which splits the row ids into
+ * ranges aligned to {@value #CHUNK_ALIGNMENT} rows, so two threads never
+ * share a cache line of any column, scans them in parallel and joins the
+ * results in row order.
+ */
+public class CompiledQuery {
+
+	/**
+	 * How many rows are looked at to estimate a filter's selectivity.
+	 */
+	private static final int SAMPLE_SIZE = 512;
+
+	/**
+	 * An indexed filter that lets through at most this fraction of the
+	 * rows is answered from its index instead of scanning the catalog.
+	 */
+	private static final double INDEX_SELECTIVITY = 0.25;
+
+	/**
+	 * Catalogs with fewer rows than this are searched on one thread by
+	 * {@link #execute(ForkJoinPool)}.
+	 */
+	public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 14;
+
+	/**
+	 * Parallel chunks start at multiples of this many rows: a whole
+	 * number of 64-byte cache lines of every int and double column.
+	 */
+	public static final int CHUNK_ALIGNMENT = 64;
+
+	private final ColumnarCatalog catalog;
+	private final RowFilter[] filters;
+	private final boolean matchesNothing;
+	// Ascending row ids to evaluate instead of the whole catalog, or null
+	private final int[] candidates;
+
+	private CompiledQuery(ColumnarCatalog catalog, RowFilter[] filters, boolean matchesNothing,
+			int[] candidates) {
+		this.catalog = catalog;
+		this.filters = filters;
+		this.matchesNothing = matchesNothing;
+		this.candidates = candidates;
+	}
+
+	/**
+	 * Compiles search criteria against a catalog.
+	 * @param criteria What to search for
+	 * @param catalog What to search in; it must not change while the
+	 *        query is used
+	 * @return The compiled query.
+	 * @throws IllegalArgumentException if either argument is {@code null}
+	 */
+	public static CompiledQuery compile(SearchCriteria criteria, ColumnarCatalog catalog) {
+		if(criteria == null) throw new IllegalArgumentException("criteria cannot be null.");
+		if(catalog == null) throw new IllegalArgumentException("catalog cannot be null.");
+
+		List<RowFilter> filters = new ArrayList<>();
+
+		range(filters, catalog, Column.NUM_STUDENTS, criteria.getMinStudents(), criteria.getMaxStudents());
+		range(filters, catalog, Column.PERCENT_FEMALE, criteria.getMinPercentFemale(), criteria.getMaxPercentFemale());
+		range(filters, catalog, Column.SAT_VERBAL, criteria.getMinSatVerbal(), criteria.getMaxSatVerbal());
+		range(filters, catalog, Column.SAT_MATH, criteria.getMinSatMath(), criteria.getMaxSatMath());
+		range(filters, catalog, Column.EXPENSES, criteria.getMinExpenses(), criteria.getMaxExpenses());
+		range(filters, catalog, Column.PERCENT_FINANCIAL_AID,
+				criteria.getMinPercentFinancialAid(), criteria.getMaxPercentFinancialAid());
+		range(filters, catalog, Column.NUM_APPLICANTS, criteria.getMinApplicants(), criteria.getMaxApplicants());
+		range(filters, catalog, Column.PERCENT_ADMITTED,
+				criteria.getMinPercentAdmitted(), criteria.getMaxPercentAdmitted());
+		range(filters, catalog, Column.PERCENT_ENROLLED,
+				criteria.getMinPercentEnrolled(), criteria.getMaxPercentEnrolled());
+		range(filters, catalog, Column.SCALE_ACADEMICS,
+				criteria.getMinAcademicScale(), criteria.getMaxAcademicScale());
+		range(filters, catalog, Column.SCALE_SOCIAL, criteria.getMinSocialScale(), criteria.getMaxSocialScale());
+		range(filters, catalog, Column.SCALE_QUALITY_OF_LIFE,
+				criteria.getMinQualityOfLifeScale(), criteria.getMaxQualityOfLifeScale());
+
+		boolean nothing = false;
+		nothing |= !category(filters, catalog, Category.STATE, criteria.getState());
+		nothing |= !category(filters, catalog, Category.LOCATION, criteria.getLocation());
+		nothing |= !category(filters, catalog, Category.CONTROL, criteria.getControl());
+		nothing |= !emphases(filters, catalog, criteria.getEmphases());
+
+		String name = normalize(criteria.getName());
+		if(name != null) {
+			BitSet rows = catalog.nameIndex().containing(name);
+			if(rows.isEmpty()) nothing = true;
+			else filters.add(new InRows(rows));
+		}
+
+		for(RowFilter f : filters) f.selectivity = f.estimate(catalog);
+		filters.sort(Comparator.comparingDouble((RowFilter f) -> f.selectivity)
+				.thenComparingInt(f -> f.cost));
+
+		int[] candidates = null;
+		if(!nothing && !filters.isEmpty() && filters.get(0).selectivity <= INDEX_SELECTIVITY) {
+			candidates = filters.get(0).candidates(catalog);
+			if(candidates != null) filters.remove(0);
+		}
+
+		return new CompiledQuery(catalog, filters.toArray(new RowFilter[0]), nothing, candidates);
+	}
+
+	/**
+	 * @return {@code true} if a sorted index supplies the rows to evaluate
+	 */
+	public boolean usesIndex() {
+		return candidates != null;
+	}
+
+	/**
+	 * @return the number of filters that are evaluated per row
+	 */
+	public int filterCount() {
+		return filters.length;
+	}
+
+	/**
+	 * @return the catalog this query was compiled against
+	 */
+	public ColumnarCatalog getCatalog() {
+		return catalog;
+	}
+
+	/**
+	 * Checks a single row.
+	 * @param row Row id
+	 * @return {@code true} if the row is live and passes every filter.
+	 */
+	public boolean matches(int row) {
+		if(matchesNothing || !catalog.isLive(row)) return false;
+		if(candidates != null && Arrays.binarySearch(candidates, row) < 0) return false;
+		return passes(row);
+	}
+
+	private boolean passes(int row) {
+		for(RowFilter f : filters) {
+			if(!f.test(row)) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Finds every matching row in a range of row ids.
+	 * @param from First row id (inclusive)
+	 * @param to Last row id (exclusive)
+	 * @return Matching row ids in ascending order.
+	 */
+	public int[] scan(int from, int to) {
+		if(matchesNothing || from >= to) return new int[0];
+
+		int[] out = new int[Math.min(to - from, 64)];
+		int n = 0;
+		if(candidates != null) {
+			int i = Arrays.binarySearch(candidates, from);
+			if(i < 0) i = -i - 1;
+			for(; i < candidates.length && candidates[i] < to; i++) {
+				int row = candidates[i];
+				if(!passes(row)) continue;
+				if(n == out.length) out = Arrays.copyOf(out, out.length * 2);
+				out[n++] = row;
+			}
+		}
+		else {
+			for(int row = from; row < to; row++) {
+				if(!catalog.isLive(row) || !passes(row)) continue;
+				if(n == out.length) out = Arrays.copyOf(out, out.length * 2);
+				out[n++] = row;
+			}
+		}
+		return Arrays.copyOf(out, n);
+	}
+
+	/**
+	 * Finds every matching row in the catalog.
+	 * @return Matching row ids in ascending order.
+	 */
+	public int[] execute() {
+		return scan(0, catalog.size());
+	}
+
+	/**
+	 * Finds every matching row in the catalog on a fork/join pool, if
+	 * the catalog has at least {@link #DEFAULT_PARALLEL_THRESHOLD} rows.
+	 * @param pool Pool to run on
+	 * @return Matching row ids in ascending order, the same as
+	 *         {@link #execute()}.
+	 */
+	public int[] execute(ForkJoinPool pool) {
+		return execute(pool, DEFAULT_PARALLEL_THRESHOLD);
+	}
+
+	/**
+	 * Finds every matching row in the catalog on a fork/join pool.
+	 * @param pool Pool to run on
+	 * @param threshold Catalogs with fewer rows are searched on the
+	 *        calling thread
+	 * @return Matching row ids in ascending order, the same as
+	 *         {@link #execute()}.
+	 * @throws IllegalArgumentException if pool is {@code null}
+	 */
+	public int[] execute(ForkJoinPool pool, int threshold) {
+		if(pool == null) throw new IllegalArgumentException("pool cannot be null.");
+		int size = catalog.size();
+		if(matchesNothing || size < threshold || pool.getParallelism() < 2) return execute();
+
+		// a few chunks per thread, so a thread that finishes early can
+		// steal from one that hit a dense region
+		int leaf = align(Math.max(CHUNK_ALIGNMENT, size / (pool.getParallelism() * 4)));
+		return pool.invoke(new ScanTask(0, size, leaf));
+	}
+
+	private static int align(int row) {
+		return row / CHUNK_ALIGNMENT * CHUNK_ALIGNMENT;
+	}
+
+	private final class ScanTask extends RecursiveTask<int[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int from;
+		private final int to;
+		private final int leaf;
+
+		ScanTask(int from, int to, int leaf) {
+			this.from = from;
+			this.to = to;
+			this.leaf = leaf;
+		}
+
+		@Override
+		protected int[] compute() {
+			int mid = align(from + (to - from) / 2);
+			if(to - from <= leaf || mid <= from) return scan(from, to);
+
+			ScanTask left = new ScanTask(from, mid, leaf);
+			left.fork();
+			int[] high = new ScanTask(mid, to, leaf).compute();
+			int[] low = left.join();
+
+			int[] out = Arrays.copyOf(low, low.length + high.length);
+			System.arraycopy(high, 0, out, low.length, high.length);
+			return out;
+		}
+	}
+
+	/**
+	 * Finds every matching university in the catalog.
+	 * @return New university objects for the matching rows, in catalog order.
+	 */
+	public List<University> results() {
+		return catalog.materialize(execute());
+	}
+
+	private static void range(List<RowFilter> filters, ColumnarCatalog catalog,
+			Column c, double min, double max) {
+		if(min == -1 && max == -1) return;
+
+		double lo = min == -1 ? Double.NEGATIVE_INFINITY : min;
+		double hi = max == -1 ? Double.POSITIVE_INFINITY : max;
+		if(c.isInteger()) filters.add(new IntRange(c, catalog.intColumn(c), lo, hi));
+		else filters.add(new DoubleRange(c, catalog.doubleColumn(c), lo, hi));
+	}
+
+	/**
+	 * @return {@code false} if the value can't match any row
+	 */
+	private static boolean category(List<RowFilter> filters, ColumnarCatalog catalog,
+			Category c, String value) {
+		value = normalize(value);
+		if(value == null) return true;
+
+		int code = catalog.dictionary(c).code(value);
+		int blank = c == Category.STATE ? catalog.dictionary(c).code("") : -1;
+		if(code < 0 && blank < 0) return false;
+		filters.add(new CodeEquals(catalog.codes(c), code, blank));
+		return true;
+	}
+
+	/**
+	 * @return {@code false} if the emphases can't match any row
+	 */
+	private static boolean emphases(List<RowFilter> filters, ColumnarCatalog catalog, List<String> emphases) {
+		List<String> required = new ArrayList<>();
+		if(emphases != null) {
+			for(String e : emphases) {
+				e = normalize(e);
+				if(e != null) required.add(e);
+			}
+		}
+		if(required.isEmpty()) return true;
+
+		BitSet rows = catalog.emphasisIndex().allOf(required);
+		if(rows.isEmpty()) return false;
+		filters.add(new InRows(rows));
+		return true;
+	}
+
+	private static String normalize(String s) {
+		if(s == null) return null;
+		s = s.trim();
+		return s.isEmpty() ? null : s.toUpperCase();
+	}
+
+	/**
+	 * One compiled criterion.
+	 */
+	private static abstract class RowFilter {
+
+		// Fraction of rows expected to pass
+		double selectivity = 1d;
+		// Rough relative cost of one test, used to break ties
+		final int cost;
+
+		RowFilter(int cost) {
+			this.cost = cost;
+		}
+
+		abstract boolean test(int row);
+
+		/**
+		 * Estimates the fraction of live rows this filter lets through
+		 * by testing evenly spaced sample rows.
+		 */
+		double estimate(ColumnarCatalog catalog) {
+			int size = catalog.size();
+			int step = Math.max(1, size / SAMPLE_SIZE);
+			int seen = 0;
+			int passed = 0;
+			for(int row = 0; row < size; row += step) {
+				if(!catalog.isLive(row)) continue;
+				seen++;
+				if(test(row)) passed++;
+			}
+			return seen == 0 ? 1d : (double)passed / seen;
+		}
+
+		/**
+		 * @return every row that passes, in ascending order, or
+		 *         {@code null} if there's no index to get them from
+		 */
+		int[] candidates(ColumnarCatalog catalog) {
+			return null;
+		}
+	}
+
+	private static abstract class RangeFilter extends RowFilter {
+
+		final Column column;
+		final double lo;
+		final double hi;
+
+		RangeFilter(Column column, double lo, double hi) {
+			super(1);
+			this.column = column;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		@Override
+		double estimate(ColumnarCatalog catalog) {
+			SortedIndex index = catalog.index(column);
+			return (double)index.count(lo, hi) / Math.max(1, catalog.liveCount());
+		}
+
+		@Override
+		int[] candidates(ColumnarCatalog catalog) {
+			int[] rows = catalog.index(column).range(lo, hi);
+			Arrays.sort(rows);
+			return rows;
+		}
+	}
+
+	private static final class IntRange extends RangeFilter {
+
+		private final int[] values;
+
+		IntRange(Column column, int[] values, double lo, double hi) {
+			super(column, lo, hi);
+			this.values = values;
+		}
+
+		@Override
+		boolean test(int row) {
+			int v = values[row];
+			return v != -1 && v >= lo && v <= hi;
+		}
+	}
+
+	private static final class DoubleRange extends RangeFilter {
+
+		private final double[] values;
+
+		DoubleRange(Column column, double[] values, double lo, double hi) {
+			super(column, lo, hi);
+			this.values = values;
+		}
+
+		@Override
+		boolean test(int row) {
+			double v = values[row];
+			return v != -1 && v >= lo && v <= hi;
+		}
+	}
+
+	private static final class CodeEquals extends RowFilter {
+
+		private final int[] codes;
+		private final int code;
+		// also matched, or -1 for none
+		private final int or;
+
+		CodeEquals(int[] codes, int code, int or) {
+			super(1);
+			this.codes = codes;
+			this.code = code;
+			this.or = or;
+		}
+
+		@Override
+		boolean test(int row) {
+			int c = codes[row];
+			return c == code || c == or;
+		}
+	}
+
+	private static final class InRows extends RowFilter {
+
+		private final BitSet rows;
+
+		InRows(BitSet rows) {
+			super(1);
+			this.rows = rows;
+		}
+
+		@Override
+		boolean test(int row) {
+			return rows.get(row);
+		}
+
+		@Override
+		double estimate(ColumnarCatalog catalog) {
+			return (double)rows.cardinality() / Math.max(1, catalog.liveCount());
+		}
+
+		@Override
+		int[] candidates(ColumnarCatalog catalog) {
+			return rows.stream().toArray();
+		}
+	}
+
+}
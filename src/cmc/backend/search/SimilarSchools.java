@@ -0,0 +1,242 @@
+package cmc.backend.search;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import cmc.backend.catalog.ColumnarCatalog;
+import cmc.backend.catalog.ColumnarCatalog.Column;
+
+/**
+ * Finds the universities of a {@link ColumnarCatalog} most like a given
+ * one, by distance between their numeric attributes.
+ *
+ * Building one turns the chosen columns into a dense row-major
+ * {@code float} matrix. Each column is standardized (minus its mean,
+ * divided by its standard deviation) so that expenses in dollars don't
+ * drown out a 1-5 scale, and then multiplied by the square root of its
+ * weight, so the weighted distance between two schools is just the plain
+ * squared Euclidean distance between their rows. An unknown value (-1)
+ * becomes the column's mean, which adds nothing to any distance.
+ *
+ * A query is one pass over the matrix that keeps the best K rows seen so
+ * far in a bounded max-heap, so it costs O(n log K) rather than a sort of
+ * the whole catalog. The matrix is a snapshot: it does not follow later
+ * writes to the catalog.
+ */
+public class SimilarSchools {
+
+	/**
+	 * The attributes compared by default, all weighted equally.
+	 */
+	public static final Map<Column, Double> DEFAULT_WEIGHTS;
+
+	static {
+		Map<Column, Double> w = new EnumMap<>(Column.class);
+		for(Column c : new Column[] { Column.SAT_VERBAL, Column.SAT_MATH, Column.EXPENSES,
+				Column.PERCENT_FINANCIAL_AID, Column.PERCENT_ADMITTED, Column.PERCENT_ENROLLED,
+				Column.SCALE_ACADEMICS, Column.SCALE_SOCIAL, Column.SCALE_QUALITY_OF_LIFE }) {
+			w.put(c, 1d);
+		}
+		DEFAULT_WEIGHTS = Collections.unmodifiableMap(w);
+	}
+
+	private final ColumnarCatalog catalog;
+	// Features per row
+	private final int dims;
+	// Row r's features are features[r * dims .. (r + 1) * dims)
+	private final float[] features;
+	private final boolean[] live;
+
+	private SimilarSchools(ColumnarCatalog catalog, int dims, float[] features, boolean[] live) {
+		this.catalog = catalog;
+		this.dims = dims;
+		this.features = features;
+		this.live = live;
+	}
+
+	/**
+	 * Builds the feature matrix with the default weights.
+	 * @param catalog Catalog to compare schools in
+	 * @return The recommender.
+	 * @throws IllegalArgumentException if catalog is {@code null}
+	 */
+	public static SimilarSchools build(ColumnarCatalog catalog) {
+		return build(catalog, DEFAULT_WEIGHTS);
+	}
+
+	/**
+	 * Builds the feature matrix.
+	 * @param catalog Catalog to compare schools in
+	 * @param weights How much each compared column counts; columns that
+	 *        are missing or weighted zero are not compared
+	 * @return The recommender.
+	 * @throws IllegalArgumentException if either argument is {@code null}
+	 *         or a weight is negative
+	 */
+	public static SimilarSchools build(ColumnarCatalog catalog, Map<Column, Double> weights) {
+		if(catalog == null) throw new IllegalArgumentException("catalog cannot be null.");
+		if(weights == null) throw new IllegalArgumentException("weights cannot be null.");
+
+		int n = catalog.size();
+		boolean[] live = new boolean[n];
+		for(int row = 0; row < n; row++) live[row] = catalog.isLive(row);
+
+		int dims = 0;
+		for(Double w : weights.values()) {
+			if(w == null || w < 0) throw new IllegalArgumentException("weights cannot be negative.");
+			if(w > 0) dims++;
+		}
+
+		float[] features = new float[n * dims];
+		int d = 0;
+		for(Column c : Column.values()) {
+			Double w = weights.get(c);
+			if(w == null || w == 0) continue;
+			fill(features, dims, d++, values(catalog, c), live, Math.sqrt(w));
+		}
+		return new SimilarSchools(catalog, dims, features, live);
+	}
+
+	private static double[] values(ColumnarCatalog catalog, Column c) {
+		int n = catalog.size();
+		double[] values = new double[n];
+		if(c.isInteger()) {
+			int[] column = catalog.intColumn(c);
+			for(int row = 0; row < n; row++) values[row] = column[row];
+		}
+		else {
+			System.arraycopy(catalog.doubleColumn(c), 0, values, 0, n);
+		}
+		return values;
+	}
+
+	// standardizes one column into feature d of every row
+	private static void fill(float[] features, int dims, int d, double[] values, boolean[] live, double scale) {
+		double sum = 0, sumSquares = 0;
+		int known = 0;
+		for(int row = 0; row < values.length; row++) {
+			if(!live[row] || values[row] == -1) continue;
+			sum += values[row];
+			sumSquares += values[row] * values[row];
+			known++;
+		}
+		double mean = known == 0 ? 0 : sum / known;
+		double variance = known == 0 ? 0 : sumSquares / known - mean * mean;
+		// a column with a single value can't tell schools apart
+		double factor = variance <= 1e-12 ? 0 : scale / Math.sqrt(variance);
+
+		for(int row = 0; row < values.length; row++) {
+			double v = values[row];
+			features[row * dims + d] = v == -1 ? 0f : (float)((v - mean) * factor);
+		}
+	}
+
+	/**
+	 * @return the catalog this was built from
+	 */
+	public ColumnarCatalog getCatalog() {
+		return catalog;
+	}
+
+	/**
+	 * Finds the schools most like a school.
+	 * @param row Row id of the school to compare to
+	 * @param k Most schools to return
+	 * @return Row ids of the closest live schools other than the given
+	 *         one, closest first.
+	 * @throws IllegalArgumentException if row is not a live row
+	 */
+	public int[] nearest(int row, int k) {
+		if(row < 0 || row >= live.length || !live[row]) {
+			throw new IllegalArgumentException("row " + row + " is not in the catalog.");
+		}
+		k = Math.min(k, live.length - 1);
+		if(k <= 0) return new int[0];
+
+		final float[] f = features;
+		final int dims = this.dims;
+		final int base = row * dims;
+
+		// max-heap on distance, so the worst of the best K is at the top
+		double[] heapDistance = new double[k];
+		int[] heapRow = new int[k];
+		int size = 0;
+
+		for(int other = 0, offset = 0; other < live.length; other++, offset += dims) {
+			if(!live[other] || other == row) continue;
+			double distance = 0;
+			for(int i = 0; i < dims; i++) {
+				float diff = f[offset + i] - f[base + i];
+				distance += diff * diff;
+			}
+			if(size < k) {
+				heapDistance[size] = distance;
+				heapRow[size] = other;
+				siftUp(heapDistance, heapRow, size++);
+			}
+			else if(distance < heapDistance[0]) {
+				heapDistance[0] = distance;
+				heapRow[0] = other;
+				siftDown(heapDistance, heapRow, size);
+			}
+		}
+
+		// popping the max repeatedly fills the result from the back
+		int[] out = new int[size];
+		for(int i = size - 1; i >= 0; i--) {
+			out[i] = heapRow[0];
+			heapDistance[0] = heapDistance[i];
+			heapRow[0] = heapRow[i];
+			siftDown(heapDistance, heapRow, i);
+		}
+		return out;
+	}
+
+	/**
+	 * @param a Row id
+	 * @param b Row id
+	 * @return the weighted distance between two rows
+	 */
+	public double distance(int a, int b) {
+		double distance = 0;
+		for(int i = 0; i < dims; i++) {
+			float diff = features[a * dims + i] - features[b * dims + i];
+			distance += diff * diff;
+		}
+		return Math.sqrt(distance);
+	}
+
+	private static void siftUp(double[] distance, int[] rows, int i) {
+		while(i > 0) {
+			int parent = (i - 1) / 2;
+			if(distance[parent] >= distance[i]) return;
+			swap(distance, rows, parent, i);
+			i = parent;
+		}
+	}
+
+	private static void siftDown(double[] distance, int[] rows, int size) {
+		int i = 0;
+		while(true) {
+			int largest = i;
+			int left = 2 * i + 1;
+			int right = left + 1;
+			if(left < size && distance[left] > distance[largest]) largest = left;
+			if(right < size && distance[right] > distance[largest]) largest = right;
+			if(largest == i) return;
+			swap(distance, rows, largest, i);
+			i = largest;
+		}
+	}
+
+	private static void swap(double[] distance, int[] rows, int a, int b) {
+		double d = distance[a];
+		distance[a] = distance[b];
+		distance[b] = d;
+		int r = rows[a];
+		rows[a] = rows[b];
+		rows[b] = r;
+	}
+
+}
@@ -0,0 +1,129 @@
+package cmc.backend.session;
+
+import java.util.List;
+
+import cmc.CMCException;
+import cmc.backend.SystemController;
+import cmc.backend.User;
+import cmc.backend.controller.Page;
+import cmc.backend.controller.SearchCriteria;
+import cmc.backend.entities.University;
+import cmc.backend.entities.UniversitySummary;
+
+/**
+ * One logged-in user of a {@link SessionManager}. Everything a session
+ * does goes through the controller shared by every session, on behalf
+ * of its own user, so sessions never see each other's state.
+ *
+ * A session is meant to be used by one thread at a time (the one
+ * serving its user), but {@link #getLastUsed()} may be read by any.
+ */
+public class Session {
+
+	private final String id;
+	private final User user;
+	private final SystemController system;
+	private volatile long lastUsed;
+
+	Session(String id, User user, SystemController system) {
+		this.id = id;
+		this.user = user;
+		this.system = system;
+		this.lastUsed = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return the id that finds this session again with
+	 *         {@link SessionManager#get(String)}
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * @return the logged-in user
+	 */
+	public User getUser() {
+		return user;
+	}
+
+	/**
+	 * @return when this session was last used, in milliseconds since the
+	 *         epoch
+	 */
+	public long getLastUsed() {
+		return lastUsed;
+	}
+
+	void touch() {
+		lastUsed = System.currentTimeMillis();
+	}
+
+	/**
+	 * Searches for schools.
+	 * @param criteria Search criteria; unset criteria match everything
+	 * @param token Token from the previous page, or {@code null} for the
+	 *        first page
+	 * @param size Most schools on the page
+	 * @return One page of the matching schools.
+	 * @throws IllegalArgumentException if criteria is {@code null}, size
+	 *         is not positive or the token is not valid
+	 */
+	public Page<UniversitySummary> search(SearchCriteria criteria, String token, int size) {
+		return system.searchSummaries(criteria, token, size);
+	}
+
+	/**
+	 * Describes one school.
+	 * @param schoolName Exact name of the school
+	 * @return Every attribute of the school, one per line.
+	 */
+	public String viewSchool(String schoolName) {
+		return system.viewSchool(schoolName);
+	}
+
+	/**
+	 * Gets one school.
+	 * @param schoolName Exact name of the school
+	 * @return A copy of the school, or {@code null} if there is none.
+	 */
+	public University getSchool(String schoolName) {
+		return system.getUniversity(schoolName);
+	}
+
+	/**
+	 * @return the names of this user's saved schools
+	 */
+	public List<String> getSavedSchools() {
+		return system.getSavedSchools(user.getUsername());
+	}
+
+	/**
+	 * Saves a school to this user's list.
+	 * @param schoolName Name of the school
+	 * @return {@code false} if it was saved already
+	 * @throws CMCException if the database could not save it
+	 */
+	public boolean saveSchool(String schoolName) throws CMCException {
+		return system.saveSchool(user.getUsername(), schoolName);
+	}
+
+	/**
+	 * Gets one page of the users. This is for admins only.
+	 * @param token Token from the previous page, or {@code null} for the
+	 *        first page
+	 * @param size Most users on the page
+	 * @return Each user's first name, last name, username, password, type
+	 *         and activation status.
+	 * @throws IllegalStateException if the user is not an admin
+	 */
+	public Page<String[]> getUserPage(String token, int size) {
+		requireAdmin();
+		return system.getUserPage(token, size);
+	}
+
+	private void requireAdmin() {
+		if(!user.isAdmin()) throw new IllegalStateException("Only admins can do that.");
+	}
+
+}
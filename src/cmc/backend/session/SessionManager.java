@@ -0,0 +1,149 @@
+package cmc.backend.session;
+
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+import cmc.CMCException;
+import cmc.backend.SystemController;
+import cmc.backend.User;
+
+/**
+ * Keeps track of every logged-in user of one process, so many users can
+ * be served at once by a single {@link SystemController} instead of a
+ * process each.
+ *
+ * Logging in creates a {@link Session} under a random id that the front
+ * end hands back with every request. Sessions are kept in a concurrent
+ * map, so logging in, finding and logging out sessions never blocks
+ * other sessions, and all of them share the controller's caches.
+ * A session unused for longer than the idle timeout is dropped by
+ * {@link #get(String)} and {@link #expireIdle()}, which logging in also
+ * runs whenever the number of sessions has doubled since it last ran,
+ * so abandoned sessions can't pile up without bound.
+ */
+public class SessionManager {
+
+	/**
+	 * The default idle timeout, thirty minutes.
+	 */
+	public static final long DEFAULT_IDLE_MILLIS = 30 * 60 * 1000L;
+
+	private static final int MIN_SWEEP = 64;
+
+	private final SystemController system;
+	private final long idleMillis;
+	private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+	private final SecureRandom random = new SecureRandom();
+	// session count at which login next sweeps out idle sessions
+	private volatile int sweepAt = MIN_SWEEP;
+
+	/**
+	 * Creates a manager with the default idle timeout.
+	 * @param system Controller every session uses
+	 * @throws IllegalArgumentException if system is {@code null}
+	 */
+	public SessionManager(SystemController system) {
+		this(system, DEFAULT_IDLE_MILLIS);
+	}
+
+	/**
+	 * Creates a manager.
+	 * @param system Controller every session uses
+	 * @param idleMillis How long a session may go unused before it is
+	 *        dropped; a negative value keeps sessions until logout
+	 * @throws IllegalArgumentException if system is {@code null}
+	 */
+	public SessionManager(SystemController system, long idleMillis) {
+		if(system == null) throw new IllegalArgumentException("system cannot be null.");
+		this.system = system;
+		this.idleMillis = idleMillis;
+	}
+
+	/**
+	 * Logs a user in.
+	 * @param username Username
+	 * @param password Password
+	 * @return The new session, or {@code null} if the username and
+	 *         password don't match an activated user.
+	 * @throws CMCException if the user's record is malformed
+	 */
+	public Session login(String username, String password) throws CMCException {
+		User user = system.login(username, password);
+		if(user == null) return null;
+
+		byte[] bytes = new byte[16];
+		random.nextBytes(bytes);
+		StringBuilder id = new StringBuilder(32);
+		for(byte b : bytes) id.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+
+		Session session = new Session(id.toString(), user, system);
+		sessions.put(session.getId(), session);
+		if(sessions.size() >= sweepAt) {
+			expireIdle();
+			sweepAt = Math.max(MIN_SWEEP, 2 * sessions.size());
+		}
+		return session;
+	}
+
+	/**
+	 * Finds a session and marks it used.
+	 * @param id Session id
+	 * @return The session, or {@code null} if there is none with that id
+	 *         or it was idle for too long.
+	 */
+	public Session get(String id) {
+		Session session = id == null ? null : sessions.get(id);
+		if(session == null) return null;
+		if(expired(session, System.currentTimeMillis())) {
+			sessions.remove(id, session);
+			return null;
+		}
+		session.touch();
+		return session;
+	}
+
+	/**
+	 * Logs a session out.
+	 * @param id Session id
+	 * @return {@code true} if there was such a session
+	 */
+	public boolean logout(String id) {
+		return id != null && sessions.remove(id) != null;
+	}
+
+	/**
+	 * Drops every session that was idle for too long.
+	 * @return The number of sessions dropped.
+	 */
+	public int expireIdle() {
+		long now = System.currentTimeMillis();
+		int dropped = 0;
+		for(Iterator<Session> it = sessions.values().iterator(); it.hasNext(); ) {
+			if(expired(it.next(), now)) {
+				it.remove();
+				dropped++;
+			}
+		}
+		return dropped;
+	}
+
+	/**
+	 * @return the number of sessions, including idle ones not dropped yet
+	 */
+	public int size() {
+		return sessions.size();
+	}
+
+	/**
+	 * @return the controller every session uses
+	 */
+	public SystemController getSystemController() {
+		return system;
+	}
+
+	private boolean expired(Session session, long now) {
+		return idleMillis >= 0 && now - session.getLastUsed() > idleMillis;
+	}
+
+}
@@ -0,0 +1,142 @@
+package cmc.backend.storage;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caps how many calls to the database run at once, so however many
+ * threads or controllers share a storage the server never sees more
+ * than a fixed number of requests (and connections) from this process.
+ *
+ * This is not a connection pool. {@code UniversityDBLibrary} opens a
+ * new connection for every call, and nothing here changes that; it only
+ * makes extra calls wait their turn. A call that finds every slot taken
+ * waits up to the timeout and then fails, instead of queueing forever
+ * behind a stuck database. How long calls wait, and how many time out,
+ * is counted for tuning the limit.
+ */
+public class CallLimiter {
+
+	/**
+	 * The default most calls at once, which matches how many schools a
+	 * batch write sends at once.
+	 */
+	public static final int DEFAULT_MAX_CALLS = 8;
+
+	/**
+	 * The default longest a call waits for its turn, ten seconds.
+	 */
+	public static final long DEFAULT_TIMEOUT_MILLIS = 10_000;
+
+	private final int maxCalls;
+	private final long timeoutMillis;
+
+	// one permit per call that may run
+	private final Semaphore permits;
+
+	private final AtomicLong calls = new AtomicLong();
+	private final AtomicLong timeouts = new AtomicLong();
+	private final AtomicLong waitNanos = new AtomicLong();
+	private final AtomicLong maxWaitNanos = new AtomicLong();
+
+	/**
+	 * Creates a limiter with the default limit and timeout.
+	 */
+	public CallLimiter() {
+		this(DEFAULT_MAX_CALLS, DEFAULT_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * Creates a limiter.
+	 * @param maxCalls Most calls at once
+	 * @param timeoutMillis Longest a call waits for its turn
+	 * @throws IllegalArgumentException if maxCalls is not positive or
+	 *         timeoutMillis is negative
+	 */
+	public CallLimiter(int maxCalls, long timeoutMillis) {
+		if(maxCalls <= 0) throw new IllegalArgumentException("maxCalls must be positive.");
+		if(timeoutMillis < 0) throw new IllegalArgumentException("timeoutMillis cannot be negative.");
+		this.maxCalls = maxCalls;
+		this.timeoutMillis = timeoutMillis;
+		this.permits = new Semaphore(maxCalls, true);
+	}
+
+	/**
+	 * Runs a call once fewer than the maximum are running.
+	 * @param call The call
+	 * @return What call returned.
+	 * @throws IllegalStateException if no slot was free within the
+	 *         timeout, or the thread was interrupted while waiting
+	 */
+	public <T> T call(Supplier<T> call) {
+		long start = System.nanoTime();
+		boolean acquired;
+		try {
+			acquired = permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting to call the database.");
+		}
+		long waited = System.nanoTime() - start;
+		waitNanos.addAndGet(waited);
+		maxWaitNanos.accumulateAndGet(waited, Math::max);
+		if(!acquired) {
+			timeouts.incrementAndGet();
+			throw new IllegalStateException("The database was busy for " + timeoutMillis + " ms.");
+		}
+		calls.incrementAndGet();
+		try {
+			return call.get();
+		}
+		finally {
+			permits.release();
+		}
+	}
+
+	/**
+	 * @return the most calls at once
+	 */
+	public int getMaxCalls() {
+		return maxCalls;
+	}
+
+	/**
+	 * @return the number of calls running right now
+	 */
+	public int getInFlight() {
+		return maxCalls - permits.availablePermits();
+	}
+
+	/**
+	 * @return the number of calls that got to run
+	 */
+	public long getCalls() {
+		return calls.get();
+	}
+
+	/**
+	 * @return the number of calls that gave up waiting
+	 */
+	public long getTimeouts() {
+		return timeouts.get();
+	}
+
+	/**
+	 * @return the total time calls spent waiting for their turn, in
+	 *         nanoseconds
+	 */
+	public long getWaitNanos() {
+		return waitNanos.get();
+	}
+
+	/**
+	 * @return the longest a single call waited, in nanoseconds
+	 */
+	public long getMaxWaitNanos() {
+		return maxWaitNanos.get();
+	}
+
+}
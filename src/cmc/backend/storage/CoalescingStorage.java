@@ -0,0 +1,167 @@
+package cmc.backend.storage;
+
+import java.util.Map;
+
+import cmc.backend.entities.University;
+
+/**
+ * Wraps another storage so that concurrent reads of the same whole table
+ * share one call to it, through a {@link SingleFlight} per storage.
+ *
+ * Every cache over a storage loads a whole table at a time, and many
+ * controllers or caches may miss at once, e.g. right after a restart.
+ * Without this, each of them would download the same table. Each thread
+ * that shares another's read gets its own copy of the rows, as
+ * {@link Storage} promises. A write makes later reads of the tables it
+ * changed start a new call, so a read that starts after a write returns
+ * always sees it. Writes and everything else go straight through.
+ */
+public class CoalescingStorage implements Storage {
+
+	/**
+	 * The tables whose reads are shared.
+	 */
+	public enum Table {
+		USERS, SAVED_SCHOOLS, UNIVERSITIES, EMPHASES, NAMES_WITH_EMPHASES
+	}
+
+	private final Storage storage;
+	private final SingleFlight<Table, String[][]> reads = new SingleFlight<>(CoalescingStorage::copy);
+
+	/**
+	 * @param storage Storage to read and write
+	 * @throws IllegalArgumentException if storage is {@code null}
+	 */
+	public CoalescingStorage(Storage storage) {
+		if(storage == null) throw new IllegalArgumentException("storage cannot be null.");
+		this.storage = storage;
+	}
+
+	/**
+	 * @return the storage this one wraps
+	 */
+	public Storage getStorage() {
+		return storage;
+	}
+
+	/**
+	 * @return the number of threads reading or waiting for each table
+	 *         being read right now
+	 */
+	public Map<Table, Integer> getInFlight() {
+		return reads.getInFlight();
+	}
+
+	/**
+	 * @return the single-flight group the table reads go through, e.g. to
+	 *         read its counters
+	 */
+	public SingleFlight<Table, String[][]> getReads() {
+		return reads;
+	}
+
+	private static String[][] copy(String[][] rows) {
+		String[][] result = new String[rows.length][];
+		for(int i = 0; i < rows.length; i++) result[i] = rows[i].clone();
+		return result;
+	}
+
+	@Override
+	public String[][] getUsers() {
+		return reads.load(Table.USERS, storage::getUsers);
+	}
+
+	@Override
+	public int addUser(String firstName, String lastName, String username, String password, char type) {
+		int result = storage.addUser(firstName, lastName, username, password, type);
+		reads.forget(Table.USERS);
+		return result;
+	}
+
+	@Override
+	public int editUser(String username, String firstName, String lastName, String password,
+			char type, char activated) {
+		int result = storage.editUser(username, firstName, lastName, password, type, activated);
+		reads.forget(Table.USERS);
+		return result;
+	}
+
+	@Override
+	public int deleteUser(String username) {
+		int result = storage.deleteUser(username);
+		reads.forget(Table.USERS);
+		return result;
+	}
+
+	@Override
+	public String[][] getSavedSchools() {
+		return reads.load(Table.SAVED_SCHOOLS, storage::getSavedSchools);
+	}
+
+	@Override
+	public int saveSchool(String username, String school) {
+		int result = storage.saveSchool(username, school);
+		reads.forget(Table.SAVED_SCHOOLS);
+		return result;
+	}
+
+	@Override
+	public int removeSchool(String username, String school) {
+		int result = storage.removeSchool(username, school);
+		reads.forget(Table.SAVED_SCHOOLS);
+		return result;
+	}
+
+	@Override
+	public String[][] getUniversities() {
+		return reads.load(Table.UNIVERSITIES, storage::getUniversities);
+	}
+
+	@Override
+	public String[][] getEmphases() {
+		return reads.load(Table.EMPHASES, storage::getEmphases);
+	}
+
+	@Override
+	public String[][] getNamesWithEmphases() {
+		return reads.load(Table.NAMES_WITH_EMPHASES, storage::getNamesWithEmphases);
+	}
+
+	@Override
+	public int addUniversity(University u) {
+		int result = storage.addUniversity(u);
+		reads.forget(Table.UNIVERSITIES);
+		return result;
+	}
+
+	@Override
+	public int editUniversity(University u) {
+		int result = storage.editUniversity(u);
+		reads.forget(Table.UNIVERSITIES);
+		return result;
+	}
+
+	@Override
+	public int deleteUniversity(String name) {
+		int result = storage.deleteUniversity(name);
+		reads.forget(Table.UNIVERSITIES);
+		return result;
+	}
+
+	@Override
+	public int addEmphasis(String name, String emphasis) {
+		int result = storage.addEmphasis(name, emphasis);
+		reads.forget(Table.EMPHASES);
+		reads.forget(Table.NAMES_WITH_EMPHASES);
+		return result;
+	}
+
+	@Override
+	public int removeEmphasis(String name, String emphasis) {
+		int result = storage.removeEmphasis(name, emphasis);
+		reads.forget(Table.EMPHASES);
+		reads.forget(Table.NAMES_WITH_EMPHASES);
+		return result;
+	}
+
+}
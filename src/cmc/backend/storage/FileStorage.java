@@ -0,0 +1,505 @@
+package cmc.backend.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import cmc.backend.entities.University;
+
+/**
+ * Keeps every table in memory like {@link MemoryStorage} and also on
+ * local disk, so the data survives a restart without a database server.
+ *
+ * The disk copy is a data file holding every table plus a write-ahead
+ * log next to it (the data file's name with {@code .log} added). Every
+ * write appends one checksummed record to the log before it changes the
+ * tables in memory, so it costs a small append no matter how big the
+ * data is, and a write that can't be logged is not made. Opening the storage reads the
+ * data file and replays the log on top of it, dropping a torn record
+ * left by a crash. Once the log grows past a size limit it is compacted:
+ * the data file is rewritten under a temporary name, forced to disk and
+ * renamed over the old one, and the log starts over. Both files carry a
+ * generation number, so a log that was already compacted into the data
+ * file is never replayed twice.
+ *
+ * When a write returns depends on the {@link Sync} policy. With
+ * {@link Sync#ALWAYS} the log is forced to disk first; threads writing at
+ * the same time share a single force (group commit), so many writers
+ * don't each pay for one.
+ */
+public class FileStorage extends MemoryStorage implements Closeable {
+
+	/**
+	 * When the log is forced to disk.
+	 */
+	public enum Sync {
+		/**
+		 * Before every write returns, so no acknowledged write is lost.
+		 */
+		ALWAYS,
+		/**
+		 * By a background thread every sync interval, so a crash of the
+		 * machine loses at most that much.
+		 */
+		INTERVAL,
+		/**
+		 * Only on compaction and {@link FileStorage#close()}; the
+		 * operating system decides the rest.
+		 */
+		NEVER
+	}
+
+	/**
+	 * The default time between forces with {@link Sync#INTERVAL}.
+	 */
+	public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 1000;
+
+	/**
+	 * The default log size that triggers a compaction, 4 MB.
+	 */
+	public static final long DEFAULT_COMPACT_BYTES = 4L << 20;
+
+	// "CMCS"
+	private static final int MAGIC = 0x434D4353;
+	// "CMCL"
+	private static final int LOG_MAGIC = 0x434D434C;
+	private static final int VERSION = 2;
+	private static final int LOG_HEADER_BYTES = 4 + 8;
+
+	private final Path file;
+	private final Path logFile;
+	private final Sync sync;
+	private final long compactBytes;
+	private final ScheduledExecutorService syncer;
+
+	// only changed with the write lock held, and with syncLock held when
+	// a force could be running
+	private FileChannel log;
+	private long logSize;
+	private long generation;
+	private boolean loading;
+
+	// group commit: records appended and records known to be on disk
+	private final Object syncLock = new Object();
+	private volatile long appended;
+	private volatile long synced;
+
+	/**
+	 * Opens a data file with the default policies, creating it if it
+	 * does not exist.
+	 * @param file Data file
+	 * @throws IOException if the file exists but can't be read or is not
+	 *         a CMC data file
+	 */
+	public FileStorage(Path file) throws IOException {
+		this(file, Sync.ALWAYS, DEFAULT_SYNC_INTERVAL_MILLIS, DEFAULT_COMPACT_BYTES);
+	}
+
+	/**
+	 * Opens a data file, creating it if it does not exist.
+	 * @param file Data file
+	 * @param sync When the log is forced to disk
+	 * @param syncIntervalMillis Time between forces with
+	 *        {@link Sync#INTERVAL}
+	 * @param compactBytes Log size at which it is compacted into the
+	 *        data file
+	 * @throws IOException if the file exists but can't be read or is not
+	 *         a CMC data file
+	 * @throws IllegalArgumentException if file or sync is {@code null}, or
+	 *         the interval or size is not positive
+	 */
+	public FileStorage(Path file, Sync sync, long syncIntervalMillis, long compactBytes) throws IOException {
+		if(file == null) throw new IllegalArgumentException("file cannot be null.");
+		if(sync == null) throw new IllegalArgumentException("sync cannot be null.");
+		if(syncIntervalMillis <= 0) throw new IllegalArgumentException("syncIntervalMillis must be positive.");
+		if(compactBytes <= 0) throw new IllegalArgumentException("compactBytes must be positive.");
+		this.file = file;
+		this.logFile = logOf(file);
+		this.sync = sync;
+		this.compactBytes = compactBytes;
+
+		boolean fresh = !Files.exists(file);
+		loading = true;
+		try {
+			generation = read(this, file);
+		}
+		finally {
+			loading = false;
+		}
+		if(fresh) save();
+		log = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		logSize = log.size();
+		if(fresh || logSize < LOG_HEADER_BYTES || !logMatches(logFile, generation)) resetLog();
+		log.position(logSize);
+
+		if(sync == Sync.INTERVAL) {
+			syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "FileStorage sync " + file.getFileName());
+				t.setDaemon(true);
+				return t;
+			});
+			syncer.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis, syncIntervalMillis,
+					TimeUnit.MILLISECONDS);
+		}
+		else {
+			syncer = null;
+		}
+	}
+
+	/**
+	 * @return the data file
+	 */
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * @return the write-ahead log file
+	 */
+	public Path getLogFile() {
+		return logFile;
+	}
+
+	/**
+	 * @return the number of bytes in the log
+	 */
+	public long getLogSize() {
+		return logSize;
+	}
+
+	/**
+	 * Forces every logged write to disk.
+	 * @throws UncheckedIOException if the log can't be forced
+	 */
+	public void sync() {
+		long target = appended;
+		synchronized(syncLock) {
+			// a force that started after our record was appended covers it
+			if(synced >= target) return;
+			long upTo = appended;
+			try {
+				log.force(false);
+			}
+			catch(IOException e) {
+				throw new UncheckedIOException("Could not write " + logFile, e);
+			}
+			synced = upTo;
+		}
+	}
+
+	/**
+	 * Stops the background sync, forces the log and closes it. The
+	 * storage must not be written afterwards.
+	 * @throws IOException if the log can't be forced or closed
+	 */
+	@Override
+	public void close() throws IOException {
+		if(syncer != null) syncer.shutdown();
+		synchronized(syncLock) {
+			if(!log.isOpen()) return;
+			log.force(false);
+			synced = appended;
+			log.close();
+		}
+	}
+
+	// logged before the tables change, so a write that can't be logged
+	// is never seen
+	@Override
+	protected void changing(String[] op) {
+		if(loading) return;
+		try {
+			append(op);
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException("Could not write " + logFile, e);
+		}
+	}
+
+	@Override
+	protected void changed(String[] op) {
+		if(loading) return;
+		try {
+			if(op == null || logSize >= compactBytes) compact();
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException("Could not write " + file, e);
+		}
+	}
+
+	@Override
+	public int addUser(String firstName, String lastName, String username, String password, char type) {
+		return commit(super.addUser(firstName, lastName, username, password, type));
+	}
+
+	@Override
+	public int editUser(String username, String firstName, String lastName, String password,
+			char type, char activated) {
+		return commit(super.editUser(username, firstName, lastName, password, type, activated));
+	}
+
+	@Override
+	public int deleteUser(String username) {
+		return commit(super.deleteUser(username));
+	}
+
+	@Override
+	public int saveSchool(String username, String school) {
+		return commit(super.saveSchool(username, school));
+	}
+
+	@Override
+	public int removeSchool(String username, String school) {
+		return commit(super.removeSchool(username, school));
+	}
+
+	@Override
+	public int addUniversity(University u) {
+		return commit(super.addUniversity(u));
+	}
+
+	@Override
+	public int editUniversity(University u) {
+		return commit(super.editUniversity(u));
+	}
+
+	@Override
+	public int deleteUniversity(String name) {
+		return commit(super.deleteUniversity(name));
+	}
+
+	@Override
+	public int addEmphasis(String name, String emphasis) {
+		return commit(super.addEmphasis(name, emphasis));
+	}
+
+	@Override
+	public int removeEmphasis(String name, String emphasis) {
+		return commit(super.removeEmphasis(name, emphasis));
+	}
+
+	// waits for the write to reach the disk, outside the write lock so
+	// other writers can join the same force
+	private int commit(int result) {
+		if(result == 1 && sync == Sync.ALWAYS && !loading) sync();
+		return result;
+	}
+
+	private void syncQuietly() {
+		try {
+			sync();
+		}
+		catch(UncheckedIOException e) {
+			// the next interval or write tries again
+		}
+	}
+
+	private void append(String[] op) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		writeRow(out, op);
+		out.flush();
+		byte[] payload = bytes.toByteArray();
+
+		CRC32 crc = new CRC32();
+		crc.update(payload, 0, payload.length);
+		ByteBuffer record = ByteBuffer.allocate(4 + 8 + payload.length);
+		record.putInt(payload.length).putLong(crc.getValue()).put(payload).flip();
+		try {
+			while(record.hasRemaining()) log.write(record);
+		}
+		catch(IOException e) {
+			// cut off what was written, or later records would follow a
+			// torn one and be dropped when the log is replayed
+			try {
+				log.truncate(logSize);
+				log.position(logSize);
+			}
+			catch(IOException ignored) {
+				// replay drops the torn record and everything after it
+			}
+			throw e;
+		}
+		logSize += 4 + 8 + payload.length;
+		appended++;
+	}
+
+	private void compact() throws IOException {
+		synchronized(syncLock) {
+			generation++;
+			save();
+			resetLog();
+			// everything logged so far is in the data file now
+			synced = appended;
+		}
+	}
+
+	private void save() throws IOException {
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try(FileOutputStream fos = new FileOutputStream(tmp.toFile());
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+			write(this, generation, out);
+			out.flush();
+			fos.getFD().sync();
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private void resetLog() throws IOException {
+		log.truncate(0);
+		ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_BYTES);
+		header.putInt(LOG_MAGIC).putLong(generation).flip();
+		while(header.hasRemaining()) log.write(header, header.position());
+		log.force(false);
+		logSize = LOG_HEADER_BYTES;
+		log.position(logSize);
+	}
+
+	private static Path logOf(Path file) {
+		return file.resolveSibling(file.getFileName() + ".log");
+	}
+
+	private static boolean logMatches(Path logFile, long generation) throws IOException {
+		try(DataInputStream in = new DataInputStream(Files.newInputStream(logFile))) {
+			return in.readInt() == LOG_MAGIC && in.readLong() == generation;
+		}
+	}
+
+	/**
+	 * Reads a data file and replays its log into an empty storage. Replayed
+	 * writes go through {@link MemoryStorage#apply}, so a {@link FileStorage}
+	 * being filled must ignore them. A torn or corrupt record at the end of
+	 * the log is cut off, as it was never acknowledged.
+	 * @param to Storage to fill
+	 * @param file Data file, which need not exist
+	 * @return The generation of the data file, 0 if there is none.
+	 * @throws IOException if reading fails or the data is not a CMC data file
+	 */
+	static long read(MemoryStorage to, Path file) throws IOException {
+		long generation = 0;
+		if(Files.exists(file)) {
+			try(InputStream in = Files.newInputStream(file)) {
+				generation = load(to, in);
+			}
+		}
+		Path logFile = logOf(file);
+		if(!Files.exists(logFile)) return generation;
+
+		long size = Files.size(logFile);
+		long good = LOG_HEADER_BYTES;
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logFile)))) {
+			if(in.readInt() != LOG_MAGIC || in.readLong() != generation) return generation;
+			while(true) {
+				int length = in.readInt();
+				long checksum = in.readLong();
+				if(length < 0 || length > size - good) break;
+				byte[] payload = new byte[length];
+				in.readFully(payload);
+				CRC32 crc = new CRC32();
+				crc.update(payload, 0, length);
+				if(crc.getValue() != checksum) break;
+				to.apply(readRow(new DataInputStream(new ByteArrayInputStream(payload))));
+				good += 4 + 8 + length;
+			}
+		}
+		catch(EOFException e) {
+			// the end of the log, or a record cut short by a crash
+		}
+		if(to instanceof FileStorage && size > good) {
+			try(FileChannel ch = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+				ch.truncate(good);
+			}
+		}
+		return generation;
+	}
+
+	/**
+	 * Writes every table of a storage in the data file format.
+	 * @param from Storage to read
+	 * @param generation Generation of the log that continues the data
+	 * @param out Stream to write to
+	 * @throws IOException if writing fails
+	 */
+	static void write(Storage from, long generation, DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeLong(generation);
+		writeTable(out, from.getUniversities());
+		writeTable(out, from.getNamesWithEmphases());
+		writeTable(out, from.getUsers());
+		writeTable(out, from.getSavedSchools());
+	}
+
+	/**
+	 * Reads a data file, without its log, into an empty storage.
+	 * @param to Storage to fill
+	 * @param in Stream in the data file format
+	 * @return The generation of the data file.
+	 * @throws IOException if reading fails or the data is not a CMC data file
+	 */
+	static long load(MemoryStorage to, InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+		if(data.readInt() != MAGIC) throw new IOException("Not a CMC data file.");
+		int version = data.readInt();
+		if(version != 1 && version != VERSION) throw new IOException("Unsupported data file version " + version + ".");
+		// version 1 files were rewritten on every write and had no log
+		long generation = version == 1 ? 0 : data.readLong();
+
+		FileStorage file = to instanceof FileStorage ? (FileStorage)to : null;
+		boolean wasLoading = file != null && file.loading;
+		if(file != null) file.loading = true;
+		try {
+			to.fill(readTable(data), readTable(data), readTable(data), readTable(data));
+		}
+		finally {
+			if(file != null) file.loading = wasLoading;
+		}
+		return generation;
+	}
+
+	private static void writeTable(DataOutputStream out, String[][] rows) throws IOException {
+		out.writeInt(rows.length);
+		for(String[] row : rows) writeRow(out, row);
+	}
+
+	private static void writeRow(DataOutputStream out, String[] row) throws IOException {
+		out.writeInt(row.length);
+		for(String s : row) {
+			// the database can hand back NULL columns
+			out.writeBoolean(s != null);
+			if(s != null) out.writeUTF(s);
+		}
+	}
+
+	private static String[][] readTable(DataInputStream in) throws IOException {
+		String[][] rows = new String[in.readInt()][];
+		for(int i = 0; i < rows.length; i++) rows[i] = readRow(in);
+		return rows;
+	}
+
+	private static String[] readRow(DataInputStream in) throws IOException {
+		String[] row = new String[in.readInt()];
+		for(int j = 0; j < row.length; j++) row[j] = in.readBoolean() ? in.readUTF() : null;
+		return row;
+	}
+
+}
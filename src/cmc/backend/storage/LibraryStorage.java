@@ -0,0 +1,141 @@
+package cmc.backend.storage;
+
+import java.util.function.Function;
+
+import cmc.backend.entities.University;
+import dblibrary.project.csci230.UniversityDBLibrary;
+
+/**
+ * Stores everything in the course's MySQL database through
+ * {@link UniversityDBLibrary}. Every call is a round trip to the server,
+ * on a new connection the library opens for it. Calls go through a
+ * {@link CallLimiter}, so a storage shared by any number of threads
+ * keeps only a few calls in flight at once.
+ */
+public class LibraryStorage implements Storage {
+
+	private final UniversityDBLibrary database;
+	private final CallLimiter limiter;
+
+	/**
+	 * Keeps at most {@link CallLimiter#DEFAULT_MAX_CALLS} calls in flight.
+	 * @param database Library connected to the database to use
+	 * @throws IllegalArgumentException if database is {@code null}
+	 */
+	public LibraryStorage(UniversityDBLibrary database) {
+		this(database, new CallLimiter());
+	}
+
+	/**
+	 * @param database Library connected to the database to use; the
+	 *        library only holds credentials, so one may be shared
+	 * @param limiter Caps the calls in flight
+	 * @throws IllegalArgumentException if either argument is {@code null}
+	 */
+	public LibraryStorage(UniversityDBLibrary database, CallLimiter limiter) {
+		if(database == null) throw new IllegalArgumentException("database cannot be null.");
+		if(limiter == null) throw new IllegalArgumentException("limiter cannot be null.");
+		this.database = database;
+		this.limiter = limiter;
+	}
+
+	/**
+	 * @return the limiter the calls go through, e.g. to read its counters
+	 */
+	public CallLimiter getLimiter() {
+		return limiter;
+	}
+
+	private <T> T call(Function<UniversityDBLibrary, T> call) {
+		return limiter.call(() -> call.apply(database));
+	}
+
+	@Override
+	public String[][] getUsers() {
+		return call(db -> db.user_getUsers());
+	}
+
+	@Override
+	public int addUser(String firstName, String lastName, String username, String password, char type) {
+		return call(db -> db.user_addUser(firstName, lastName, username, password, type));
+	}
+
+	@Override
+	public int editUser(String username, String firstName, String lastName, String password,
+			char type, char activated) {
+		return call(db -> db.user_editUser(username, firstName, lastName, password, type, activated));
+	}
+
+	@Override
+	public int deleteUser(String username) {
+		return call(db -> db.user_deleteUser(username));
+	}
+
+	@Override
+	public String[][] getSavedSchools() {
+		return call(db -> db.user_getUsernamesWithSavedSchools());
+	}
+
+	@Override
+	public int saveSchool(String username, String school) {
+		return call(db -> db.user_saveSchool(username, school));
+	}
+
+	@Override
+	public int removeSchool(String username, String school) {
+		return call(db -> db.user_removeSchool(username, school));
+	}
+
+	@Override
+	public String[][] getUniversities() {
+		return call(db -> db.university_getUniversities());
+	}
+
+	@Override
+	public String[][] getEmphases() {
+		return call(db -> db.university_getEmphases());
+	}
+
+	@Override
+	public String[][] getNamesWithEmphases() {
+		return call(db -> db.university_getNamesWithEmphases());
+	}
+
+	@Override
+	public int addUniversity(University u) {
+		return call(db -> db.university_addUniversity(
+				u.getName(), u.getState(), u.getLocation(), u.getControl(),
+				u.getNumStudents(), u.getPercentFemale(), u.getSatVerbal(),
+				u.getSatMath(), u.getExpenses(), u.getPercentFinancialAid(),
+				u.getNumApplicants(), u.getPercentAdmitted(),
+				u.getPercentEnrolled(), u.getScaleAcademics(),
+				u.getScaleSocial(), u.getScaleQualityOfLife()));
+	}
+
+	@Override
+	public int editUniversity(University u) {
+		return call(db -> db.university_editUniversity(
+				u.getName(), u.getState(), u.getLocation(), u.getControl(),
+				u.getNumStudents(), u.getPercentFemale(), u.getSatVerbal(),
+				u.getSatMath(), u.getExpenses(), u.getPercentFinancialAid(),
+				u.getNumApplicants(), u.getPercentAdmitted(),
+				u.getPercentEnrolled(), u.getScaleAcademics(),
+				u.getScaleSocial(), u.getScaleQualityOfLife()));
+	}
+
+	@Override
+	public int deleteUniversity(String name) {
+		return call(db -> db.university_deleteUniversity(name));
+	}
+
+	@Override
+	public int addEmphasis(String name, String emphasis) {
+		return call(db -> db.university_addUniversityEmphasis(name, emphasis));
+	}
+
+	@Override
+	public int removeEmphasis(String name, String emphasis) {
+		return call(db -> db.university_removeUniversityEmphasis(name, emphasis));
+	}
+
+}
@@ -0,0 +1,412 @@
+package cmc.backend.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import cmc.backend.entities.University;
+
+/**
+ * Keeps every table in hash maps in this process, so nothing survives a
+ * restart and no call ever waits on a network.
+ *
+ * Users and universities are keyed by their name, and saved schools and
+ * emphases by user or university, so every write is a constant-time
+ * lookup. Tables list their rows in insertion order, like the database.
+ * Reads share a lock and writes hold it exclusively.
+ */
+public class MemoryStorage implements Storage {
+
+	// operation names, as the first element of what is passed to changing(String[])
+	static final String ADD_USER = "addUser";
+	static final String EDIT_USER = "editUser";
+	static final String DELETE_USER = "deleteUser";
+	static final String SAVE_SCHOOL = "saveSchool";
+	static final String REMOVE_SCHOOL = "removeSchool";
+	static final String ADD_UNIVERSITY = "addUniversity";
+	static final String EDIT_UNIVERSITY = "editUniversity";
+	static final String DELETE_UNIVERSITY = "deleteUniversity";
+	static final String ADD_EMPHASIS = "addEmphasis";
+	static final String REMOVE_EMPHASIS = "removeEmphasis";
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final Map<String, String[]> users = new LinkedHashMap<>();
+	private final Map<String, Set<String>> saved = new LinkedHashMap<>();
+	private final Map<String, String[]> universities = new LinkedHashMap<>();
+	private final Map<String, Set<String>> emphases = new LinkedHashMap<>();
+
+	/**
+	 * Called before every write that is about to change something, while
+	 * the write lock is held. If it throws, the write is not made.
+	 * @param op The write as the name of the method followed by its
+	 *        arguments (a university as its row), which {@link #apply}
+	 *        can repeat
+	 */
+	protected void changing(String[] op) {
+	}
+
+	/**
+	 * Called after every write that changed something, while the write
+	 * lock is still held, so no other write can happen until it returns.
+	 * @param op The write passed to {@link #changing(String[])}, or
+	 *        {@code null} if whole tables were added at once
+	 */
+	protected void changed(String[] op) {
+	}
+
+	@Override
+	public String[][] getUsers() {
+		lock.readLock().lock();
+		try {
+			return copy(users.values());
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public int addUser(String firstName, String lastName, String username, String password, char type) {
+		lock.writeLock().lock();
+		try {
+			if(users.containsKey(username)) return -1;
+			String[] op = { ADD_USER, firstName, lastName, username, password, String.valueOf(type) };
+			changing(op);
+			users.put(username, new String[] { firstName, lastName, username, password,
+					String.valueOf(type), "Y" });
+			changed(op);
+			return 1;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public int editUser(String username, String firstName, String lastName, String password,
+			char type, char activated) {
+		lock.writeLock().lock();
+		try {
+			if(!users.containsKey(username)) return 0;
+			String[] op = { EDIT_USER, username, firstName, lastName, password,
+					String.valueOf(type), String.valueOf(activated) };
+			changing(op);
+			users.put(username, new String[] { firstName, lastName, username, password,
+					String.valueOf(type), String.valueOf(activated) });
+			changed(op);
+			return 1;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public int deleteUser(String username) {
+		lock.writeLock().lock();
+		try {
+			if(!users.containsKey(username)) return 0;
+			if(saved.containsKey(username)) return -1;
+			String[] op = { DELETE_USER, username };
+			changing(op);
+			users.remove(username);
+			changed(op);
+			return 1;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public String[][] getSavedSchools() {
+		lock.readLock().lock();
+		try {
+			return pairs(saved);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public int saveSchool(String username, String school) {
+		lock.writeLock().lock();
+		try {
+			if(!users.containsKey(username) || !universities.containsKey(school)) return -1;
+			if(has(saved, username, school)) return -1;
+			String[] op = { SAVE_SCHOOL, username, school };
+			changing(op);
+			add(saved, username, school);
+			changed(op);
+			return 1;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public int removeSchool(String username, String school) {
+		lock.writeLock().lock();
+		try {
+			if(!has(saved, username, school)) return 0;
+			String[] op = { REMOVE_SCHOOL, username, school };
+			changing(op);
+			remove(saved, username, school);
+			changed(op);
+			return 1;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public String[][] getUniversities() {
+		lock.readLock().lock();
+		try {
+			return copy(universities.values());
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public String[][] getEmphases() {
+		lock.readLock().lock();
+		try {
+			Set<String> all = new TreeSet<>();
+			for(Set<String> set : emphases.values()) all.addAll(set);
+			String[][] result = new String[all.size()][];
+			int i = 0;
+			for(String e : all) result[i++] = new String[] { e };
+			return result;
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public String[][] getNamesWithEmphases() {
+		lock.readLock().lock();
+		try {
+			return pairs(emphases);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public int addUniversity(University u) {
+		return addUniversity(row(u));
+	}
+
+	private int addUniversity(String[] row) {
+		lock.writeLock().lock();
+		try {
+			if(universities.containsKey(row[0])) return -1;
+			String[] op = op(ADD_UNIVERSITY, row);
+			changing(op);
+			universities.put(row[0], row);
+			changed(op);
+			return 1;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public int editUniversity(University u) {
+		return editUniversity(row(u));
+	}
+
+	private int editUniversity(String[] row) {
+		lock.writeLock().lock();
+		try {
+			if(!universities.containsKey(row[0])) return 0;
+			String[] op = op(EDIT_UNIVERSITY, row);
+			changing(op);
+			universities.put(row[0], row);
+			changed(op);
+			return 1;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public int deleteUniversity(String name) {
+		lock.writeLock().lock();
+		try {
+			if(!universities.containsKey(name)) return 0;
+			if(emphases.containsKey(name)) return -1;
+			String[] op = { DELETE_UNIVERSITY, name };
+			changing(op);
+			universities.remove(name);
+			changed(op);
+			return 1;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public int addEmphasis(String name, String emphasis) {
+		lock.writeLock().lock();
+		try {
+			if(!universities.containsKey(name) || has(emphases, name, emphasis)) return -1;
+			String[] op = { ADD_EMPHASIS, name, emphasis };
+			changing(op);
+			add(emphases, name, emphasis);
+			changed(op);
+			return 1;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public int removeEmphasis(String name, String emphasis) {
+		lock.writeLock().lock();
+		try {
+			if(!has(emphases, name, emphasis)) return 0;
+			String[] op = { REMOVE_EMPHASIS, name, emphasis };
+			changing(op);
+			remove(emphases, name, emphasis);
+			changed(op);
+			return 1;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds whole tables of rows at once, with a single call to
+	 * {@link #changed(String[])} at the end. Rows are taken as they are, so
+	 * nothing is lost when copying from another storage; rows that are
+	 * duplicates or refer to a missing user or university are skipped.
+	 * @param universityRows University rows
+	 * @param emphasisRows {@code [university, emphasis]} pairs
+	 * @param userRows User rows
+	 * @param savedRows {@code [username, school]} pairs
+	 */
+	void fill(String[][] universityRows, String[][] emphasisRows, String[][] userRows, String[][] savedRows) {
+		lock.writeLock().lock();
+		try {
+			for(String[] k : universityRows) {
+				if(!universities.containsKey(k[0])) universities.put(k[0], k.clone());
+			}
+			for(String[] kv : emphasisRows) {
+				if(universities.containsKey(kv[0])) add(emphases, kv[0], kv[1]);
+			}
+			for(String[] k : userRows) {
+				if(!users.containsKey(k[2])) users.put(k[2], k.clone());
+			}
+			for(String[] kv : savedRows) {
+				if(users.containsKey(kv[0]) && universities.containsKey(kv[1])) add(saved, kv[0], kv[1]);
+			}
+			changed(null);
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Repeats a write passed to {@link #changing(String[])}.
+	 * @param op The write
+	 * @return What the write returns.
+	 * @throws IllegalArgumentException if op is not a known write
+	 */
+	int apply(String[] op) {
+		switch(op[0]) {
+		case ADD_USER: return addUser(op[1], op[2], op[3], op[4], op[5].charAt(0));
+		case EDIT_USER: return editUser(op[1], op[2], op[3], op[4], op[5].charAt(0), op[6].charAt(0));
+		case DELETE_USER: return deleteUser(op[1]);
+		case SAVE_SCHOOL: return saveSchool(op[1], op[2]);
+		case REMOVE_SCHOOL: return removeSchool(op[1], op[2]);
+		case ADD_UNIVERSITY: return addUniversity(Arrays.copyOfRange(op, 1, op.length));
+		case EDIT_UNIVERSITY: return editUniversity(Arrays.copyOfRange(op, 1, op.length));
+		case DELETE_UNIVERSITY: return deleteUniversity(op[1]);
+		case ADD_EMPHASIS: return addEmphasis(op[1], op[2]);
+		case REMOVE_EMPHASIS: return removeEmphasis(op[1], op[2]);
+		default: throw new IllegalArgumentException("Unknown write '" + op[0] + "'.");
+		}
+	}
+
+	/**
+	 * Formats a university's attributes as a row of the university table.
+	 * @param u University
+	 * @return Its row.
+	 */
+	static String[] row(University u) {
+		return new String[] { u.getName(), u.getState(), u.getLocation(), u.getControl(),
+				String.valueOf(u.getNumStudents()), String.valueOf(u.getPercentFemale()),
+				String.valueOf(u.getSatVerbal()), String.valueOf(u.getSatMath()),
+				String.valueOf(u.getExpenses()), String.valueOf(u.getPercentFinancialAid()),
+				String.valueOf(u.getNumApplicants()), String.valueOf(u.getPercentAdmitted()),
+				String.valueOf(u.getPercentEnrolled()), String.valueOf(u.getScaleAcademics()),
+				String.valueOf(u.getScaleSocial()), String.valueOf(u.getScaleQualityOfLife()) };
+	}
+
+	private static String[] op(String name, String[] row) {
+		String[] op = new String[row.length + 1];
+		op[0] = name;
+		System.arraycopy(row, 0, op, 1, row.length);
+		return op;
+	}
+
+	private static boolean has(Map<String, Set<String>> table, String key, String value) {
+		Set<String> set = table.get(key);
+		return set != null && set.contains(value);
+	}
+
+	private static boolean add(Map<String, Set<String>> table, String key, String value) {
+		Set<String> set = table.get(key);
+		if(set == null) {
+			set = new LinkedHashSet<>();
+			table.put(key, set);
+		}
+		return set.add(value);
+	}
+
+	// drops the key once its last value is gone, so containsKey means "has any"
+	private static boolean remove(Map<String, Set<String>> table, String key, String value) {
+		Set<String> set = table.get(key);
+		if(set == null || !set.remove(value)) return false;
+		if(set.isEmpty()) table.remove(key);
+		return true;
+	}
+
+	private static String[][] copy(Iterable<String[]> rows) {
+		List<String[]> list = new ArrayList<>();
+		for(String[] row : rows) list.add(row.clone());
+		return list.toArray(new String[list.size()][]);
+	}
+
+	private static String[][] pairs(Map<String, Set<String>> table) {
+		List<String[]> list = new ArrayList<>();
+		for(Map.Entry<String, Set<String>> e : table.entrySet()) {
+			for(String value : e.getValue()) list.add(new String[] { e.getKey(), value });
+		}
+		return list.toArray(new String[list.size()][]);
+	}
+
+}
@@ -0,0 +1,166 @@
+package cmc.backend.storage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Collapses concurrent fetches of the same key into one, so a burst of
+ * threads that all miss at once (after a restart or an invalidation)
+ * costs the database a single call instead of one each.
+ *
+ * The first thread to {@link #load} a key runs the fetch; every thread
+ * that asks for the key while it runs waits for that fetch and gets its
+ * result (or its exception) instead of running its own. When the
+ * result is shared, every thread, including the one that fetched it,
+ * gets its own copy made by the share function, so none of them can
+ * change what the others are copying. A thread that asks after the
+ * fetch is done starts a new one, so nothing is cached beyond the fetch
+ * itself. {@link #forget} makes later callers start a new fetch even
+ * while one is running, e.g. after a write that the running fetch may
+ * not see.
+ *
+ * How many threads are waiting on each key right now, and how many
+ * loads were fetched or shared, is counted for monitoring.
+ */
+public class SingleFlight<K, V> {
+
+	// one running fetch and the threads waiting on it
+	private static class Flight<V> {
+		final CompletableFuture<V> result = new CompletableFuture<>();
+		final AtomicInteger waiters = new AtomicInteger();
+	}
+
+	private final UnaryOperator<V> share;
+	private final ConcurrentHashMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+
+	private final AtomicLong fetches = new AtomicLong();
+	private final AtomicLong shared = new AtomicLong();
+
+	/**
+	 * Creates a single-flight group that hands every waiter the same
+	 * result object.
+	 */
+	public SingleFlight() {
+		this(UnaryOperator.identity());
+	}
+
+	/**
+	 * Creates a single-flight group.
+	 * @param share Copies a shared result for each thread that gets it,
+	 *        for results the caller may modify
+	 * @throws IllegalArgumentException if share is {@code null}
+	 */
+	public SingleFlight(UnaryOperator<V> share) {
+		if(share == null) throw new IllegalArgumentException("share cannot be null.");
+		this.share = share;
+	}
+
+	/**
+	 * Fetches a key, or waits for the fetch of it already running.
+	 * @param key What is fetched
+	 * @param fetch Fetches the key if no other thread is
+	 * @return What the fetch returned.
+	 * @throws IllegalArgumentException if either argument is {@code null}
+	 * @throws RuntimeException whatever the fetch threw
+	 */
+	public V load(K key, Supplier<? extends V> fetch) {
+		if(key == null) throw new IllegalArgumentException("key cannot be null.");
+		if(fetch == null) throw new IllegalArgumentException("fetch cannot be null.");
+
+		Flight<V> mine = new Flight<>();
+		Flight<V> flight = flights.compute(key, (k, running) -> {
+			Flight<V> f = running == null ? mine : running;
+			f.waiters.incrementAndGet();
+			return f;
+		});
+		try {
+			if(flight == mine) return fetch(key, mine, fetch);
+			shared.incrementAndGet();
+			try {
+				return share.apply(flight.result.join());
+			}
+			catch(CompletionException e) {
+				// rethrow what the fetch threw, as the fetching thread saw it
+				Throwable cause = e.getCause();
+				if(cause instanceof RuntimeException) throw (RuntimeException) cause;
+				if(cause instanceof Error) throw (Error) cause;
+				throw e;
+			}
+		}
+		finally {
+			flight.waiters.decrementAndGet();
+		}
+	}
+
+	private V fetch(K key, Flight<V> flight, Supplier<? extends V> fetch) {
+		fetches.incrementAndGet();
+		V value;
+		try {
+			value = fetch.get();
+		}
+		catch(RuntimeException | Error e) {
+			flights.remove(key, flight);
+			flight.result.completeExceptionally(e);
+			throw e;
+		}
+		flights.remove(key, flight);
+		// no thread can join once the flight is removed, so if none did
+		// the fetching thread may keep the only instance
+		boolean alone = flight.waiters.get() == 1;
+		flight.result.complete(value);
+		return alone ? value : share.apply(value);
+	}
+
+	/**
+	 * Makes later loads of a key start a new fetch. Threads already
+	 * waiting on the running fetch still get its result.
+	 * @param key Key to forget
+	 */
+	public void forget(K key) {
+		if(key != null) flights.remove(key);
+	}
+
+	/**
+	 * @param key Key to look up
+	 * @return the number of threads fetching or waiting for the key
+	 *         right now
+	 */
+	public int getInFlight(K key) {
+		Flight<V> flight = key == null ? null : flights.get(key);
+		return flight == null ? 0 : flight.waiters.get();
+	}
+
+	/**
+	 * @return the number of threads fetching or waiting for each key
+	 *         being fetched right now
+	 */
+	public Map<K, Integer> getInFlight() {
+		Map<K, Integer> result = new HashMap<>();
+		for(Map.Entry<K, Flight<V>> e : flights.entrySet()) {
+			result.put(e.getKey(), e.getValue().waiters.get());
+		}
+		return result;
+	}
+
+	/**
+	 * @return the number of loads that ran their own fetch
+	 */
+	public long getFetches() {
+		return fetches.get();
+	}
+
+	/**
+	 * @return the number of loads that got another thread's fetch instead
+	 */
+	public long getShared() {
+		return shared.get();
+	}
+
+}
@@ -0,0 +1,111 @@
+package cmc.backend.storage;
+
+import cmc.backend.entities.University;
+
+/**
+ * Where CMC keeps its users, saved schools, universities and emphases.
+ *
+ * This is the set of operations {@code DatabaseController} needs from the
+ * database. Rows and return codes follow the course's
+ * {@code UniversityDBLibrary}, so any backend can stand in for it:
+ * <ul>
+ * <li>a user row is {@code [firstName, lastName, username, password, type, activated]},</li>
+ * <li>a university row is its name followed by its 15 attributes in the
+ *     order of {@code university_getUniversities()}, with -1 for unknown,</li>
+ * <li>saved schools and emphases are {@code [key, value]} pairs, and</li>
+ * <li>a write returns the number of rows it changed (0 if nothing matched)
+ *     or -1 if it was rejected, e.g. because of a duplicate key or a row
+ *     that refers to a missing user or university.</li>
+ * </ul>
+ * Every row returned is a new array the caller may keep or modify.
+ * Implementations must be safe to call from several threads.
+ *
+ * @see Storages
+ */
+public interface Storage {
+
+	/**
+	 * @return every user row
+	 */
+	String[][] getUsers();
+
+	/**
+	 * Adds an activated user.
+	 * @return 1, or -1 if the username is taken
+	 */
+	int addUser(String firstName, String lastName, String username, String password, char type);
+
+	/**
+	 * Replaces every field of a user except the username.
+	 * @return 1, or 0 if there is no such user
+	 */
+	int editUser(String username, String firstName, String lastName, String password,
+			char type, char activated);
+
+	/**
+	 * Deletes a user, who must not have any saved schools left.
+	 * @return 1, 0 if there is no such user, or -1 if they still have saved schools
+	 */
+	int deleteUser(String username);
+
+	/**
+	 * @return every {@code [username, school]} pair
+	 */
+	String[][] getSavedSchools();
+
+	/**
+	 * Saves a school for a user. Both must exist.
+	 * @return 1, or -1 if it is already saved or either does not exist
+	 */
+	int saveSchool(String username, String school);
+
+	/**
+	 * @return 1, or 0 if the school was not saved
+	 */
+	int removeSchool(String username, String school);
+
+	/**
+	 * @return every university row
+	 */
+	String[][] getUniversities();
+
+	/**
+	 * @return every distinct emphasis, one per row
+	 */
+	String[][] getEmphases();
+
+	/**
+	 * @return every {@code [university, emphasis]} pair
+	 */
+	String[][] getNamesWithEmphases();
+
+	/**
+	 * Adds a university's attributes (not its emphases).
+	 * @return 1, or -1 if the name is taken
+	 */
+	int addUniversity(University u);
+
+	/**
+	 * Replaces a university's attributes (not its emphases).
+	 * @return 1, or 0 if there is no such university
+	 */
+	int editUniversity(University u);
+
+	/**
+	 * Deletes a university, which must not have any emphases left.
+	 * @return 1, 0 if there is no such university, or -1 if it still has emphases
+	 */
+	int deleteUniversity(String name);
+
+	/**
+	 * Adds an emphasis to an existing university.
+	 * @return 1, or -1 if it already has it or the university does not exist
+	 */
+	int addEmphasis(String name, String emphasis);
+
+	/**
+	 * @return 1, or 0 if the university did not have the emphasis
+	 */
+	int removeEmphasis(String name, String emphasis);
+
+}
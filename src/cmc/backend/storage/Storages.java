@@ -0,0 +1,149 @@
+package cmc.backend.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import dblibrary.project.csci230.UniversityDBLibrary;
+
+/**
+ * Opens a {@link Storage} from a short text description, so the backend
+ * can be chosen when the program starts instead of in code.
+ *
+ * The description is one of:
+ * <ul>
+ * <li>{@code mysql} (the default): the course database through
+ *     {@link UniversityDBLibrary}, with at most as many calls at once as
+ *     the {@value #MAX_CALLS_PROPERTY} property says and concurrent
+ *     table reads shared by a {@link CoalescingStorage},</li>
+ * <li>{@code memory}: an empty {@link MemoryStorage},</li>
+ * <li>{@code memory:PATH}: a {@link MemoryStorage} that starts with a copy
+ *     of the data file at PATH and its log, which are never written, or</li>
+ * <li>{@code file:PATH}: a {@link FileStorage} on the data file at PATH.</li>
+ * </ul>
+ * The program reads it from the {@value #PROPERTY} system property, e.g.
+ * {@code java -Dcmc.storage=file:cmc.dat cmc.frontend.Driver}, and a
+ * file storage's {@link FileStorage.Sync} policy from {@value #SYNC_PROPERTY}.
+ *
+ * Running this class copies everything from one storage to another, e.g.
+ * {@code java cmc.backend.storage.Storages mysql file:cmc.dat} takes a
+ * snapshot of the course database that can be used offline.
+ */
+public class Storages {
+
+	/**
+	 * The system property naming the storage to open.
+	 */
+	public static final String PROPERTY = "cmc.storage";
+
+	/**
+	 * The storage used when {@value #PROPERTY} is not set.
+	 */
+	public static final String DEFAULT = "mysql";
+
+	/**
+	 * The system property naming the {@link FileStorage.Sync} policy of a
+	 * file storage, e.g. {@code interval}; {@code always} if not set.
+	 */
+	public static final String SYNC_PROPERTY = "cmc.sync";
+
+	/**
+	 * The system property giving the most database calls (each on its
+	 * own connection) the {@code mysql} storage makes at once;
+	 * {@link CallLimiter#DEFAULT_MAX_CALLS} if not set.
+	 */
+	public static final String MAX_CALLS_PROPERTY = "cmc.maxCalls";
+
+	// the team's course database account
+	private static final String DB_USERNAME = "dei";
+	private static final String DB_PASSWORD = "Csci230$";
+
+	private Storages() {
+	}
+
+	/**
+	 * Opens the storage named by the {@value #PROPERTY} system property.
+	 * @return The storage.
+	 * @throws IllegalArgumentException if the property is not a valid description
+	 * @throws UncheckedIOException if a data file can't be read
+	 */
+	public static Storage fromSystemProperties() {
+		return open(System.getProperty(PROPERTY, DEFAULT));
+	}
+
+	/**
+	 * Opens a storage.
+	 * @param description What to open; see the class comment
+	 * @return The storage.
+	 * @throws IllegalArgumentException if description is not valid
+	 * @throws UncheckedIOException if a data file can't be read
+	 */
+	public static Storage open(String description) {
+		if(description == null) throw new IllegalArgumentException("description cannot be null.");
+		try {
+			if(description.equals("mysql")) {
+				CallLimiter limiter = new CallLimiter(Integer.getInteger(MAX_CALLS_PROPERTY, CallLimiter.DEFAULT_MAX_CALLS),
+						CallLimiter.DEFAULT_TIMEOUT_MILLIS);
+				return new CoalescingStorage(new LibraryStorage(new UniversityDBLibrary(DB_USERNAME, DB_PASSWORD), limiter));
+			}
+			if(description.equals("memory")) return new MemoryStorage();
+			if(description.startsWith("memory:")) {
+				MemoryStorage storage = new MemoryStorage();
+				Path file = Paths.get(description.substring(7));
+				if(!Files.exists(file)) throw new NoSuchFileException(file.toString());
+				FileStorage.read(storage, file);
+				return storage;
+			}
+			if(description.startsWith("file:")) {
+				return new FileStorage(Paths.get(description.substring(5)), syncPolicy(),
+						FileStorage.DEFAULT_SYNC_INTERVAL_MILLIS, FileStorage.DEFAULT_COMPACT_BYTES);
+			}
+		}
+		catch(IOException e) {
+			throw new UncheckedIOException("Could not open storage " + description, e);
+		}
+		throw new IllegalArgumentException("Unknown storage '" + description + "'.");
+	}
+
+	private static FileStorage.Sync syncPolicy() {
+		String sync = System.getProperty(SYNC_PROPERTY, FileStorage.Sync.ALWAYS.name());
+		try {
+			return FileStorage.Sync.valueOf(sync.toUpperCase());
+		}
+		catch(IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unknown sync policy '" + sync + "'.");
+		}
+	}
+
+	/**
+	 * Copies every row of one storage into another.
+	 * @param from Storage to read
+	 * @param to Storage to add the rows to
+	 */
+	public static void copy(Storage from, MemoryStorage to) {
+		to.fill(from.getUniversities(), from.getNamesWithEmphases(), from.getUsers(), from.getSavedSchools());
+	}
+
+	/**
+	 * Copies one storage into another.
+	 * @param args The source and the destination, which must be
+	 *        {@code memory} or {@code file:PATH}
+	 */
+	public static void main(String[] args) {
+		if(args.length != 2) {
+			System.out.println("Usage: Storages FROM TO, e.g. Storages mysql file:cmc.dat");
+			return;
+		}
+		Storage to = open(args[1]);
+		if(!(to instanceof MemoryStorage)) {
+			System.out.println("Can only copy into memory or file storage.");
+			return;
+		}
+		copy(open(args[0]), (MemoryStorage)to);
+		System.out.println("Copied " + args[0] + " to " + args[1] + ".");
+	}
+
+}
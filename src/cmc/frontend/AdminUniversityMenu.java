@@ -5,7 +5,9 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
 
+import cmc.backend.controller.Page;
 import cmc.backend.entities.University;
+import cmc.backend.entities.UniversitySummary;
 
 /**
  * The admin menu for universities.
@@ -35,7 +37,7 @@ public class AdminUniversityMenu {
 				"Remove University", "Go Back"));
 		switch(choice) {
 		case 1:
-			printSchools();
+			printSchools(s);
 			break;
 		case 2:
 			addSchoolPrompt(s);
@@ -54,28 +56,61 @@ public class AdminUniversityMenu {
 	}
 	
 	/**
-	 * Prints all universities, numbered.
-	 * @return Count of universities.
+	 * Prints all universities a page at a time, asking before each
+	 * page after the first.
 	 */
-	private int printSchools() {
-		List<University> us = ui.getAllUniversities();
+	private void printSchools(Scanner s) {
+		Page<UniversitySummary> page = null;
+		do {
+			page = ui.getUniversityPage(page == null ? null : page.getNextToken());
+			printPage(page.getItems());
+			if(!page.hasNext()) return;
+			System.out.print("Show more? (Y or N): ");
+		} while(s.nextLine().trim().equalsIgnoreCase("y"));
+	}
+	
+	/**
+	 * Prints one page of universities, numbered from 1.
+	 */
+	private void printPage(List<UniversitySummary> us) {
 		for(int i = 0; i < us.size(); i++) {
 			System.out.print(i + 1);
 			System.out.print(") ");
 			System.out.println(us.get(i).getName());
 		}
-		return us.size();
 	}
 	
 	private void removeSchoolPrompt(Scanner s) {
-		int count = printSchools();
-		int choice = ConsoleUtils.getSingleMenuEntry(s, 1, count);
-		if(choice == -1) {
+		Page<UniversitySummary> page = ui.getUniversityPage(null);
+		printPage(page.getItems());
+		while(page.hasNext()) {
+			System.out.print("Number to remove, or blank for more: ");
+			String line = s.nextLine().trim();
+			if(!line.isEmpty()) {
+				remove(page.getItems(), line);
+				return;
+			}
+			page = ui.getUniversityPage(page.getNextToken());
+			printPage(page.getItems());
+		}
+		System.out.print("Number to remove: ");
+		remove(page.getItems(), s.nextLine().trim());
+	}
+	
+	private void remove(List<UniversitySummary> us, String line) {
+		int choice;
+		try {
+			choice = Integer.parseInt(line);
+		}
+		catch(NumberFormatException e) {
+			choice = -1;
+		}
+		if(choice < 1 || choice > us.size()) {
 			System.out.println("Invalid input.");
 			return;
 		}
 		
-		University u = ui.getAllUniversities().get(choice - 1);
+		University u = us.get(choice - 1).getUniversity();
 		if(ui.removeUniversity(u)) System.out.println("Removed.");
 	}
 	
@@ -1,9 +1,12 @@
 package cmc.frontend;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
 import cmc.*;
+import cmc.backend.controller.Page;
+import cmc.backend.controller.SearchCriteria;
 import cmc.backend.entities.*;
 
 public class Driver {
@@ -31,13 +34,19 @@ public class Driver {
 		printHeader("Admin User List");
 		
 		// TODO: it would be nice if this was refactored into a list of User objects...
-		List<String[]> allUsers = ui.getAllUsers();
-		for (String[] user : allUsers) {
-			System.out.println(user[2] + " | " + user[0] + " | " + user[1]);
-		}
-		System.out.println();
-		
-		int choice = ConsoleUtils.getMenuOption(s, Arrays.asList("Add User", "Remove User", "Go Back"));
+		String token = null;
+		int choice;
+		do {
+			Page<String[]> users = ui.getUserPage(token);
+			for (String[] user : users.getItems()) {
+				System.out.println(user[2] + " | " + user[0] + " | " + user[1]);
+			}
+			System.out.println();
+			
+			token = users.getNextToken();
+			choice = ConsoleUtils.getMenuOption(s, withNextPage(token,
+					"Add User", "Remove User", "Go Back"));
+		} while (choice == 4);
 		
 		switch(choice) {
 		case 1:
@@ -79,15 +88,29 @@ public class Driver {
 		}
 	}
 	
-	private static void searchResultsMenu(Scanner s, List<University> results) {
+	// the given menu options, plus "Next Page" at the end if there is one
+	private static List<String> withNextPage(String nextToken, String... options) {
+		List<String> all = new ArrayList<>(Arrays.asList(options));
+		if (nextToken != null)
+			all.add("Next Page");
+		return all;
+	}
+	
+	private static void searchResultsMenu(Scanner s, SearchCriteria criteria) {
 		printHeader("Search Results");
 
-		for (University school : results) {
-			System.out.println(school.getName() + " | " + school.getState());
-		}
-		System.out.println();
+		String token = null;
+		int choice;
+		do {
+			Page<UniversitySummary> results = ui.search(criteria, token);
+			for (UniversitySummary school : results.getItems()) {
+				System.out.println(school);
+			}
+			System.out.println();
 
-		int choice = ConsoleUtils.getMenuOption(s, Arrays.asList("Save School", "Go Back"));
+			token = results.getNextToken();
+			choice = ConsoleUtils.getMenuOption(s, withNextPage(token, "Save School", "Go Back"));
+		} while (choice == 3);
 
 		switch(choice) {
 		case 1:
@@ -133,8 +156,7 @@ public class Driver {
 		case 1:
 			// TODO: it would be cleaner to use objects here (rather than
 			//       arrays of strings)
-			List<University> searchResult = ui.search(s);
-			searchResultsMenu(s, searchResult);
+			searchResultsMenu(s, ui.askSearchCriteria(s));
 			break;
 		case 2:
 			userSavedSchoolListMenu(s);
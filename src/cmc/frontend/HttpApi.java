@@ -0,0 +1,430 @@
+package cmc.frontend;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import cmc.CMCException;
+import cmc.backend.SystemController;
+import cmc.backend.controller.Page;
+import cmc.backend.controller.SearchCriteria;
+import cmc.backend.entities.University;
+import cmc.backend.entities.UniversitySummary;
+import cmc.backend.session.Session;
+import cmc.backend.session.SessionManager;
+
+/**
+ * A JSON API over HTTP, served by the JDK's built-in HTTP server on the
+ * loopback address by default. Every endpoint but login needs the
+ * session id that login returns, as {@code Authorization: Bearer ID}.
+ * <pre>
+ * POST /login       username, password       {"session": ID}
+ * POST /logout                                {"ok": true}
+ * GET  /search      criteria, token, size    {"schools": [{"name", "state"}...], "next": TOKEN}
+ * GET  /saved                                 {"schools": [NAME...]}
+ * POST /saved       school                    {"saved": true/false}
+ * GET  /university  name                      every attribute of the school
+ * </pre>
+ * Parameters are form-encoded, in the query string or a POST body of
+ * at most {@value #MAX_BODY_BYTES} bytes; login only reads the body, so
+ * passwords never appear in URLs or access logs. The
+ * search criteria are named like SearchCriteria's setters without the
+ * "set" ({@code state}, {@code minSatMath}, ...), and {@code emphasis}
+ * may be given more than once. Errors are {@code {"error": MESSAGE}}
+ * with status 400, 401 (no session), 403, 404, 413 (body too large) or
+ * 500 (anything else that went wrong).
+ *
+ * Requests are run on the executor given to the constructor, against
+ * sessions and controllers shared by every request.
+ */
+public class HttpApi {
+
+	/**
+	 * The default port.
+	 */
+	public static final int DEFAULT_PORT = 8230;
+
+	/**
+	 * Schools per search page when the request doesn't say.
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 20;
+
+	/**
+	 * Most schools per search page.
+	 */
+	public static final int MAX_PAGE_SIZE = 500;
+
+	/**
+	 * Most bytes in a request body, plenty for any of the forms.
+	 */
+	public static final int MAX_BODY_BYTES = 4096;
+
+	private static final Map<String, BiConsumer<SearchCriteria, String>> CRITERIA = new HashMap<>();
+
+	static {
+		CRITERIA.put("name", SearchCriteria::setName);
+		CRITERIA.put("state", SearchCriteria::setState);
+		CRITERIA.put("location", SearchCriteria::setLocation);
+		CRITERIA.put("control", SearchCriteria::setControl);
+		CRITERIA.put("emphasis", SearchCriteria::addEmphasis);
+		CRITERIA.put("minStudents", (c, v) -> c.setMinStudents(Integer.parseInt(v)));
+		CRITERIA.put("maxStudents", (c, v) -> c.setMaxStudents(Integer.parseInt(v)));
+		CRITERIA.put("minPercentFemale", (c, v) -> c.setMinPercentFemale(Double.parseDouble(v)));
+		CRITERIA.put("maxPercentFemale", (c, v) -> c.setMaxPercentFemale(Double.parseDouble(v)));
+		CRITERIA.put("minSatVerbal", (c, v) -> c.setMinSatVerbal(Double.parseDouble(v)));
+		CRITERIA.put("maxSatVerbal", (c, v) -> c.setMaxSatVerbal(Double.parseDouble(v)));
+		CRITERIA.put("minSatMath", (c, v) -> c.setMinSatMath(Double.parseDouble(v)));
+		CRITERIA.put("maxSatMath", (c, v) -> c.setMaxSatMath(Double.parseDouble(v)));
+		CRITERIA.put("minExpenses", (c, v) -> c.setMinExpenses(Double.parseDouble(v)));
+		CRITERIA.put("maxExpenses", (c, v) -> c.setMaxExpenses(Double.parseDouble(v)));
+		CRITERIA.put("minPercentFinancialAid", (c, v) -> c.setMinPercentFinancialAid(Double.parseDouble(v)));
+		CRITERIA.put("maxPercentFinancialAid", (c, v) -> c.setMaxPercentFinancialAid(Double.parseDouble(v)));
+		CRITERIA.put("minApplicants", (c, v) -> c.setMinApplicants(Integer.parseInt(v)));
+		CRITERIA.put("maxApplicants", (c, v) -> c.setMaxApplicants(Integer.parseInt(v)));
+		CRITERIA.put("minPercentAdmitted", (c, v) -> c.setMinPercentAdmitted(Double.parseDouble(v)));
+		CRITERIA.put("maxPercentAdmitted", (c, v) -> c.setMaxPercentAdmitted(Double.parseDouble(v)));
+		CRITERIA.put("minPercentEnrolled", (c, v) -> c.setMinPercentEnrolled(Double.parseDouble(v)));
+		CRITERIA.put("maxPercentEnrolled", (c, v) -> c.setMaxPercentEnrolled(Double.parseDouble(v)));
+		CRITERIA.put("minAcademicScale", (c, v) -> c.setMinAcademicScale(Integer.parseInt(v)));
+		CRITERIA.put("maxAcademicScale", (c, v) -> c.setMaxAcademicScale(Integer.parseInt(v)));
+		CRITERIA.put("minSocialScale", (c, v) -> c.setMinSocialScale(Integer.parseInt(v)));
+		CRITERIA.put("maxSocialScale", (c, v) -> c.setMaxSocialScale(Integer.parseInt(v)));
+		CRITERIA.put("minQualityOfLifeScale", (c, v) -> c.setMinQualityOfLifeScale(Integer.parseInt(v)));
+		CRITERIA.put("maxQualityOfLifeScale", (c, v) -> c.setMaxQualityOfLifeScale(Integer.parseInt(v)));
+	}
+
+	private final SessionManager sessions;
+	private final HttpServer server;
+
+	/**
+	 * Binds the server without starting it.
+	 * @param sessions Sessions to log users in to
+	 * @param address Address to listen on, e.g. a loopback address and a
+	 *        port, or port 0 for any free one
+	 * @param requests Runs each request; one thread (or, on a JVM that
+	 *        has them, one virtual thread) per request keeps slow
+	 *        requests from holding up the rest
+	 * @throws IOException if the address can't be bound
+	 * @throws IllegalArgumentException if any argument is {@code null}
+	 */
+	public HttpApi(SessionManager sessions, InetSocketAddress address, ExecutorService requests) throws IOException {
+		if(sessions == null) throw new IllegalArgumentException("sessions cannot be null.");
+		if(address == null) throw new IllegalArgumentException("address cannot be null.");
+		if(requests == null) throw new IllegalArgumentException("requests cannot be null.");
+		this.sessions = sessions;
+		this.server = HttpServer.create(address, 128);
+		server.setExecutor(requests);
+		server.createContext("/login", handler("POST", false, this::login));
+		server.createContext("/logout", handler("POST", this::logout));
+		server.createContext("/search", handler("GET", this::search));
+		server.createContext("/saved", handler(null, this::saved));
+		server.createContext("/university", handler("GET", this::university));
+	}
+
+	/**
+	 * @return the port the server listens on
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Starts serving requests in the background.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops the server, letting requests already running finish for up
+	 * to a second.
+	 */
+	public void stop() {
+		server.stop(1);
+	}
+
+	// what an endpoint does with a request: its response, as JSON
+	private interface Endpoint {
+		String handle(HttpExchange exchange, Map<String, List<String>> params) throws ApiException, CMCException;
+	}
+
+	private static class ApiException extends Exception {
+
+		private static final long serialVersionUID = 1;
+
+		final int status;
+
+		ApiException(int status, String message) {
+			super(message);
+			this.status = status;
+		}
+
+	}
+
+	private HttpHandler handler(String method, Endpoint endpoint) {
+		return handler(method, true, endpoint);
+	}
+
+	// query says whether parameters may come from the query string
+	private HttpHandler handler(String method, boolean query, Endpoint endpoint) {
+		return exchange -> {
+			// every request gets a response, whatever goes wrong
+			try {
+				int status = 200;
+				String body;
+				try {
+					if(method != null && !method.equals(exchange.getRequestMethod())) {
+						throw new ApiException(405, "Use " + method + ".");
+					}
+					body = endpoint.handle(exchange, params(exchange, query));
+				}
+				catch(ApiException e) {
+					status = e.status;
+					body = error(e.getMessage());
+				}
+				catch(IllegalArgumentException | IllegalStateException e) {
+					status = 400;
+					body = error(e.getMessage());
+				}
+				catch(IOException e) {
+					status = 400;
+					body = error("Could not read the request body.");
+				}
+				catch(CMCException | RuntimeException | Error e) {
+					status = 500;
+					body = error(String.valueOf(e.getMessage()));
+				}
+				byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+				exchange.sendResponseHeaders(status, bytes.length);
+				try(OutputStream out = exchange.getResponseBody()) {
+					out.write(bytes);
+				}
+			}
+			finally {
+				exchange.close();
+			}
+		};
+	}
+
+	private String login(HttpExchange exchange, Map<String, List<String>> params) throws ApiException, CMCException {
+		Session session = sessions.login(required(params, "username"), required(params, "password"));
+		if(session == null) throw new ApiException(401, "Incorrect username or password.");
+		return "{\"session\":" + quote(session.getId()) + "}";
+	}
+
+	private String logout(HttpExchange exchange, Map<String, List<String>> params) throws ApiException {
+		sessions.logout(session(exchange).getId());
+		return "{\"ok\":true}";
+	}
+
+	private String search(HttpExchange exchange, Map<String, List<String>> params) throws ApiException {
+		Session session = session(exchange);
+		SearchCriteria criteria = new SearchCriteria();
+		for(Map.Entry<String, List<String>> e : params.entrySet()) {
+			BiConsumer<SearchCriteria, String> setter = CRITERIA.get(e.getKey());
+			if(setter == null) continue;
+			for(String v : e.getValue()) {
+				try {
+					setter.accept(criteria, v);
+				}
+				catch(NumberFormatException ex) {
+					throw new ApiException(400, e.getKey() + " must be a number.");
+				}
+			}
+		}
+		int size = DEFAULT_PAGE_SIZE;
+		if(params.containsKey("size")) {
+			try {
+				size = Integer.parseInt(first(params, "size"));
+			}
+			catch(NumberFormatException e) {
+				throw new ApiException(400, "size must be a number.");
+			}
+			if(size <= 0 || size > MAX_PAGE_SIZE) throw new ApiException(400, "size must be from 1 to " + MAX_PAGE_SIZE + ".");
+		}
+
+		Page<UniversitySummary> page = session.search(criteria, first(params, "token"), size);
+		StringBuilder sb = new StringBuilder("{\"schools\":[");
+		for(int i = 0; i < page.getItems().size(); i++) {
+			UniversitySummary s = page.getItems().get(i);
+			if(i > 0) sb.append(',');
+			sb.append("{\"name\":").append(quote(s.getName())).append(",\"state\":").append(quote(s.getState())).append('}');
+		}
+		return sb.append("],\"next\":").append(quote(page.getNextToken())).append('}').toString();
+	}
+
+	private String saved(HttpExchange exchange, Map<String, List<String>> params) throws ApiException, CMCException {
+		Session session = session(exchange);
+		switch(exchange.getRequestMethod()) {
+		case "GET":
+			StringBuilder sb = new StringBuilder("{\"schools\":[");
+			List<String> schools = session.getSavedSchools();
+			for(int i = 0; i < schools.size(); i++) {
+				if(i > 0) sb.append(',');
+				sb.append(quote(schools.get(i)));
+			}
+			return sb.append("]}").toString();
+		case "POST":
+			String school = required(params, "school");
+			if(session.getSchool(school) == null) throw new ApiException(404, "No school named " + school + ".");
+			return "{\"saved\":" + session.saveSchool(school) + "}";
+		default:
+			throw new ApiException(405, "Use GET or POST.");
+		}
+	}
+
+	private String university(HttpExchange exchange, Map<String, List<String>> params) throws ApiException {
+		University u = session(exchange).getSchool(required(params, "name"));
+		if(u == null) throw new ApiException(404, "No school named " + first(params, "name") + ".");
+		Map<String, Object> fields = new LinkedHashMap<>();
+		fields.put("name", u.getName());
+		fields.put("state", u.getState());
+		fields.put("location", u.getLocation());
+		fields.put("control", u.getControl());
+		fields.put("numStudents", u.getNumStudents());
+		fields.put("percentFemale", u.getPercentFemale());
+		fields.put("satVerbal", u.getSatVerbal());
+		fields.put("satMath", u.getSatMath());
+		fields.put("expenses", u.getExpenses());
+		fields.put("percentFinancialAid", u.getPercentFinancialAid());
+		fields.put("numApplicants", u.getNumApplicants());
+		fields.put("percentAdmitted", u.getPercentAdmitted());
+		fields.put("percentEnrolled", u.getPercentEnrolled());
+		fields.put("scaleAcademics", u.getScaleAcademics());
+		fields.put("scaleSocial", u.getScaleSocial());
+		fields.put("scaleQualityOfLife", u.getScaleQualityOfLife());
+
+		StringBuilder sb = new StringBuilder("{");
+		for(Map.Entry<String, Object> e : fields.entrySet()) {
+			sb.append(quote(e.getKey())).append(':');
+			Object v = e.getValue();
+			sb.append(v instanceof String || v == null ? quote((String)v) : v.toString()).append(',');
+		}
+		sb.append("\"emphases\":[");
+		List<String> emphases = u.getEmphases();
+		for(int i = 0; i < emphases.size(); i++) {
+			if(i > 0) sb.append(',');
+			sb.append(quote(emphases.get(i)));
+		}
+		return sb.append("]}").toString();
+	}
+
+	private Session session(HttpExchange exchange) throws ApiException {
+		String auth = exchange.getRequestHeaders().getFirst("Authorization");
+		String prefix = "Bearer ";
+		Session session = auth != null && auth.startsWith(prefix) ? sessions.get(auth.substring(prefix.length()).trim()) : null;
+		if(session == null) throw new ApiException(401, "Log in first.");
+		return session;
+	}
+
+	private static Map<String, List<String>> params(HttpExchange exchange, boolean query)
+			throws IOException, ApiException {
+		Map<String, List<String>> params = new HashMap<>();
+		if(query) parse(exchange.getRequestURI().getRawQuery(), params);
+		if("POST".equals(exchange.getRequestMethod())) {
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			// closed with the exchange, after the response: closing it
+			// drains the rest of the body, which can block on a bad one
+			InputStream in = exchange.getRequestBody();
+			byte[] buf = new byte[1024];
+			for(int n; (n = in.read(buf)) > 0; ) {
+				// stop reading as soon as it's too large, whatever the
+				// length header says
+				if(body.size() + n > MAX_BODY_BYTES) throw tooLarge();
+				body.write(buf, 0, n);
+			}
+			parse(new String(body.toByteArray(), StandardCharsets.UTF_8), params);
+		}
+		return params;
+	}
+
+	private static ApiException tooLarge() {
+		return new ApiException(413, "The request body is larger than " + MAX_BODY_BYTES + " bytes.");
+	}
+
+	private static void parse(String form, Map<String, List<String>> params) throws UnsupportedEncodingException {
+		if(form == null || form.isEmpty()) return;
+		for(String pair : form.split("&")) {
+			int eq = pair.indexOf('=');
+			String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), "UTF-8");
+			String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), "UTF-8");
+			List<String> values = params.get(key);
+			if(values == null) {
+				values = new ArrayList<>(1);
+				params.put(key, values);
+			}
+			values.add(value);
+		}
+	}
+
+	private static String first(Map<String, List<String>> params, String key) {
+		List<String> values = params.getOrDefault(key, Collections.<String>emptyList());
+		return values.isEmpty() ? null : values.get(0);
+	}
+
+	private static String required(Map<String, List<String>> params, String key) throws ApiException {
+		String value = first(params, key);
+		if(value == null || value.isEmpty()) throw new ApiException(400, key + " is required.");
+		return value;
+	}
+
+	private static String error(String message) {
+		return "{\"error\":" + quote(message) + "}";
+	}
+
+	// a JSON string literal, or null
+	static String quote(String s) {
+		if(s == null) return "null";
+		StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+		for(int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch(c) {
+			case '"': sb.append("\\\""); break;
+			case '\\': sb.append("\\\\"); break;
+			case '\n': sb.append("\\n"); break;
+			case '\r': sb.append("\\r"); break;
+			case '\t': sb.append("\\t"); break;
+			default:
+				if(c < 0x20) sb.append(String.format("\\u%04x", (int)c));
+				else sb.append(c);
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+	/**
+	 * Serves the API on the loopback address at the port given as the
+	 * only argument (or {@link #DEFAULT_PORT}) against the storage chosen
+	 * by the {@code cmc.storage} property, until the process is killed.
+	 * @param args Optional port
+	 * @throws IOException if the port can't be bound
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		HttpApi api = new HttpApi(new SessionManager(new SystemController()),
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), port), Executors.newCachedThreadPool());
+		api.start();
+		System.out.println("Serving the CMC API on http://localhost:" + api.getPort() + "/");
+	}
+
+}
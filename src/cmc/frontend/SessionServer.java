@@ -0,0 +1,309 @@
+package cmc.frontend;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import cmc.CMCException;
+import cmc.backend.SystemController;
+import cmc.backend.controller.Page;
+import cmc.backend.controller.SearchCriteria;
+import cmc.backend.entities.UniversitySummary;
+import cmc.backend.session.Session;
+import cmc.backend.session.SessionManager;
+
+/**
+ * Serves many users from one process over a line-based protocol on a
+ * loopback socket, e.g. to test the backend under many concurrent
+ * sessions with {@code nc localhost PORT}.
+ *
+ * Each connection runs on its own task of the executor given to the
+ * constructor and can log in once, or pick up an earlier session by its
+ * id. Requests are one line each:
+ * <pre>
+ * LOGIN username password    OK session-id
+ * RESUME session-id          OK
+ * SEARCH [state]             a listing of matching schools
+ * MORE                       the next page of the last listing
+ * VIEW school                every attribute of a school, one per line
+ * SAVE school                OK, or ERR if it was saved already
+ * SAVED                      a listing of the user's saved schools
+ * USERS                      a listing of the users (admins only)
+ * LOGOUT                     OK
+ * QUIT                       OK, then the connection is closed
+ * </pre>
+ * A listing is {@code OK count} (plus {@code MORE} if there is a next
+ * page) followed by count lines. Failures are {@code ERR message}.
+ */
+public class SessionServer implements Closeable {
+
+	/**
+	 * Rows per page of a listing.
+	 */
+	public static final int PAGE_SIZE = 20;
+
+	private final SessionManager sessions;
+	private final ExecutorService connections;
+	private final ServerSocket socket;
+	private final ScheduledExecutorService expiry;
+	// every connection being served, so close() can close them
+	private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Opens the server socket without accepting connections yet.
+	 * @param sessions Sessions to log users in to
+	 * @param port Port on the loopback address, or 0 for any free one
+	 * @param connections Runs each connection; one thread (or, on a JVM
+	 *        that has them, one virtual thread) per connection keeps a
+	 *        slow user from holding up anyone else
+	 * @throws IOException if the socket can't be opened
+	 * @throws IllegalArgumentException if sessions or connections is
+	 *         {@code null}
+	 */
+	public SessionServer(SessionManager sessions, int port, ExecutorService connections) throws IOException {
+		if(sessions == null) throw new IllegalArgumentException("sessions cannot be null.");
+		if(connections == null) throw new IllegalArgumentException("connections cannot be null.");
+		this.sessions = sessions;
+		this.connections = connections;
+		this.socket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+		this.expiry = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "cmc-session-expiry"));
+	}
+
+	/**
+	 * @return the port the server listens on
+	 */
+	public int getPort() {
+		return socket.getLocalPort();
+	}
+
+	/**
+	 * Starts accepting connections on a background thread and dropping
+	 * idle sessions once a minute.
+	 */
+	public void start() {
+		expiry.scheduleWithFixedDelay(sessions::expireIdle, 1, 1, TimeUnit.MINUTES);
+		daemon(this::acceptAll, "cmc-session-accept").start();
+	}
+
+	/**
+	 * Stops accepting connections and closes the ones still open. Their
+	 * sessions stay in the session manager, as they do when a client
+	 * disconnects.
+	 */
+	@Override
+	public void close() throws IOException {
+		expiry.shutdownNow();
+		socket.close();
+		connections.shutdownNow();
+		// a thread blocked reading a socket only wakes up when it closes
+		for(Socket client : clients) closeQuietly(client);
+	}
+
+	private void acceptAll() {
+		while(!socket.isClosed()) {
+			try {
+				Socket client = socket.accept();
+				clients.add(client);
+				// close() may have run since accept returned
+				if(socket.isClosed()) closeQuietly(client);
+				connections.execute(() -> serve(client));
+			}
+			catch(RejectedExecutionException e) {
+				// the executor was shut down by close()
+				return;
+			}
+			catch(SocketException e) {
+				// the socket was closed
+				return;
+			}
+			catch(IOException e) {
+				System.err.println("Could not accept a connection: " + e);
+			}
+		}
+	}
+
+	private void serve(Socket client) {
+		try(Socket c = client;
+				BufferedReader in = new BufferedReader(new InputStreamReader(c.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter out = new PrintWriter(new OutputStreamWriter(c.getOutputStream(), StandardCharsets.UTF_8))) {
+			Connection conn = new Connection(out);
+			String line;
+			while((line = in.readLine()) != null && conn.handle(line.trim())) {
+				out.flush();
+			}
+			out.flush();
+		}
+		catch(IOException e) {
+			// the client went away
+		}
+		finally {
+			clients.remove(client);
+		}
+	}
+
+	private static void closeQuietly(Socket client) {
+		try {
+			client.close();
+		}
+		catch(IOException e) {
+			// it is being dropped anyway
+		}
+	}
+
+	private static Thread daemon(Runnable r, String name) {
+		Thread t = new Thread(r, name);
+		t.setDaemon(true);
+		return t;
+	}
+
+	/**
+	 * The state of one connection: its session and the listing that
+	 * {@code MORE} continues.
+	 */
+	private class Connection {
+
+		private final PrintWriter out;
+		private Session session;
+		// fetches a page of the current listing from a token
+		private Function<String, Page<String>> listing;
+		private String nextToken;
+
+		Connection(PrintWriter out) {
+			this.out = out;
+		}
+
+		/**
+		 * @return {@code false} once the client asked to quit
+		 */
+		boolean handle(String line) {
+			int space = line.indexOf(' ');
+			String command = (space < 0 ? line : line.substring(0, space)).toUpperCase();
+			String rest = space < 0 ? "" : line.substring(space + 1).trim();
+			try {
+				switch(command) {
+				case "LOGIN":
+					String[] parts = rest.split(" ", 2);
+					session = sessions.login(parts[0], parts.length > 1 ? parts[1] : "");
+					if(session == null) out.println("ERR Incorrect username or password.");
+					else out.println("OK " + session.getId());
+					break;
+				case "RESUME":
+					session = sessions.get(rest);
+					out.println(session == null ? "ERR No such session." : "OK");
+					break;
+				case "LOGOUT":
+					if(session != null) sessions.logout(session.getId());
+					session = null;
+					out.println("OK");
+					break;
+				case "QUIT":
+					out.println("OK");
+					return false;
+				case "SEARCH":
+					SearchCriteria criteria = new SearchCriteria();
+					criteria.setState(rest);
+					list(token -> names(current().search(criteria, token, PAGE_SIZE)), null);
+					break;
+				case "MORE":
+					if(nextToken == null) out.println("ERR No more pages.");
+					else list(listing, nextToken);
+					break;
+				case "VIEW":
+					String[] lines = current().viewSchool(rest).split("\n");
+					print(lines.length, lines, false);
+					break;
+				case "SAVE":
+					out.println(current().saveSchool(rest) ? "OK" : "ERR Already saved.");
+					break;
+				case "SAVED":
+					List<String> saved = current().getSavedSchools();
+					print(saved.size(), saved.toArray(new String[0]), false);
+					break;
+				case "USERS":
+					list(token -> users(current().getUserPage(token, PAGE_SIZE)), null);
+					break;
+				default:
+					out.println("ERR Unknown command \"" + command + "\".");
+				}
+			}
+			catch(IllegalArgumentException | IllegalStateException | CMCException e) {
+				out.println("ERR " + e.getMessage());
+			}
+			return true;
+		}
+
+		private Session current() {
+			// a session may have expired since it was looked up
+			if(session == null || sessions.get(session.getId()) == null) {
+				session = null;
+				throw new IllegalStateException("Not logged in.");
+			}
+			return session;
+		}
+
+		private void list(Function<String, Page<String>> pages, String token) {
+			Page<String> page = pages.apply(token);
+			listing = pages;
+			nextToken = page.getNextToken();
+			print(page.getItems().size(), page.getItems().toArray(new String[0]), page.hasNext());
+		}
+
+		private void print(int count, String[] lines, boolean more) {
+			out.println("OK " + count + (more ? " MORE" : ""));
+			for(String l : lines) out.println(l);
+		}
+
+	}
+
+	private static Page<String> names(Page<UniversitySummary> page) {
+		List<String> lines = new ArrayList<>(page.getItems().size());
+		for(UniversitySummary s : page.getItems()) lines.add(s.toString());
+		return new Page<>(lines, page.getNextToken());
+	}
+
+	private static Page<String> users(Page<String[]> page) {
+		List<String> lines = new ArrayList<>(page.getItems().size());
+		for(String[] u : page.getItems()) lines.add(u[2] + " | " + u[0] + " | " + u[1]);
+		return new Page<>(lines, page.getNextToken());
+	}
+
+	/**
+	 * Runs a server on the port given as the only argument (or any free
+	 * port) against the storage chosen by the {@code cmc.storage}
+	 * property, until the process is killed.
+	 * @param args Optional port
+	 * @throws IOException if the socket can't be opened
+	 */
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+		ExecutorService perConnection = Executors.newCachedThreadPool(r -> daemon(r, "cmc-session"));
+		SessionServer server = new SessionServer(new SessionManager(new SystemController()), port, perConnection);
+		server.start();
+		System.out.println("Serving sessions on localhost:" + server.getPort());
+		try {
+			Thread.currentThread().join();
+		}
+		catch(InterruptedException e) {
+			server.close();
+		}
+	}
+
+}
@@ -6,10 +6,16 @@ import java.util.Scanner;
 import cmc.CMCException;
 import cmc.backend.SystemController;
 import cmc.backend.User;
+import cmc.backend.controller.Page;
+import cmc.backend.controller.SearchCriteria;
 import cmc.backend.entities.University;
+import cmc.backend.entities.UniversitySummary;
 
 public class UserInteraction {
 	
+	// how many rows the paged lists show at a time
+	public static final int PAGE_SIZE = 20;
+	
 	private User loggedInUser;
 	
 	private SystemController theSystemController;
@@ -62,6 +68,12 @@ public class UserInteraction {
 		return this.theSystemController.getAllUsers();
 	}
 	
+	// for admins, this gets one page of the users in the system; pass
+	// null for the first page and then each page's next token
+	public Page<String[]> getUserPage(String token) {
+		return this.theSystemController.getUserPage(token, PAGE_SIZE);
+	}
+	
 	// ask the admin for details and then attempt to add a user to the
 	// database
 	public boolean addUser(Scanner s) {
@@ -90,13 +102,97 @@ public class UserInteraction {
 		return this.theSystemController.removeUser(username);
 	}
 	
-	public List<University> search(Scanner s) {
-		// TODO: in the future, we would like to support searching by various
-		//       criteria, but we'll settle for just state for now
+	// ask for search criteria; anything left blank is not searched by
+	public SearchCriteria askSearchCriteria(Scanner s) {
+		SearchCriteria criteria = new SearchCriteria();
 		System.out.print("State (leave blank to not search by this criterion): ");
-		String state = s.nextLine();
+		criteria.setState(s.nextLine());
+		
+		System.out.print("Search by more criteria? (Y or N): ");
+		if (s.nextLine().trim().equalsIgnoreCase("y")) {
+			System.out.println("Leave any criterion blank to not search by it.");
+			System.out.println("Ranges are entered as min-max, e.g. 600-800, 600- or -800.");
+			System.out.print("Name contains: ");
+			criteria.setName(s.nextLine());
+			System.out.print("Location (URBAN, SUBURBAN or SMALL-CITY): ");
+			criteria.setLocation(s.nextLine());
+			System.out.print("Control (STATE, CITY or PRIVATE): ");
+			criteria.setControl(s.nextLine());
+			System.out.print("Emphases, separated by commas: ");
+			for (String e : s.nextLine().split(",")) {
+				if (!e.trim().isEmpty())
+					criteria.addEmphasis(e.trim());
+			}
+			
+			double[] r = readRange(s, "# of Students");
+			criteria.setMinStudents((int) r[0]);
+			criteria.setMaxStudents((int) r[1]);
+			r = readRange(s, "% Female");
+			criteria.setMinPercentFemale(r[0]);
+			criteria.setMaxPercentFemale(r[1]);
+			r = readRange(s, "Verbal SAT Score");
+			criteria.setMinSatVerbal(r[0]);
+			criteria.setMaxSatVerbal(r[1]);
+			r = readRange(s, "Math SAT Score");
+			criteria.setMinSatMath(r[0]);
+			criteria.setMaxSatMath(r[1]);
+			r = readRange(s, "Expenses");
+			criteria.setMinExpenses(r[0]);
+			criteria.setMaxExpenses(r[1]);
+			r = readRange(s, "% Financial Aid");
+			criteria.setMinPercentFinancialAid(r[0]);
+			criteria.setMaxPercentFinancialAid(r[1]);
+			r = readRange(s, "# of Applicants");
+			criteria.setMinApplicants((int) r[0]);
+			criteria.setMaxApplicants((int) r[1]);
+			r = readRange(s, "% Admitted");
+			criteria.setMinPercentAdmitted(r[0]);
+			criteria.setMaxPercentAdmitted(r[1]);
+			r = readRange(s, "% Enrolled");
+			criteria.setMinPercentEnrolled(r[0]);
+			criteria.setMaxPercentEnrolled(r[1]);
+			r = readRange(s, "Academics Scale");
+			criteria.setMinAcademicScale((int) r[0]);
+			criteria.setMaxAcademicScale((int) r[1]);
+			r = readRange(s, "Social Scale");
+			criteria.setMinSocialScale((int) r[0]);
+			criteria.setMaxSocialScale((int) r[1]);
+			r = readRange(s, "Quality of Life Scale");
+			criteria.setMinQualityOfLifeScale((int) r[0]);
+			criteria.setMaxQualityOfLifeScale((int) r[1]);
+		}
 		
-		return this.theSystemController.search(state);
+		return criteria;
+	}
+	
+	// get one page of the name and state of the schools matching some
+	// criteria; pass null for the first page and then each page's next token
+	public Page<UniversitySummary> search(SearchCriteria criteria, String token) {
+		return this.theSystemController.searchSummaries(criteria, token, PAGE_SIZE);
+	}
+	
+	// read a "min-max" range where either side may be left blank;
+	// returns {min, max} with -1 for "no limit" (or for anything invalid)
+	private static double[] readRange(Scanner s, String label) {
+		System.out.print(label + ": ");
+		String line = s.nextLine().trim();
+		double[] result = { -1, -1 };
+		if (line.isEmpty())
+			return result;
+		
+		String[] parts = line.split("-", 2);
+		if (parts.length == 1)
+			parts = new String[] { line, line };
+		for (int i = 0; i < 2; i++) {
+			try {
+				if (!parts[i].trim().isEmpty())
+					result[i] = Double.parseDouble(parts[i].trim());
+			}
+			catch (NumberFormatException e) {
+				result[i] = -1;
+			}
+		}
+		return result;
 	}
 	
 	// ask for a school name to save, and attempt to save that school
@@ -141,6 +237,25 @@ public class UserInteraction {
 		return theSystemController.getAllUniversities();
 	}
 	
+	/**
+	 * Gets the name and state of every university in the database,
+	 * which is much cheaper than {@link #getAllUniversities()} for lists.
+	 * @return Summaries of all universities in the database.
+	 */
+	public List<UniversitySummary> getUniversitySummaries() {
+		return theSystemController.getAllUniversitySummaries();
+	}
+	
+	/**
+	 * Gets one page of {@link #getUniversitySummaries()}.
+	 * @param token Token from the previous page, or {@code null} for the
+	 *        first page
+	 * @return The page.
+	 */
+	public Page<UniversitySummary> getUniversityPage(String token) {
+		return theSystemController.getUniversitySummaryPage(token, PAGE_SIZE);
+	}
+	
 	/**
 	 * Adds a new university to the database.
 	 * @param uni University
@@ -0,0 +1,44 @@
+package cmc.backend;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import cmc.backend.controller.DatabaseController;
+import cmc.backend.controller.SearchCriteria;
+import cmc.backend.entities.University;
+import cmc.backend.storage.MemoryStorage;
+
+/**
+ * Tests the system controller on in-memory storage.
+ */
+public class SystemControllerTest {
+
+	@Test
+	public void testStateSearchMatchesBlankStates() {
+		DatabaseController db = new DatabaseController(new MemoryStorage());
+		University a = new University("AUGSBURG");
+		a.setState("MINNESOTA");
+		University b = new University("BRANDEIS");
+		b.setState("");
+		University c = new University("CARLETON");
+		c.setState("IOWA");
+		for(University u : new University[] { a, b, c }) db.addNewUniversity(u);
+		SystemController system = new SystemController(db);
+
+		List<University> found = system.search("MINNESOTA");
+		Assert.assertEquals(2, found.size());
+		Assert.assertEquals("AUGSBURG", found.get(0).getName());
+		Assert.assertEquals("BRANDEIS", found.get(1).getName());
+		Assert.assertEquals(3, system.search("").size());
+		Assert.assertEquals(1, system.search("TEXAS").size());
+
+		// every search path agrees
+		SearchCriteria criteria = new SearchCriteria();
+		criteria.setState("MINNESOTA");
+		Assert.assertEquals(2, system.search(criteria).size());
+		Assert.assertEquals(2, db.searchSummaries(criteria, null, 10).getItems().size());
+	}
+
+}
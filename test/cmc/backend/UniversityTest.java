@@ -9,6 +9,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.Assert;
 
+import cmc.backend.controller.DatabaseController;
 import cmc.backend.entities.University;
 
 /**
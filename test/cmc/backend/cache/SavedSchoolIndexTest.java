@@ -0,0 +1,63 @@
+package cmc.backend.cache;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the saved-school index with a fake mapping.
+ */
+public class SavedSchoolIndexTest {
+
+	private int loads;
+	private SavedSchoolIndex index;
+
+	private String[][] load() {
+		loads++;
+		return new String[][] {
+			{ "peter", "CSBSJU" },
+			{ "juser", "YALE" },
+			{ "peter", "HARVARD" },
+			{ "juser", "AUGSBURG" }
+		};
+	}
+
+	@Before
+	public void setUp() {
+		loads = 0;
+		index = new SavedSchoolIndex(this::load);
+	}
+
+	@Test
+	public void testColdStartLoadsOnce() {
+		Assert.assertTrue(index.contains("peter", "HARVARD"));
+		Assert.assertFalse(index.contains("peter", "YALE"));
+		Assert.assertEquals(Arrays.asList("YALE", "AUGSBURG"), index.get("juser"));
+		Assert.assertTrue(index.get("nobody").isEmpty());
+		Assert.assertEquals(1, loads);
+	}
+
+	@Test
+	public void testIncrementalUpdates() {
+		index.get("peter");
+		index.add("peter", "YALE");
+		index.add("peter", "YALE");
+		index.add("newbie", "BARD");
+		index.remove("juser", "YALE");
+		index.removeUser("peter");
+
+		Map<String, List<String>> map = index.asMap();
+		Assert.assertNull(map.get("peter"));
+		Assert.assertEquals(Arrays.asList("AUGSBURG"), map.get("juser"));
+		Assert.assertEquals(Arrays.asList("BARD"), map.get("newbie"));
+		Assert.assertEquals(1, loads);
+
+		index.remove("newbie", "BARD");
+		Assert.assertFalse(index.asMap().containsKey("newbie"));
+	}
+
+}
@@ -0,0 +1,68 @@
+package cmc.backend.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import cmc.backend.controller.DatabaseController;
+import cmc.backend.controller.SearchCriteria;
+import cmc.backend.entities.University;
+import cmc.backend.storage.MemoryStorage;
+
+/**
+ * Tests eviction and invalidation of cached search results.
+ */
+public class SearchResultCacheTest {
+
+	@Test
+	public void testLeastRecentlyUsedEvicted() {
+		SearchResultCache cache = new SearchResultCache(2, 100);
+		cache.put("A", 1, new int[] { 1 });
+		cache.put("B", 1, new int[] { 2 });
+		Assert.assertNotNull(cache.get("A", 1));
+		cache.put("C", 1, new int[] { 3 });
+		Assert.assertNull(cache.get("B", 1));
+		Assert.assertNotNull(cache.get("A", 1));
+		Assert.assertEquals(1, cache.getEvictions());
+
+		// too many rows in total evicts as well
+		cache.put("D", 1, new int[99]);
+		Assert.assertEquals(2, cache.size());
+		Assert.assertNull(cache.get("C", 1));
+		Assert.assertNotNull(cache.get("D", 1));
+	}
+
+	@Test
+	public void testNewVersionDropsEverything() {
+		SearchResultCache cache = new SearchResultCache();
+		cache.put("A", 1, new int[] { 1 });
+		Assert.assertNull(cache.get("A", 2));
+		Assert.assertEquals(0, cache.size());
+		// a result computed from an older catalog is not kept
+		cache.put("A", 1, new int[] { 1 });
+		Assert.assertNull(cache.get("A", 2));
+		Assert.assertNull(cache.get("A", 1));
+	}
+
+	@Test
+	public void testSearchThroughController() {
+		DatabaseController db = new DatabaseController(new MemoryStorage());
+		University u = new University("CARLETON");
+		u.setState("MINNESOTA");
+		db.addNewUniversity(u);
+
+		SearchCriteria c = new SearchCriteria();
+		c.setState("minnesota ");
+		Assert.assertEquals(1, db.search(c).size());
+		SearchCriteria same = new SearchCriteria();
+		same.setState("MINNESOTA");
+		Assert.assertEquals(1, db.search(same).size());
+		Assert.assertEquals(1, db.getSearchResultCache().getHits());
+
+		University v = new University("ST OLAF");
+		v.setState("MINNESOTA");
+		db.addNewUniversity(v);
+		Assert.assertEquals(2, db.search(c).size());
+		Assert.assertEquals(1, db.getSearchResultCache().getHits());
+	}
+
+}
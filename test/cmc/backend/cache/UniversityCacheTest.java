@@ -0,0 +1,196 @@
+package cmc.backend.cache;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cmc.backend.catalog.CatalogSnapshot;
+import cmc.backend.catalog.ColumnarCatalog;
+import cmc.backend.entities.University;
+
+/**
+ * Tests the university catalog cache with a fake loader, so no
+ * database is needed.
+ */
+public class UniversityCacheTest {
+
+	private int loads;
+	private List<University> table;
+
+	private List<University> load() {
+		loads++;
+		List<University> copy = new ArrayList<>();
+		for(University u : table) copy.add(new University(u));
+		return copy;
+	}
+
+	@Before
+	public void setUp() {
+		loads = 0;
+		table = new ArrayList<>();
+		University a = new University("ALPHA");
+		a.setState("MINNESOTA");
+		a.addEmphasis("BIOLOGY");
+		table.add(a);
+		table.add(new University("BETA"));
+	}
+
+	@Test
+	public void testLoadsOnceAndCounts() {
+		UniversityCache cache = new UniversityCache(this::load, -1);
+		Assert.assertEquals(2, cache.getAll().size());
+		Assert.assertNotNull(cache.get("BETA"));
+		Assert.assertNull(cache.get("GAMMA"));
+
+		Assert.assertEquals(1, loads);
+		Assert.assertEquals(1, cache.getMisses());
+		Assert.assertEquals(2, cache.getHits());
+	}
+
+	@Test
+	public void testReturnsCopies() {
+		UniversityCache cache = new UniversityCache(this::load, -1);
+		University a = cache.get("ALPHA");
+		a.addEmphasis("HISTORY");
+		a.setState("IOWA");
+
+		University again = cache.get("ALPHA");
+		Assert.assertEquals("MINNESOTA", again.getState());
+		Assert.assertEquals(1, again.getEmphases().size());
+	}
+
+	@Test
+	public void testWriteThrough() {
+		UniversityCache cache = new UniversityCache(this::load, -1);
+		cache.getAll();
+
+		University g = new University("GAMMA");
+		cache.put(g);
+		cache.remove("ALPHA");
+		University b = new University("BETA");
+		b.setState("IOWA");
+		cache.put(b);
+
+		List<University> all = cache.getAll();
+		Assert.assertEquals(2, all.size());
+		Assert.assertEquals("BETA", all.get(0).getName());
+		Assert.assertEquals("IOWA", all.get(0).getState());
+		Assert.assertEquals("GAMMA", all.get(1).getName());
+		Assert.assertEquals(1, loads);
+	}
+
+	@Test
+	public void testBatchWriteThrough() {
+		UniversityCache cache = new UniversityCache(this::load, -1);
+		cache.getAll();
+		ColumnarCatalog before = cache.getCatalog();
+
+		University b = new University("BETA");
+		b.setState("IOWA");
+		cache.putAll(Arrays.asList(new University("GAMMA"), b, new University("DELTA")));
+		cache.removeAll(Arrays.asList("ALPHA", "DELTA", "NOWHERE"));
+
+		List<University> all = cache.getAll();
+		Assert.assertEquals(2, all.size());
+		Assert.assertEquals("IOWA", all.get(0).getState());
+		Assert.assertEquals("GAMMA", all.get(1).getName());
+		// the catalog handed out earlier is unchanged
+		Assert.assertEquals(2, before.liveCount());
+		Assert.assertEquals(1, loads);
+	}
+
+	@Test
+	public void testPublishesFrozenVersions() {
+		UniversityCache cache = new UniversityCache(this::load, -1);
+		UniversityCache.Version first = cache.current();
+		Assert.assertTrue(first.getCatalog().isFrozen());
+		try {
+			first.getCatalog().remove("ALPHA");
+			Assert.fail("changed a published catalog");
+		}
+		catch(IllegalStateException e) {
+			// expected
+		}
+
+		cache.put(new University("GAMMA"));
+		UniversityCache.Version second = cache.current();
+		Assert.assertNotSame(first.getCatalog(), second.getCatalog());
+		Assert.assertTrue(second.getCatalog().isFrozen());
+		Assert.assertTrue(second.getNumber() > first.getNumber());
+		Assert.assertEquals(second.getNumber(), cache.getVersion());
+		Assert.assertEquals(2, first.getCatalog().liveCount());
+		Assert.assertEquals(3, second.getCatalog().liveCount());
+
+		// the emphases of a university can only be changed through it
+		try {
+			cache.get("ALPHA").getEmphases().add("HISTORY");
+			Assert.fail("changed the emphasis list directly");
+		}
+		catch(UnsupportedOperationException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testStalenessBound() {
+		UniversityCache cache = new UniversityCache(this::load, 0);
+		cache.getAll();
+		cache.getAll();
+		Assert.assertEquals(2, loads);
+
+		cache.setMaxAge(-1);
+		cache.getAll();
+		Assert.assertEquals(2, loads);
+
+		cache.invalidate();
+		cache.getAll();
+		Assert.assertEquals(3, loads);
+	}
+
+	@Test
+	public void testSnapshot() throws IOException {
+		Path dir = Files.createTempDirectory("cmc");
+		CatalogSnapshot snapshot = new CatalogSnapshot(dir.resolve("catalog.snap"));
+		try {
+			UniversityCache cache = new UniversityCache(this::load, -1);
+			cache.setSnapshot(snapshot);
+			cache.getAll();
+			Assert.assertEquals(1, loads);
+			Assert.assertTrue(snapshot.writtenAt() > 0);
+
+			// a new cache, as after a restart, starts from the snapshot
+			UniversityCache restarted = new UniversityCache(this::load, -1);
+			restarted.setSnapshot(snapshot);
+			Assert.assertEquals("BIOLOGY", restarted.get("ALPHA").getEmphases().get(0));
+			Assert.assertEquals(1, loads);
+			Assert.assertEquals(1, restarted.getSnapshotLoads());
+
+			// a write makes the snapshot out of date
+			restarted.remove("BETA");
+			Assert.assertEquals(-1, snapshot.writtenAt());
+			UniversityCache again = new UniversityCache(this::load, -1);
+			again.setSnapshot(snapshot);
+			again.getAll();
+			Assert.assertEquals(2, loads);
+
+			// and one older than the staleness bound is ignored
+			UniversityCache strict = new UniversityCache(this::load, 0);
+			strict.setSnapshot(snapshot);
+			strict.getAll();
+			Assert.assertEquals(3, loads);
+			Assert.assertEquals(0, strict.getSnapshotLoads());
+		}
+		finally {
+			snapshot.delete();
+			Files.deleteIfExists(dir);
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+package cmc.backend.cache;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the user directory with a fake user table.
+ */
+public class UserDirectoryTest {
+
+	private int loads;
+	private String[][] table;
+	private UserDirectory dir;
+
+	private String[][] load() {
+		loads++;
+		return table;
+	}
+
+	@Before
+	public void setUp() {
+		loads = 0;
+		table = new String[][] {
+			{ "Peter", "Ohmann", "peter", "pass", "a", "Y" },
+			{ "John", "User", "juser", "user", "u", "Y" }
+		};
+		dir = new UserDirectory(this::load);
+	}
+
+	@Test
+	public void testLookupLoadsOnce() {
+		Assert.assertEquals("Ohmann", dir.get("peter")[1]);
+		Assert.assertEquals("user", dir.get("juser")[3]);
+		Assert.assertNull(dir.get("nobody"));
+		Assert.assertEquals(2, dir.getAll().size());
+		Assert.assertEquals(1, loads);
+	}
+
+	@Test
+	public void testKeptInSync() {
+		dir.get("peter");
+		dir.put(new String[] { "New", "Person", "newbie", "pw", "u", "Y" });
+		dir.put(new String[] { "John", "User", "juser", "user", "u", "N" });
+		dir.remove("peter");
+
+		Assert.assertNull(dir.get("peter"));
+		Assert.assertEquals("N", dir.get("juser")[5]);
+		Assert.assertEquals("Person", dir.get("newbie")[1]);
+		Assert.assertEquals(1, loads);
+
+		dir.rebuild();
+		Assert.assertNotNull(dir.get("peter"));
+		Assert.assertNull(dir.get("newbie"));
+		Assert.assertEquals(2, loads);
+	}
+
+	@Test
+	public void testReturnsCopies() {
+		dir.get("peter")[5] = "N";
+		Assert.assertEquals("Y", dir.get("peter")[5]);
+	}
+
+	@Test
+	public void testPagesInUsernameOrder() {
+		dir.get("peter");
+		dir.put(new String[] { "New", "Person", "newbie", "pw", "u", "Y" });
+		Assert.assertEquals("juser", dir.page(null, 2).get(0)[2]);
+		Assert.assertEquals("newbie", dir.page(null, 2).get(1)[2]);
+		Assert.assertEquals("peter", dir.page("newbie", 2).get(0)[2]);
+		Assert.assertEquals(1, dir.page("newbie", 2).size());
+		Assert.assertTrue(dir.page("peter", 2).isEmpty());
+	}
+
+}
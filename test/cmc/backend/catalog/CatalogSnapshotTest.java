@@ -0,0 +1,108 @@
+package cmc.backend.catalog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cmc.backend.catalog.ColumnarCatalog.Category;
+import cmc.backend.catalog.ColumnarCatalog.Column;
+import cmc.backend.entities.University;
+
+/**
+ * Tests that a catalog written to a snapshot reads back the same.
+ */
+public class CatalogSnapshotTest {
+
+	private Path dir;
+	private CatalogSnapshot snapshot;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("cmc");
+		snapshot = new CatalogSnapshot(dir.resolve("catalog.snap"));
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		snapshot.delete();
+		Files.deleteIfExists(dir);
+	}
+
+	private static University uni(String name, String state, double satMath, String... emphases) {
+		University u = new University(name);
+		u.setState(state);
+		u.setLocation("URBAN");
+		u.setControl("PRIVATE");
+		u.setNumStudents(1000);
+		u.setSatMath(satMath);
+		u.setPercentFemale(51.5);
+		for(String e : emphases) u.addEmphasis(e);
+		return u;
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		List<University> list = new ArrayList<>();
+		list.add(uni("ALPHA", "MINNESOTA", 600, "BIOLOGY", "HISTORY"));
+		list.add(uni("BETA", "IOWA", 700, "ART"));
+		list.add(uni("GAMMA", "MINNESOTA", 500, "BIOLOGY"));
+		list.add(new University("DELTA"));
+		ColumnarCatalog c = ColumnarCatalog.of(list);
+		// holes are left out of the file
+		c.remove("BETA");
+
+		Assert.assertNull(snapshot.read());
+		snapshot.write(c);
+		Assert.assertTrue(snapshot.writtenAt() <= System.currentTimeMillis());
+
+		ColumnarCatalog read = snapshot.read();
+		Assert.assertEquals(3, read.liveCount());
+		Assert.assertEquals(3, read.size());
+		Assert.assertEquals(-1, read.rowOf("BETA"));
+
+		University a = read.materialize(read.rowOf("ALPHA"));
+		Assert.assertEquals("MINNESOTA", a.getState());
+		Assert.assertEquals(1000, a.getNumStudents());
+		Assert.assertEquals(600, a.getSatMath(), 0);
+		Assert.assertEquals(51.5, a.getPercentFemale(), 0);
+		Assert.assertEquals(Arrays.asList("BIOLOGY", "HISTORY"), a.getEmphases());
+		Assert.assertEquals(new University("DELTA").getState(), read.get(Category.STATE, read.rowOf("DELTA")));
+		Assert.assertEquals(500, read.get(Column.SAT_MATH, read.rowOf("GAMMA")), 0);
+
+		Assert.assertEquals(2, read.emphasisIndex().count("BIOLOGY"));
+		Assert.assertEquals(0, read.emphasisIndex().count("ART"));
+
+		// the catalog read back can still be written to
+		read.put(uni("EPSILON", "IOWA", 650, "ART"));
+		Assert.assertEquals(1, read.emphasisIndex().count("ART"));
+		Assert.assertEquals("IOWA", read.materialize(read.rowOf("EPSILON")).getState());
+	}
+
+	@Test
+	public void testEmpty() throws IOException {
+		snapshot.write(ColumnarCatalog.of(new ArrayList<University>()));
+		ColumnarCatalog read = snapshot.read();
+		Assert.assertEquals(0, read.liveCount());
+		read.put(new University("ALPHA"));
+		Assert.assertEquals(0, read.rowOf("ALPHA"));
+	}
+
+	@Test(expected = IOException.class)
+	public void testCorrupt() throws IOException {
+		List<University> list = new ArrayList<>();
+		list.add(uni("ALPHA", "MINNESOTA", 600, "BIOLOGY"));
+		snapshot.write(ColumnarCatalog.of(list));
+		byte[] bytes = Files.readAllBytes(snapshot.getFile());
+		Files.write(snapshot.getFile(), Arrays.copyOf(bytes, bytes.length / 2));
+		snapshot.read();
+	}
+
+}
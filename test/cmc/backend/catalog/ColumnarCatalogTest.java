@@ -0,0 +1,134 @@
+package cmc.backend.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cmc.backend.catalog.ColumnarCatalog.Category;
+import cmc.backend.catalog.ColumnarCatalog.Column;
+import cmc.backend.entities.University;
+import cmc.backend.entities.UniversitySummary;
+
+/**
+ * Tests the columnar catalog without a database.
+ */
+public class ColumnarCatalogTest {
+
+	private List<University> list;
+
+	private static University uni(String name, String state, double satMath, String... emphases) {
+		University u = new University(name);
+		u.setState(state);
+		u.setLocation("URBAN");
+		u.setControl("PRIVATE");
+		u.setNumStudents(1000);
+		u.setSatMath(satMath);
+		u.setScaleSocial(3);
+		for(String e : emphases) u.addEmphasis(e);
+		return u;
+	}
+
+	@Before
+	public void setUp() {
+		list = new ArrayList<>();
+		list.add(uni("ALPHA", "MINNESOTA", 600, "BIOLOGY", "HISTORY"));
+		list.add(uni("BETA", "IOWA", 700));
+		list.add(uni("GAMMA", "MINNESOTA", 500, "BIOLOGY"));
+	}
+
+	@Test
+	public void testRoundTrip() {
+		ColumnarCatalog c = ColumnarCatalog.of(list);
+		Assert.assertEquals(3, c.liveCount());
+
+		University a = c.materialize(c.rowOf("ALPHA"));
+		Assert.assertEquals("MINNESOTA", a.getState());
+		Assert.assertEquals("URBAN", a.getLocation());
+		Assert.assertEquals(1000, a.getNumStudents());
+		Assert.assertEquals(600d, a.getSatMath(), 0d);
+		Assert.assertEquals(-1d, a.getSatVerbal(), 0d);
+		Assert.assertEquals(3, a.getScaleSocial());
+		Assert.assertEquals(Arrays.asList("BIOLOGY", "HISTORY"), a.getEmphases());
+	}
+
+	@Test
+	public void testColumns() {
+		ColumnarCatalog c = ColumnarCatalog.of(list);
+		double[] sat = c.doubleColumn(Column.SAT_MATH);
+		Assert.assertEquals(700d, sat[c.rowOf("BETA")], 0d);
+		Assert.assertEquals(1000, c.intColumn(Column.NUM_STUDENTS)[2]);
+
+		// dictionary encoding shares codes between equal values
+		int[] states = c.codes(Category.STATE);
+		Assert.assertEquals(states[0], states[2]);
+		Assert.assertNotEquals(states[0], states[1]);
+		Assert.assertEquals(2, c.dictionary(Category.STATE).size());
+		Assert.assertEquals("IOWA", c.get(Category.STATE, 1));
+	}
+
+	@Test
+	public void testPutAndRemoveKeepRowIds() {
+		ColumnarCatalog c = ColumnarCatalog.of(list);
+		int beta = c.rowOf("BETA");
+
+		c.put(uni("BETA", "OHIO", 750, "ART"));
+		Assert.assertEquals(beta, c.rowOf("BETA"));
+		Assert.assertEquals("OHIO", c.materialize(beta).getState());
+
+		Assert.assertTrue(c.remove("ALPHA"));
+		Assert.assertFalse(c.remove("ALPHA"));
+		Assert.assertEquals(-1, c.rowOf("ALPHA"));
+		Assert.assertFalse(c.isLive(0));
+		Assert.assertEquals(beta, c.rowOf("BETA"));
+
+		List<University> all = c.materializeAll();
+		Assert.assertEquals(2, all.size());
+		Assert.assertEquals("BETA", all.get(0).getName());
+	}
+
+	@Test
+	public void testCopyIsIndependent() {
+		ColumnarCatalog c = ColumnarCatalog.of(list);
+		ColumnarCatalog copy = c.copy();
+		copy.put(uni("DELTA", "TEXAS", 400));
+		copy.remove("GAMMA");
+
+		Assert.assertEquals(3, c.liveCount());
+		Assert.assertEquals(-1, c.rowOf("DELTA"));
+		Assert.assertEquals(-1, c.dictionary(Category.STATE).code("TEXAS"));
+		Assert.assertEquals(3, copy.liveCount());
+	}
+
+	@Test
+	public void testCopyDropsHoles() {
+		ColumnarCatalog c = ColumnarCatalog.of(list);
+		c.remove("ALPHA");
+		c.remove("BETA");
+		ColumnarCatalog copy = c.copy();
+		Assert.assertEquals(1, copy.size());
+		Assert.assertEquals(0, copy.rowOf("GAMMA"));
+	}
+
+	@Test
+	public void testSummariesLoadLazily() {
+		ColumnarCatalog c = ColumnarCatalog.of(list);
+		c.remove("BETA");
+		List<UniversitySummary> all = c.summarizeAll();
+		Assert.assertEquals(2, all.size());
+
+		UniversitySummary gamma = all.get(1);
+		Assert.assertEquals("GAMMA", gamma.getName());
+		Assert.assertEquals("MINNESOTA", gamma.getState());
+		Assert.assertFalse(gamma.isLoaded());
+
+		University u = gamma.getUniversity();
+		Assert.assertTrue(gamma.isLoaded());
+		Assert.assertEquals(500d, u.getSatMath(), 0d);
+		Assert.assertSame(u, gamma.getUniversity());
+	}
+
+}
@@ -0,0 +1,83 @@
+package cmc.backend.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cmc.backend.entities.University;
+
+/**
+ * Tests the emphasis bitmap index and how the catalog keeps it up to date.
+ */
+public class EmphasisIndexTest {
+
+	private ColumnarCatalog catalog;
+
+	private static University uni(String name, String... emphases) {
+		University u = new University(name);
+		for(String e : emphases) u.addEmphasis(e);
+		return u;
+	}
+
+	private static BitSet bits(int... rows) {
+		BitSet b = new BitSet();
+		for(int r : rows) b.set(r);
+		return b;
+	}
+
+	@Before
+	public void setUp() {
+		List<University> list = new ArrayList<>();
+		list.add(uni("A", "BIOLOGY", "HISTORY"));
+		list.add(uni("B", "BIOLOGY"));
+		list.add(uni("C", "ART"));
+		list.add(uni("D"));
+		catalog = ColumnarCatalog.of(list);
+	}
+
+	@Test
+	public void testSetOperations() {
+		EmphasisIndex index = catalog.emphasisIndex();
+		Assert.assertEquals(bits(0, 1), index.rows("BIOLOGY"));
+		Assert.assertEquals(2, index.count("BIOLOGY"));
+		Assert.assertEquals(bits(0), index.allOf(Arrays.asList("BIOLOGY", "HISTORY")));
+		Assert.assertEquals(bits(0, 1, 2), index.anyOf(Arrays.asList("BIOLOGY", "ART")));
+		Assert.assertEquals(bits(1, 3), index.without(bits(0, 1, 3), Arrays.asList("HISTORY")));
+
+		Assert.assertTrue(index.rows("ASTRONOMY").isEmpty());
+		Assert.assertTrue(index.allOf(Arrays.asList("BIOLOGY", "ASTRONOMY")).isEmpty());
+	}
+
+	@Test
+	public void testResultsAreCopies() {
+		EmphasisIndex index = catalog.emphasisIndex();
+		index.rows("BIOLOGY").clear();
+		index.allOf(Arrays.asList("BIOLOGY")).clear();
+		Assert.assertEquals(2, index.count("BIOLOGY"));
+	}
+
+	@Test
+	public void testCatalogMaintainsIndex() {
+		catalog.emphasisIndex();
+		ColumnarCatalog next = catalog.copy();
+		next.put(uni("B", "ART"));
+		next.put(uni("E", "BIOLOGY", "ASTRONOMY"));
+		next.remove("A");
+
+		int e = next.rowOf("E");
+		EmphasisIndex index = next.emphasisIndex();
+		Assert.assertEquals(bits(e), index.rows("BIOLOGY"));
+		Assert.assertEquals(bits(1, 2), index.rows("ART"));
+		Assert.assertEquals(bits(e), index.rows("ASTRONOMY"));
+		Assert.assertTrue(index.rows("HISTORY").isEmpty());
+
+		// the original catalog's index is untouched
+		Assert.assertEquals(bits(0, 1), catalog.emphasisIndex().rows("BIOLOGY"));
+	}
+
+}
@@ -0,0 +1,75 @@
+package cmc.backend.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cmc.backend.entities.University;
+
+/**
+ * Tests prefix and substring lookups in the name index.
+ */
+public class NameIndexTest {
+
+	private ColumnarCatalog catalog;
+
+	@Before
+	public void setUp() {
+		List<University> list = new ArrayList<>();
+		for(String name : new String[] { "AUGSBURG", "ST JOHNS", "ST JOHN FISHER", "ST OLAF",
+				"CARLETON", "JOHNS HOPKINS", "UC", "ST" }) {
+			list.add(new University(name));
+		}
+		catalog = ColumnarCatalog.of(list);
+	}
+
+	private static List<String> names(ColumnarCatalog catalog, int[] rows) {
+		List<String> names = new ArrayList<>();
+		for(int row : rows) names.add(catalog.getName(row));
+		return names;
+	}
+
+	@Test
+	public void testStartingWith() {
+		NameIndex index = catalog.nameIndex();
+		Assert.assertEquals(Arrays.asList("ST", "ST OLAF", "ST JOHNS", "ST JOHN FISHER"),
+				names(catalog, index.startingWith("st", 10)));
+		Assert.assertEquals(Arrays.asList("ST", "ST OLAF"), names(catalog, index.startingWith("ST", 2)));
+		Assert.assertEquals(0, index.startingWith("STANFORD", 10).length);
+	}
+
+	@Test
+	public void testContaining() {
+		NameIndex index = catalog.nameIndex();
+		// a name starting with the text beats a word starting with it,
+		// which beats the text in the middle of a word
+		Assert.assertEquals(Arrays.asList("JOHNS HOPKINS", "ST JOHNS", "ST JOHN FISHER"),
+				names(catalog, index.containing("john", 10)));
+		Assert.assertEquals(Arrays.asList("AUGSBURG"), names(catalog, index.containing("GSB", 10)));
+		// shorter than a trigram
+		Assert.assertEquals(Arrays.asList("UC"), names(catalog, index.containing("UC", 10)));
+		Assert.assertEquals(3, index.containing("T ").cardinality());
+		Assert.assertEquals(0, index.containing("XYZ", 10).length);
+	}
+
+	@Test
+	public void testKeptUpToDate() {
+		NameIndex before = catalog.nameIndex();
+		ColumnarCatalog next = catalog.copy();
+		next.remove("ST OLAF");
+		next.put(new University("ST CLOUD STATE"));
+
+		Assert.assertEquals(Arrays.asList("ST", "ST JOHNS", "ST CLOUD STATE", "ST JOHN FISHER"),
+				names(next, next.nameIndex().startingWith("ST", 10)));
+		Assert.assertEquals(1, next.nameIndex().containing("CLOUD").cardinality());
+		Assert.assertEquals(0, next.nameIndex().containing("OLAF").cardinality());
+		// the original catalog's index is unchanged
+		Assert.assertEquals(1, before.containing("OLAF").cardinality());
+		Assert.assertEquals(0, before.containing("CLOUD").cardinality());
+	}
+
+}
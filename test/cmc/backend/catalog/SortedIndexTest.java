@@ -0,0 +1,82 @@
+package cmc.backend.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cmc.backend.catalog.ColumnarCatalog.Column;
+import cmc.backend.entities.University;
+
+/**
+ * Tests sorted column indexes and how the catalog keeps them up to date.
+ */
+public class SortedIndexTest {
+
+	private ColumnarCatalog catalog;
+
+	private static University uni(String name, double satMath) {
+		University u = new University(name);
+		u.setSatMath(satMath);
+		return u;
+	}
+
+	private static int[] sorted(int[] rows) {
+		Arrays.sort(rows);
+		return rows;
+	}
+
+	@Before
+	public void setUp() {
+		List<University> list = new ArrayList<>();
+		list.add(uni("A", 700));
+		list.add(uni("B", 500));
+		list.add(uni("C", -1));
+		list.add(uni("D", 800));
+		list.add(uni("E", 700));
+		catalog = ColumnarCatalog.of(list);
+	}
+
+	@Test
+	public void testRange() {
+		SortedIndex index = catalog.index(Column.SAT_MATH);
+		// the unknown value is not indexed
+		Assert.assertEquals(4, index.size());
+		Assert.assertArrayEquals(new int[] { 0, 3, 4 }, sorted(index.range(700, 800)));
+		Assert.assertEquals(2, index.count(600, 750));
+		Assert.assertEquals(4, index.count(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
+		Assert.assertEquals(0, index.range(801, 900).length);
+		Assert.assertEquals(0, index.count(750, 600));
+	}
+
+	@Test
+	public void testInsertDelete() {
+		SortedIndex index = SortedIndex.build(catalog, Column.SAT_MATH);
+		index.insert(650, 9);
+		index.insert(-1, 10);
+		Assert.assertArrayEquals(new int[] { 0, 4, 9 }, sorted(index.range(600, 700)));
+
+		Assert.assertTrue(index.delete(700, 4));
+		Assert.assertFalse(index.delete(700, 4));
+		Assert.assertArrayEquals(new int[] { 0, 9 }, sorted(index.range(600, 700)));
+	}
+
+	@Test
+	public void testCatalogMaintainsIndex() {
+		catalog.index(Column.SAT_MATH);
+		ColumnarCatalog next = catalog.copy();
+		next.put(uni("B", 750));
+		next.put(uni("F", 720));
+		next.remove("D");
+
+		int f = next.rowOf("F");
+		Assert.assertArrayEquals(sorted(new int[] { 0, 1, 4, f }),
+				sorted(next.index(Column.SAT_MATH).range(700, 800)));
+		// the original catalog's index is untouched
+		Assert.assertArrayEquals(new int[] { 0, 3, 4 }, sorted(catalog.index(Column.SAT_MATH).range(700, 800)));
+	}
+
+}
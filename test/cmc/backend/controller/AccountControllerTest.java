@@ -0,0 +1,148 @@
+package cmc.backend.controller;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cmc.CMCException;
+import cmc.backend.account.Account;
+import cmc.backend.entities.University;
+import cmc.backend.entities.UniversitySummary;
+import cmc.backend.storage.MemoryStorage;
+
+/**
+ * Tests the account and university controllers on in-memory storage, so
+ * no database is needed.
+ */
+public class AccountControllerTest {
+
+	private DatabaseController db;
+	private AccountController accounts;
+
+	@Before
+	public void setUp() {
+		db = new DatabaseController(new MemoryStorage());
+		accounts = new AccountController(db);
+		Assert.assertTrue(accounts.addUser("juser", "user", "JOHN", "MILLER", false));
+		Assert.assertTrue(accounts.addUser("nadmin", "admin", "NOREEN", "ADMIN", true));
+	}
+
+	@Test
+	public void testLogin() throws CMCException {
+		Account a = accounts.login("nadmin", "admin");
+		Assert.assertNotNull(a);
+		Assert.assertTrue(a.isAdmin());
+		Assert.assertEquals("NOREEN", a.getFirstName());
+		Assert.assertFalse(accounts.login("juser", "user").isAdmin());
+
+		Assert.assertNull(accounts.login("juser", "wrong"));
+		Assert.assertNull(accounts.login("nobody", "user"));
+
+		Assert.assertTrue(accounts.deactivateUser("juser"));
+		Assert.assertNull(accounts.login("juser", "user"));
+		Assert.assertFalse(accounts.getUser("juser").isActive());
+		Assert.assertTrue(accounts.activateUser("juser"));
+		Assert.assertNotNull(accounts.login("juser", "user"));
+	}
+
+	@Test
+	public void testUpdateAndRemove() throws CMCException {
+		Assert.assertTrue(accounts.updateUser("juser", null, "SMITH", "secret"));
+		Account a = accounts.login("juser", "secret");
+		Assert.assertEquals("JOHN", a.getFirstName());
+		Assert.assertEquals("SMITH", a.getLastName());
+
+		List<Account> all = accounts.getAllUsers();
+		Assert.assertEquals(2, all.size());
+		Assert.assertTrue(accounts.removeUser("juser"));
+		Assert.assertNull(accounts.getUser("juser"));
+		Assert.assertFalse(accounts.removeUser("juser"));
+	}
+
+	@Test
+	public void testUniversities() {
+		UniversityController universities = new UniversityController(db);
+		University u = new University("CARLETON");
+		u.setState("MINNESOTA");
+		u.addEmphasis("BIOLOGY");
+		Assert.assertTrue(universities.addUniversity(u));
+		Assert.assertFalse(universities.addUniversity(u));
+
+		Assert.assertEquals("MINNESOTA", universities.findUniversityByName("carleton").getState());
+		u.setState("IOWA");
+		Assert.assertTrue(universities.updateUniversity(u));
+		Assert.assertEquals("IOWA", universities.findUniversityByName("CARLETON").getState());
+		Assert.assertEquals(1, universities.getAllEmphases().size());
+
+		Assert.assertTrue(universities.removeUniversity("CARLETON"));
+		Assert.assertNull(universities.findUniversityByName("CARLETON"));
+	}
+
+	@Test
+	public void testFindByName() {
+		UniversityController universities = new UniversityController(db);
+		for(String name : new String[] { "ST OLAF", "ST JOHNS", "JOHNS HOPKINS" }) {
+			Assert.assertTrue(universities.addUniversity(new University(name)));
+		}
+		Assert.assertEquals("ST OLAF", universities.findUniversityByName("st olaf").getName());
+		Assert.assertNull(universities.findUniversityByName("ST"));
+		Assert.assertEquals(2, universities.findUniversitiesStartingWith("st ", 10).size());
+		Assert.assertEquals("JOHNS HOPKINS", universities.findUniversitiesContaining("johns", 10).get(0).getName());
+
+		universities.removeUniversity("ST OLAF");
+		Assert.assertEquals(1, universities.findUniversitiesStartingWith("ST", 10).size());
+	}
+
+	@Test
+	public void testSimilar() {
+		UniversityController universities = new UniversityController(db);
+		for(int i = 0; i < 5; i++) {
+			University u = new University("SCHOOL " + i);
+			u.setSatMath(400 + 100 * i);
+			universities.addUniversity(u);
+		}
+		List<University> similar = universities.findSimilarUniversities("school 2", 2);
+		Assert.assertEquals(2, similar.size());
+		Assert.assertTrue(similar.get(0).getName().equals("SCHOOL 1") || similar.get(0).getName().equals("SCHOOL 3"));
+		Assert.assertTrue(universities.findSimilarUniversities("NOWHERE", 2).isEmpty());
+	}
+
+	@Test
+	public void testPages() {
+		UniversityController universities = new UniversityController(db);
+		for(int i = 0; i < 5; i++) {
+			University u = new University("SCHOOL " + i);
+			u.setState(i % 2 == 0 ? "MINNESOTA" : "IOWA");
+			universities.addUniversity(u);
+		}
+
+		Page<University> first = universities.getUniversityPage(null, 2);
+		Assert.assertEquals(2, first.getItems().size());
+		Assert.assertEquals("SCHOOL 1", first.getItems().get(1).getName());
+		// the token still follows SCHOOL 1 after an earlier school is gone
+		universities.removeUniversity("SCHOOL 0");
+		Page<University> second = universities.getUniversityPage(first.getNextToken(), 2);
+		Assert.assertEquals("SCHOOL 2", second.getItems().get(0).getName());
+		Page<University> last = universities.getUniversityPage(second.getNextToken(), 2);
+		Assert.assertEquals(1, last.getItems().size());
+		Assert.assertFalse(last.hasNext());
+		Assert.assertEquals(4, universities.streamUniversities().count());
+
+		SearchCriteria criteria = new SearchCriteria();
+		criteria.setState("MINNESOTA");
+		Page<UniversitySummary> found = db.searchSummaries(criteria, null, 1);
+		Assert.assertEquals("SCHOOL 2", found.getItems().get(0).getName());
+		found = db.searchSummaries(criteria, found.getNextToken(), 1);
+		Assert.assertEquals("SCHOOL 4", found.getItems().get(0).getName());
+		Assert.assertFalse(found.hasNext());
+
+		Page<String[]> users = db.getUserPage(null, 1);
+		Assert.assertEquals("juser", users.getItems().get(0)[2]);
+		users = db.getUserPage(users.getNextToken(), 1);
+		Assert.assertEquals("nadmin", users.getItems().get(0)[2]);
+		Assert.assertFalse(users.hasNext());
+	}
+
+}
@@ -0,0 +1,114 @@
+package cmc.backend.controller;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cmc.CMCException;
+import cmc.backend.entities.University;
+import cmc.backend.storage.MemoryStorage;
+
+/**
+ * Tests the asynchronous controller on in-memory storage.
+ */
+public class AsyncDatabaseControllerTest {
+
+	private DatabaseController db;
+	private AsyncDatabaseController async;
+
+	@Before
+	public void setUp() {
+		db = new DatabaseController(new MemoryStorage());
+		async = new AsyncDatabaseController(db, AsyncDatabaseController.boundedExecutor(2, 2));
+		for(String name : new String[] { "AUGSBURG", "CARLETON", "ST OLAF" }) {
+			Assert.assertTrue(db.addNewUniversity(new University(name)));
+		}
+	}
+
+	@After
+	public void tearDown() {
+		async.shutdown();
+	}
+
+	@Test
+	public void testSavedSchoolDetails() {
+		Assert.assertTrue(async.addUser("juser", "user", 'u', "JOHN", "MILLER").join());
+		for(String name : new String[] { "ST OLAF", "AUGSBURG", "CARLETON" }) {
+			Assert.assertTrue(async.saveSchool("juser", name).join());
+		}
+		Assert.assertFalse(async.saveSchool("juser", "CARLETON").join());
+
+		List<University> saved = async.getSavedSchoolDetails("juser").join();
+		Assert.assertEquals(3, saved.size());
+		Assert.assertEquals("ST OLAF", saved.get(0).getName());
+		Assert.assertEquals("CARLETON", saved.get(2).getName());
+
+		Assert.assertTrue(async.removeSavedSchool("juser", "AUGSBURG").join());
+		Assert.assertFalse(async.removeSavedSchool("juser", "AUGSBURG").join());
+		Assert.assertEquals(2, async.getSavedSchoolDetails("juser").join().size());
+	}
+
+	@Test
+	public void testRemoveUser() {
+		Assert.assertTrue(async.addUser("juser", "user", 'u', "JOHN", "MILLER").join());
+		async.saveSchool("juser", "CARLETON").join();
+		async.saveSchool("juser", "ST OLAF").join();
+
+		Assert.assertTrue(async.removeUser("juser").join());
+		Assert.assertNull(async.getUser("juser").join());
+		Assert.assertTrue(db.getSavedSchools("juser").isEmpty());
+	}
+
+	@Test
+	public void testPartlyAddedSchoolIsReloaded() {
+		DatabaseController flaky = new DatabaseController(new MemoryStorage() {
+			@Override
+			public int addEmphasis(String name, String emphasis) {
+				return -1;
+			}
+		});
+		Assert.assertTrue(flaky.getAllSchools().isEmpty());
+		University u = new University("CARLETON");
+		u.addEmphasis("BIOLOGY");
+		try {
+			flaky.addNewUniversity(u);
+			Assert.fail("an emphasis write failed silently");
+		}
+		catch(IllegalStateException e) {
+			// expected
+		}
+		// the row made it to the database, so the cache must show it
+		Assert.assertNotNull(flaky.getUniversity("CARLETON"));
+	}
+
+	@Test
+	public void testCallAfterShutdownFails() throws Exception {
+		async.shutdown();
+		try {
+			async.getUniversity("CARLETON").get(5, TimeUnit.SECONDS);
+			Assert.fail("a call after shutdown succeeded");
+		}
+		catch(ExecutionException e) {
+			Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+	}
+
+	@Test
+	public void testFailureIsWrapped() {
+		try {
+			async.removeUser("nobody").join();
+			Assert.fail();
+		}
+		catch(CompletionException e) {
+			Assert.assertTrue(e.getCause() instanceof CMCException);
+		}
+	}
+
+}
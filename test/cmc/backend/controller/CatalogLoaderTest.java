@@ -0,0 +1,104 @@
+package cmc.backend.controller;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import cmc.backend.entities.University;
+
+/**
+ * Tests loading the catalog from raw database rows.
+ */
+public class CatalogLoaderTest {
+
+	private static String[] row(String name, int students) {
+		return new String[] { name, "MINNESOTA", "SUBURBAN", "PRIVATE", String.valueOf(students),
+				"50.5", "600", "650", "40000", "80", "3000", "60", "40", "4", "3", "-1" };
+	}
+
+	@Test
+	public void testLoad() {
+		String[][] schools = { row("CARLETON", 2000), row("IOWA STATE", 30000) };
+		String[][] emphases = { { "CARLETON", "LIBERAL ARTS" }, { "CARLETON", "BIOLOGY" } };
+		List<University> list = new CatalogLoader(() -> schools, () -> emphases).load();
+
+		Assert.assertEquals(2, list.size());
+		University u = list.get(0);
+		Assert.assertEquals("CARLETON", u.getName());
+		Assert.assertEquals("SUBURBAN", u.getLocation());
+		Assert.assertEquals(2000, u.getNumStudents());
+		Assert.assertEquals(50.5, u.getPercentFemale(), 0);
+		Assert.assertEquals(-1, u.getScaleQualityOfLife());
+		Assert.assertEquals(2, u.getEmphases().size());
+		Assert.assertEquals("LIBERAL ARTS", u.getEmphases().get(0));
+		Assert.assertTrue(list.get(1).getEmphases().isEmpty());
+	}
+
+	@Test
+	public void testManyChunksKeepOrder() {
+		int n = CatalogLoader.CHUNK_SIZE * 7 + 13;
+		String[][] schools = new String[n][];
+		String[][] emphases = new String[n][];
+		for(int i = 0; i < n; i++) {
+			schools[i] = row("SCHOOL " + i, i);
+			emphases[i] = new String[] { "SCHOOL " + i, "E" + (i % 5) };
+		}
+
+		List<University> list = new CatalogLoader(() -> schools, () -> emphases).load();
+		Assert.assertEquals(n, list.size());
+		for(int i = 0; i < n; i++) {
+			Assert.assertEquals("SCHOOL " + i, list.get(i).getName());
+			Assert.assertEquals(i, list.get(i).getNumStudents());
+			Assert.assertEquals("E" + (i % 5), list.get(i).getEmphases().get(0));
+		}
+	}
+
+	@Test
+	public void testFetchesRunConcurrently() throws InterruptedException {
+		// each fetch waits until the other one has started
+		CountDownLatch started = new CountDownLatch(2);
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			CatalogLoader loader = new CatalogLoader(() -> {
+				awaitOther(started);
+				return new String[][] { row("CARLETON", 2000) };
+			}, () -> {
+				awaitOther(started);
+				return new String[0][];
+			}, pool);
+			Assert.assertEquals(1, loader.load().size());
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+	private static void awaitOther(CountDownLatch started) {
+		started.countDown();
+		try {
+			if(!started.await(5, TimeUnit.SECONDS)) throw new IllegalStateException("fetches ran one after the other");
+		}
+		catch(InterruptedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testBadRowThrows() {
+		String[][] schools = { row("CARLETON", 2000) };
+		schools[0][4] = "many";
+		new CatalogLoader(() -> schools, () -> new String[0][]).load();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testLowerCaseRejected() {
+		String[][] schools = { row("Carleton", 2000) };
+		new CatalogLoader(() -> schools, () -> new String[0][]).load();
+	}
+
+}
@@ -0,0 +1,43 @@
+package cmc.backend.controller;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import cmc.CMCException;
+import cmc.backend.entities.University;
+import cmc.backend.storage.MemoryStorage;
+
+/**
+ * Tests the database controller on in-memory storage.
+ */
+public class DatabaseControllerTest {
+
+	@Test
+	public void testRemoveUserKeepsFailedSchools() throws CMCException {
+		DatabaseController flaky = new DatabaseController(new MemoryStorage() {
+			@Override
+			public int removeSchool(String username, String school) {
+				return school.equals("ST OLAF") ? 0 : super.removeSchool(username, school);
+			}
+		});
+		flaky.addNewUniversity(new University("CARLETON"));
+		flaky.addNewUniversity(new University("ST OLAF"));
+		flaky.addUser("juser", "user", 'u', "JOHN", "MILLER");
+		flaky.saveSchool("juser", "CARLETON");
+		flaky.saveSchool("juser", "ST OLAF");
+
+		try {
+			flaky.removeUser("juser");
+			Assert.fail("removed a user whose saved school is still in the DB");
+		}
+		catch(CMCException e) {
+			// expected, and not wrapped
+		}
+		// the index still matches the database
+		Assert.assertEquals(Arrays.asList("ST OLAF"), flaky.getSavedSchools("juser"));
+		Assert.assertNotNull(flaky.getUser("juser"));
+	}
+
+}
@@ -0,0 +1,36 @@
+package cmc.backend.controller;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests working out which emphases an edit adds and removes.
+ */
+public class EmphasisDiffTest {
+
+	@Test
+	public void testDiff() {
+		List<String> added = new ArrayList<>();
+		List<String> removed = new ArrayList<>();
+		DatabaseController.diffEmphases(Arrays.asList("ART", "BIOLOGY", "HISTORY"),
+				Arrays.asList("HISTORY", "MATH", "ART", "MATH"), added, removed);
+		Assert.assertEquals(Arrays.asList("MATH"), added);
+		Assert.assertEquals(Arrays.asList("BIOLOGY"), removed);
+	}
+
+	@Test
+	public void testUnchanged() {
+		List<String> added = new ArrayList<>();
+		List<String> removed = new ArrayList<>();
+		DatabaseController.diffEmphases(Arrays.asList("ART"), Arrays.asList("ART"), added, removed);
+		DatabaseController.diffEmphases(Collections.<String>emptyList(), Collections.<String>emptyList(), added, removed);
+		Assert.assertTrue(added.isEmpty());
+		Assert.assertTrue(removed.isEmpty());
+	}
+
+}
@@ -0,0 +1,85 @@
+package cmc.backend.controller;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import cmc.backend.entities.University;
+import cmc.backend.storage.MemoryStorage;
+
+/**
+ * Tests that writes only wait for writes to the same user or school.
+ */
+public class KeyLocksTest {
+
+	@SuppressWarnings("try")
+	@Test
+	public void testLockAllIsReentrantAndReleases() throws Exception {
+		KeyLocks locks = new KeyLocks(4);
+		try(KeyLocks.Held all = locks.lockAll(Arrays.asList("a", "b", "c", "a"))) {
+			try(KeyLocks.Held one = locks.lock("b")) {
+				// the same thread may lock a key it holds
+			}
+		}
+		ExecutorService other = Executors.newSingleThreadExecutor();
+		try {
+			Future<?> f = other.submit(() -> {
+				try(KeyLocks.Held held = locks.lockAll(Arrays.asList("a", "b", "c"))) {
+					// free again
+				}
+			});
+			f.get(5, TimeUnit.SECONDS);
+		}
+		finally {
+			other.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testWritesToDifferentUsersOverlap() throws Exception {
+		CountDownLatch inSave = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		MemoryStorage storage = new MemoryStorage() {
+			@Override
+			public int saveSchool(String username, String school) {
+				if(username.equals("slow")) {
+					inSave.countDown();
+					try {
+						release.await();
+					}
+					catch(InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				return super.saveSchool(username, school);
+			}
+		};
+		DatabaseController db = new DatabaseController(storage);
+		db.addNewUniversity(new University("CARLETON"));
+		db.addUser("slow", "pw", 'u', "SLOW", "USER");
+		db.addUser("fast", "pw", 'u', "FAST", "USER");
+
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+			Future<Boolean> slow = pool.submit(() -> db.saveSchool("slow", "CARLETON"));
+			Assert.assertTrue(inSave.await(5, TimeUnit.SECONDS));
+			// the slow user's round trip doesn't hold up anyone else's write
+			Assert.assertTrue(db.saveSchool("fast", "CARLETON"));
+			Assert.assertTrue(db.addNewUniversity(new University("ST OLAF")));
+			release.countDown();
+			Assert.assertTrue(slow.get(5, TimeUnit.SECONDS));
+		}
+		finally {
+			release.countDown();
+			pool.shutdownNow();
+		}
+		Assert.assertEquals(Arrays.asList("CARLETON"), db.getSavedSchools("slow"));
+	}
+
+}
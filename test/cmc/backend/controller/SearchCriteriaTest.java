@@ -0,0 +1,53 @@
+package cmc.backend.controller;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that equivalent search criteria have the same canonical form.
+ */
+public class SearchCriteriaTest {
+
+	@Test
+	public void testEquivalent() {
+		SearchCriteria a = new SearchCriteria();
+		a.setState(" minnesota");
+		a.setName("");
+		a.setMinSatMath(600);
+		a.setMaxExpenses(0);
+		a.setEmphases(Arrays.asList("history", "BIOLOGY", "History", " "));
+
+		SearchCriteria b = new SearchCriteria();
+		b.setState("MINNESOTA");
+		b.setMinSatMath(600.0);
+		b.setMaxExpenses(-0.0);
+		b.addEmphasis("BIOLOGY");
+		b.addEmphasis("HISTORY");
+
+		Assert.assertEquals(a.canonicalForm(), b.canonicalForm());
+		Assert.assertEquals(a, b);
+		Assert.assertEquals(a.hashCode(), b.hashCode());
+	}
+
+	@Test
+	public void testDifferent() {
+		SearchCriteria a = new SearchCriteria();
+		a.setMinSatMath(600);
+		SearchCriteria b = new SearchCriteria();
+		b.setMaxSatMath(600);
+		Assert.assertNotEquals(a, b);
+
+		// strings can't run into each other
+		SearchCriteria c = new SearchCriteria();
+		c.setName("A|");
+		c.setState("B");
+		SearchCriteria d = new SearchCriteria();
+		d.setName("A");
+		d.setState("|B");
+		Assert.assertNotEquals(c, d);
+		Assert.assertNotEquals(new SearchCriteria(), d);
+	}
+
+}
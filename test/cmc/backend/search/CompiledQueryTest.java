@@ -0,0 +1,200 @@
+package cmc.backend.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cmc.backend.catalog.ColumnarCatalog;
+import cmc.backend.controller.SearchCriteria;
+import cmc.backend.entities.University;
+
+/**
+ * Tests compiling and running search criteria over a small catalog.
+ */
+public class CompiledQueryTest {
+
+	private ColumnarCatalog catalog;
+
+	private static University uni(String name, String state, double satMath, int students, String... emphases) {
+		University u = new University(name);
+		u.setState(state);
+		u.setControl("PRIVATE");
+		u.setSatMath(satMath);
+		u.setNumStudents(students);
+		for(String e : emphases) u.addEmphasis(e);
+		return u;
+	}
+
+	private List<String> names(SearchCriteria c) {
+		List<String> names = new ArrayList<>();
+		for(University u : CompiledQuery.compile(c, catalog).results()) names.add(u.getName());
+		return names;
+	}
+
+	@Before
+	public void setUp() {
+		List<University> list = new ArrayList<>();
+		list.add(uni("SAINT JOHNS UNIVERSITY", "MINNESOTA", 600, 2000, "LIBERAL ARTS", "BIOLOGY"));
+		list.add(uni("IOWA STATE", "IOWA", 700, 30000, "ENGINEERING"));
+		list.add(uni("CARLETON", "MINNESOTA", 750, 2000, "LIBERAL ARTS"));
+		list.add(uni("MYSTERY COLLEGE", "MINNESOTA", -1, -1));
+		catalog = ColumnarCatalog.of(list);
+	}
+
+	@Test
+	public void testEmptyCriteriaMatchesEverything() {
+		CompiledQuery q = CompiledQuery.compile(new SearchCriteria(), catalog);
+		Assert.assertEquals(0, q.filterCount());
+		Assert.assertEquals(4, q.execute().length);
+	}
+
+	@Test
+	public void testRanges() {
+		SearchCriteria c = new SearchCriteria();
+		c.setMinSatMath(650);
+		Assert.assertEquals(2, names(c).size());
+
+		c.setMaxSatMath(720);
+		// one filter, whether it is evaluated per row or answered by the index
+		CompiledQuery q = CompiledQuery.compile(c, catalog);
+		Assert.assertEquals(1, q.filterCount() + (q.usesIndex() ? 1 : 0));
+		Assert.assertEquals("IOWA STATE", names(c).get(0));
+
+		// unknown values never match a bounded criterion
+		c = new SearchCriteria();
+		c.setMaxStudents(5000);
+		Assert.assertFalse(names(c).contains("MYSTERY COLLEGE"));
+		Assert.assertEquals(2, names(c).size());
+	}
+
+	@Test
+	public void testStrings() {
+		SearchCriteria c = new SearchCriteria();
+		c.setState("minnesota");
+		Assert.assertEquals(3, names(c).size());
+
+		c.setName("college");
+		Assert.assertEquals("MYSTERY COLLEGE", names(c).get(0));
+
+		c = new SearchCriteria();
+		c.setState("NOWHERE");
+		Assert.assertTrue(names(c).isEmpty());
+
+		c = new SearchCriteria();
+		c.setState("");
+		c.setControl("PRIVATE");
+		Assert.assertEquals(4, names(c).size());
+	}
+
+	@Test
+	public void testBlankStateMatchesAnyState() {
+		List<University> list = new ArrayList<>();
+		list.add(uni("CARLETON", "MINNESOTA", 750, 2000));
+		list.add(uni("BRANDEIS", "", 700, 3000));
+		list.add(uni("IOWA STATE", "IOWA", 700, 30000));
+		catalog = ColumnarCatalog.of(list);
+
+		SearchCriteria c = new SearchCriteria();
+		c.setState("MINNESOTA");
+		Assert.assertEquals(2, names(c).size());
+		Assert.assertEquals("BRANDEIS", names(c).get(1));
+		c.setState("TEXAS");
+		Assert.assertEquals(1, names(c).size());
+		c.setLocation("URBAN");
+		Assert.assertTrue(names(c).isEmpty());
+	}
+
+	@Test
+	public void testEmphases() {
+		SearchCriteria c = new SearchCriteria();
+		c.addEmphasis("LIBERAL ARTS");
+		Assert.assertEquals(2, names(c).size());
+
+		c.addEmphasis("biology");
+		Assert.assertEquals("SAINT JOHNS UNIVERSITY", names(c).get(0));
+		Assert.assertEquals(1, names(c).size());
+
+		c.addEmphasis("ASTRONOMY");
+		Assert.assertTrue(names(c).isEmpty());
+	}
+
+	@Test
+	public void testSelectiveRangeUsesIndex() {
+		List<University> list = new ArrayList<>();
+		for(int i = 0; i < 1000; i++) {
+			list.add(uni("SCHOOL " + i, i % 2 == 0 ? "MINNESOTA" : "IOWA", 200 + (i % 601), 1000 + i));
+		}
+		ColumnarCatalog big = ColumnarCatalog.of(list);
+
+		SearchCriteria c = new SearchCriteria();
+		c.setState("MINNESOTA");
+		c.setMinSatMath(790);
+		c.setMaxSatMath(800);
+		CompiledQuery q = CompiledQuery.compile(c, big);
+		Assert.assertTrue(q.usesIndex());
+		Assert.assertEquals(1, q.filterCount());
+
+		int[] rows = q.execute();
+		int expected = 0;
+		for(int row = 0; row < big.size(); row++) {
+			double sat = big.get(ColumnarCatalog.Column.SAT_MATH, row);
+			if(row % 2 == 0 && sat >= 790 && sat <= 800) expected++;
+		}
+		Assert.assertEquals(expected, rows.length);
+		for(int i = 1; i < rows.length; i++) Assert.assertTrue(rows[i - 1] < rows[i]);
+
+		// a broad range is scanned instead
+		c = new SearchCriteria();
+		c.setMinSatMath(200);
+		Assert.assertFalse(CompiledQuery.compile(c, big).usesIndex());
+	}
+
+	@Test
+	public void testCombined() {
+		SearchCriteria c = new SearchCriteria();
+		c.setState("MINNESOTA");
+		c.setMinStudents(1000);
+		c.setMaxStudents(3000);
+		c.setMinSatMath(700);
+		c.addEmphasis("LIBERAL ARTS");
+		CompiledQuery q = CompiledQuery.compile(c, catalog);
+		Assert.assertEquals(4, q.filterCount() + (q.usesIndex() ? 1 : 0));
+		Assert.assertEquals("CARLETON", names(c).get(0));
+		Assert.assertEquals(1, names(c).size());
+	}
+
+	@Test
+	public void testParallelMatchesSequential() {
+		Random random = new Random(3);
+		List<University> list = new ArrayList<>();
+		String[] states = { "MINNESOTA", "IOWA", "WISCONSIN" };
+		for(int i = 0; i < 20000; i++) {
+			list.add(uni("U" + i, states[random.nextInt(3)], 400 + random.nextInt(400), random.nextInt(40000),
+					random.nextBoolean() ? "BIOLOGY" : "HISTORY"));
+		}
+		ColumnarCatalog big = ColumnarCatalog.of(list);
+		for(int i = 0; i < 20000; i += 7) big.remove("U" + i);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			SearchCriteria broad = new SearchCriteria();
+			broad.setControl("PRIVATE");
+			SearchCriteria narrow = new SearchCriteria();
+			narrow.setState("IOWA");
+			narrow.setMinSatMath(700);
+			narrow.addEmphasis("BIOLOGY");
+			for(SearchCriteria c : new SearchCriteria[] { broad, narrow, new SearchCriteria() }) {
+				CompiledQuery q = CompiledQuery.compile(c, big);
+				Assert.assertArrayEquals(q.execute(), q.execute(pool, 1000));
+			}
+		}
+		finally {
+			pool.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+package cmc.backend.search;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import cmc.backend.catalog.ColumnarCatalog;
+import cmc.backend.catalog.ColumnarCatalog.Column;
+import cmc.backend.entities.University;
+
+/**
+ * Tests the similar-schools recommender against a brute-force ranking.
+ */
+public class SimilarSchoolsTest {
+
+	private static University uni(String name, double satMath, double expenses, int academics) {
+		University u = new University(name);
+		u.setSatMath(satMath);
+		u.setExpenses(expenses);
+		u.setScaleAcademics(academics);
+		return u;
+	}
+
+	@Test
+	public void testNearest() {
+		List<University> list = new ArrayList<>();
+		list.add(uni("A", 700, 50000, 5));
+		list.add(uni("B", 690, 48000, 5));
+		list.add(uni("C", 500, 20000, 2));
+		list.add(uni("D", 680, 45000, 4));
+		list.add(uni("E", -1, -1, -1));
+		ColumnarCatalog catalog = ColumnarCatalog.of(list);
+		catalog.remove("D");
+
+		SimilarSchools similar = SimilarSchools.build(catalog);
+		int[] rows = similar.nearest(catalog.rowOf("A"), 2);
+		Assert.assertEquals(2, rows.length);
+		Assert.assertEquals("B", catalog.getName(rows[0]));
+		// a school with nothing known sits at the mean, between A and C
+		Assert.assertEquals("E", catalog.getName(rows[1]));
+		// asking for more than there are returns every other live school
+		Assert.assertEquals(3, similar.nearest(catalog.rowOf("A"), 10).length);
+	}
+
+	@Test
+	public void testWeights() {
+		List<University> list = new ArrayList<>();
+		list.add(uni("A", 700, 50000, 5));
+		list.add(uni("CHEAP", 700, 10000, 1));
+		list.add(uni("PRICEY", 400, 50000, 1));
+		ColumnarCatalog catalog = ColumnarCatalog.of(list);
+
+		Map<Column, Double> weights = new EnumMap<>(Column.class);
+		weights.put(Column.EXPENSES, 1d);
+		Assert.assertEquals("PRICEY", catalog.getName(SimilarSchools.build(catalog, weights).nearest(0, 1)[0]));
+		weights.put(Column.EXPENSES, 0d);
+		weights.put(Column.SAT_MATH, 1d);
+		Assert.assertEquals("CHEAP", catalog.getName(SimilarSchools.build(catalog, weights).nearest(0, 1)[0]));
+	}
+
+	@Test
+	public void testMatchesBruteForce() {
+		Random random = new Random(7);
+		List<University> list = new ArrayList<>();
+		for(int i = 0; i < 2000; i++) {
+			list.add(uni("U" + i, 400 + random.nextInt(400), 10000 + random.nextInt(40000), 1 + random.nextInt(5)));
+		}
+		ColumnarCatalog catalog = ColumnarCatalog.of(list);
+		SimilarSchools similar = SimilarSchools.build(catalog);
+
+		int target = 123;
+		int[] rows = similar.nearest(target, 25);
+		List<Integer> all = new ArrayList<>();
+		for(int row = 0; row < catalog.size(); row++) {
+			if(row != target) all.add(row);
+		}
+		all.sort((a, b) -> Double.compare(similar.distance(target, a), similar.distance(target, b)));
+		for(int i = 0; i < rows.length; i++) {
+			Assert.assertEquals(similar.distance(target, all.get(i)), similar.distance(target, rows[i]), 1e-9);
+		}
+	}
+
+}
@@ -0,0 +1,106 @@
+package cmc.backend.session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cmc.CMCException;
+import cmc.backend.SystemController;
+import cmc.backend.controller.DatabaseController;
+import cmc.backend.controller.SearchCriteria;
+import cmc.backend.entities.University;
+import cmc.backend.storage.MemoryStorage;
+
+/**
+ * Tests many sessions sharing one controller on in-memory storage.
+ */
+public class SessionManagerTest {
+
+	private static final int USERS = 50;
+
+	private SystemController system;
+
+	@Before
+	public void setUp() throws CMCException {
+		DatabaseController db = new DatabaseController(new MemoryStorage());
+		for(int i = 0; i < USERS; i++) db.addUser("user" + i, "pw", 'u', "FIRST", "LAST");
+		db.addUser("admin", "pw", 'a', "ADMIN", "ADMIN");
+		for(int i = 0; i < 10; i++) {
+			University u = new University("SCHOOL " + i);
+			u.setState("MINNESOTA");
+			db.addNewUniversity(u);
+		}
+		system = new SystemController(db);
+	}
+
+	@Test
+	public void testLoginAndLogout() throws CMCException {
+		SessionManager sessions = new SessionManager(system);
+		Assert.assertNull(sessions.login("user0", "wrong"));
+		Session s = sessions.login("user0", "pw");
+		Assert.assertEquals("user0", s.getUser().getUsername());
+		Assert.assertSame(s, sessions.get(s.getId()));
+		Assert.assertNotEquals(s.getId(), sessions.login("user0", "pw").getId());
+		Assert.assertEquals(2, sessions.size());
+
+		Assert.assertTrue(sessions.logout(s.getId()));
+		Assert.assertNull(sessions.get(s.getId()));
+		Assert.assertFalse(sessions.logout(s.getId()));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUsersAreForAdmins() throws CMCException {
+		SessionManager sessions = new SessionManager(system);
+		Session admin = sessions.login("admin", "pw");
+		Assert.assertEquals(USERS + 1, admin.getUserPage(null, 1000).getItems().size());
+		sessions.login("user0", "pw").getUserPage(null, 10);
+	}
+
+	@Test
+	public void testExpiresIdleSessions() throws Exception {
+		SessionManager sessions = new SessionManager(system, 10);
+		Session s = sessions.login("user0", "pw");
+		sessions.login("user1", "pw");
+		Thread.sleep(30);
+		Assert.assertNull(sessions.get(s.getId()));
+		Assert.assertEquals(1, sessions.expireIdle());
+		Assert.assertEquals(0, sessions.size());
+	}
+
+	@Test
+	public void testConcurrentSessionsStaySeparate() throws Exception {
+		SessionManager sessions = new SessionManager(system);
+		ExecutorService pool = Executors.newFixedThreadPool(16);
+		try {
+			List<Future<List<String>>> saved = new ArrayList<>();
+			for(int i = 0; i < USERS; i++) {
+				String username = "user" + i;
+				int school = i % 10;
+				saved.add(pool.submit((Callable<List<String>>) () -> {
+					Session s = sessions.login(username, "pw");
+					s.saveSchool("SCHOOL " + school);
+					s.saveSchool("SCHOOL " + (school + 1) % 10);
+					Assert.assertEquals(10, s.search(new SearchCriteria(), null, 20).getItems().size());
+					return sessions.get(s.getId()).getSavedSchools();
+				}));
+			}
+			for(int i = 0; i < USERS; i++) {
+				List<String> schools = saved.get(i).get();
+				Assert.assertEquals(2, schools.size());
+				Assert.assertEquals("SCHOOL " + i % 10, schools.get(0));
+			}
+			Assert.assertEquals(USERS, sessions.size());
+		}
+		finally {
+			pool.shutdownNow();
+		}
+	}
+
+}
@@ -0,0 +1,108 @@
+package cmc.backend.storage;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the call limiter without a database.
+ */
+public class CallLimiterTest {
+
+	@Test
+	public void testCountsCalls() {
+		CallLimiter limiter = new CallLimiter(2, 100);
+		Assert.assertEquals("done", limiter.call(() -> "done"));
+		Assert.assertEquals(Integer.valueOf(1), limiter.call(limiter::getInFlight));
+		Assert.assertEquals(0, limiter.getInFlight());
+		Assert.assertEquals(2, limiter.getCalls());
+	}
+
+	@Test
+	public void testReleasesWhenTheCallThrows() {
+		CallLimiter limiter = new CallLimiter(1, 20);
+		try {
+			limiter.call(() -> {
+				throw new IllegalArgumentException("bad");
+			});
+			Assert.fail();
+		}
+		catch(IllegalArgumentException e) {
+			// expected
+		}
+		Assert.assertEquals(0, limiter.getInFlight());
+		Assert.assertEquals("again", limiter.call(() -> "again"));
+	}
+
+	@Test
+	public void testTimesOut() throws Exception {
+		CallLimiter limiter = new CallLimiter(1, 20);
+		CountDownLatch inCall = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService other = Executors.newSingleThreadExecutor();
+		try {
+			other.execute(() -> limiter.call(() -> {
+				inCall.countDown();
+				try {
+					release.await();
+				}
+				catch(InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return null;
+			}));
+			Assert.assertTrue(inCall.await(5, TimeUnit.SECONDS));
+			try {
+				limiter.call(() -> "late");
+				Assert.fail("ran more calls than the limit");
+			}
+			catch(IllegalStateException e) {
+				// expected
+			}
+			Assert.assertEquals(1, limiter.getTimeouts());
+			Assert.assertTrue(limiter.getMaxWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+		}
+		finally {
+			release.countDown();
+			other.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testBoundsConcurrentCalls() throws Exception {
+		CallLimiter limiter = new CallLimiter(3, 5000);
+		AtomicInteger inUse = new AtomicInteger();
+		AtomicInteger most = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(40);
+		ExecutorService threads = Executors.newFixedThreadPool(10);
+		try {
+			for(int i = 0; i < 40; i++) {
+				threads.execute(() -> {
+					limiter.call(() -> {
+						most.accumulateAndGet(inUse.incrementAndGet(), Math::max);
+						try {
+							Thread.sleep(2);
+						}
+						catch(InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						return inUse.decrementAndGet();
+					});
+					done.countDown();
+				});
+			}
+			Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+		}
+		finally {
+			threads.shutdownNow();
+		}
+		Assert.assertTrue(most.get() <= 3);
+		Assert.assertEquals(40, limiter.getCalls());
+	}
+
+}
@@ -0,0 +1,188 @@
+package cmc.backend.storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cmc.backend.entities.University;
+
+/**
+ * Tests that the file storage survives being reopened, replays and
+ * compacts its log, and that storages can be chosen by name.
+ */
+public class FileStorageTest {
+
+	private Path dir;
+	private Path file;
+
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("cmc");
+		file = dir.resolve("cmc.dat");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+		Files.deleteIfExists(dir.resolve("cmc.dat.log"));
+		Files.deleteIfExists(dir);
+	}
+
+	private static void fill(Storage s) {
+		University u = new University("CARLETON");
+		u.setState("MINNESOTA");
+		u.setPercentFemale(51.5);
+		s.addUniversity(u);
+		s.addEmphasis("CARLETON", "BIOLOGY");
+		s.addUser("JOHN", "MILLER", "juser", "user", 'u');
+		s.editUser("juser", "JOHN", "MILLER", "user", 'u', 'N');
+		s.saveSchool("juser", "CARLETON");
+	}
+
+	private static void assertFilled(Storage s) {
+		Assert.assertEquals("51.5", s.getUniversities()[0][5]);
+		Assert.assertArrayEquals(new String[] { "CARLETON", "BIOLOGY" }, s.getNamesWithEmphases()[0]);
+		Assert.assertEquals("N", s.getUsers()[0][5]);
+		Assert.assertArrayEquals(new String[] { "juser", "CARLETON" }, s.getSavedSchools()[0]);
+	}
+
+	@Test
+	public void testReopen() throws IOException {
+		Assert.assertFalse(Files.exists(file));
+		fill(new FileStorage(file));
+		Assert.assertTrue(Files.exists(file));
+
+		FileStorage again = new FileStorage(file);
+		assertFilled(again);
+		Assert.assertEquals(1, again.removeSchool("juser", "CARLETON"));
+		Assert.assertEquals(0, new FileStorage(file).getSavedSchools().length);
+	}
+
+	@Test
+	public void testReplaysLog() throws IOException {
+		FileStorage s = new FileStorage(file);
+		long empty = Files.size(file);
+		fill(s);
+		// the writes only went to the log
+		Assert.assertEquals(empty, Files.size(file));
+		Assert.assertTrue(s.getLogSize() > 0);
+		assertFilled(new FileStorage(file));
+	}
+
+	@Test
+	public void testDropsTornRecord() throws IOException {
+		FileStorage s = new FileStorage(file);
+		fill(s);
+		s.addUser("JANE", "DOE", "jdoe", "pw", 'u');
+		s.close();
+		// a crash in the middle of appending the last record
+		Path log = s.getLogFile();
+		byte[] bytes = Files.readAllBytes(log);
+		Files.write(log, Arrays.copyOf(bytes, bytes.length - 3));
+
+		FileStorage again = new FileStorage(file);
+		assertFilled(again);
+		Assert.assertEquals(1, again.getUsers().length);
+		// and the log can be appended to again
+		Assert.assertEquals(1, again.addUser("JANE", "DOE", "jdoe", "pw", 'u'));
+		Assert.assertEquals(2, new FileStorage(file).getUsers().length);
+	}
+
+	@Test
+	public void testUnloggedWriteIsNotMade() throws IOException {
+		FileStorage s = new FileStorage(file);
+		fill(s);
+		// the log's channel fails every write from now on
+		s.close();
+		try {
+			s.addUser("JANE", "DOE", "jdoe", "pw", 'u');
+			Assert.fail("a write that couldn't be logged succeeded");
+		}
+		catch(UncheckedIOException e) {
+			// expected
+		}
+		try {
+			s.removeSchool("juser", "CARLETON");
+			Assert.fail("a write that couldn't be logged succeeded");
+		}
+		catch(UncheckedIOException e) {
+			// expected
+		}
+		// memory still matches what a restart would see
+		assertFilled(s);
+		Assert.assertEquals(1, s.getUsers().length);
+		FileStorage again = new FileStorage(file);
+		assertFilled(again);
+		Assert.assertEquals(1, again.getUsers().length);
+	}
+
+	@Test
+	public void testCompacts() throws IOException {
+		FileStorage s = new FileStorage(file, FileStorage.Sync.NEVER, 1000, 200);
+		fill(s);
+		for(int i = 0; i < 20; i++) s.addUser("USER", "" + i, "u" + i, "pw", 'u');
+		Assert.assertTrue(s.getLogSize() < 200);
+		s.close();
+
+		FileStorage again = new FileStorage(file);
+		assertFilled(again);
+		Assert.assertEquals(21, again.getUsers().length);
+	}
+
+	@Test
+	public void testGroupCommit() throws Exception {
+		FileStorage s = new FileStorage(file);
+		Thread[] threads = new Thread[8];
+		for(int t = 0; t < threads.length; t++) {
+			int id = t;
+			threads[t] = new Thread(() -> {
+				for(int i = 0; i < 25; i++) s.addUser("USER", "" + i, "u" + id + "-" + i, "pw", 'u');
+			});
+			threads[t].start();
+		}
+		for(Thread t : threads) t.join();
+		Assert.assertEquals(200, new FileStorage(file).getUsers().length);
+	}
+
+	@Test
+	public void testOpenByName() {
+		fill(Storages.open("file:" + file));
+
+		Storage memory = Storages.open("memory:" + file);
+		Assert.assertTrue(memory instanceof MemoryStorage);
+		assertFilled(memory);
+		// writes to a memory copy don't reach the file
+		memory.removeSchool("juser", "CARLETON");
+		assertFilled(Storages.open("file:" + file));
+
+		Assert.assertEquals(0, Storages.open("memory").getUsers().length);
+	}
+
+	@Test
+	public void testCopy() {
+		MemoryStorage from = new MemoryStorage();
+		fill(from);
+		MemoryStorage to = (MemoryStorage)Storages.open("file:" + file);
+		Storages.copy(from, to);
+		assertFilled(Storages.open("file:" + file));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownName() {
+		Storages.open("postgres");
+	}
+
+	@Test(expected = IOException.class)
+	public void testNotADataFile() throws IOException {
+		Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+		new FileStorage(file);
+	}
+
+}
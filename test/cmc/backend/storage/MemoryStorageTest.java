@@ -0,0 +1,84 @@
+package cmc.backend.storage;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cmc.backend.entities.University;
+
+/**
+ * Tests that the in-memory storage behaves like the database library.
+ */
+public class MemoryStorageTest {
+
+	private MemoryStorage storage;
+
+	@Before
+	public void setUp() {
+		storage = new MemoryStorage();
+		University u = new University("CARLETON");
+		u.setState("MINNESOTA");
+		u.setNumStudents(2000);
+		u.setSatMath(700);
+		Assert.assertEquals(1, storage.addUniversity(u));
+		Assert.assertEquals(1, storage.addUser("JOHN", "MILLER", "juser", "user", 'u'));
+	}
+
+	@Test
+	public void testUsers() {
+		Assert.assertEquals(-1, storage.addUser("X", "Y", "juser", "pw", 'u'));
+		String[][] users = storage.getUsers();
+		Assert.assertArrayEquals(new String[] { "JOHN", "MILLER", "juser", "user", "u", "Y" }, users[0]);
+
+		Assert.assertEquals(1, storage.editUser("juser", "JOHN", "MILLER", "new", 'u', 'N'));
+		Assert.assertEquals("N", storage.getUsers()[0][5]);
+		Assert.assertEquals(0, storage.editUser("nobody", "A", "B", "C", 'u', 'Y'));
+
+		// rows are copies
+		users[0][3] = "changed";
+		Assert.assertEquals("new", storage.getUsers()[0][3]);
+
+		Assert.assertEquals(1, storage.deleteUser("juser"));
+		Assert.assertEquals(0, storage.deleteUser("juser"));
+	}
+
+	@Test
+	public void testUniversityRowsParse() {
+		String[] row = storage.getUniversities()[0];
+		Assert.assertEquals(16, row.length);
+		Assert.assertEquals("CARLETON", row[0]);
+		Assert.assertEquals(2000, Integer.parseInt(row[4]));
+		Assert.assertEquals(700, Double.parseDouble(row[7]), 0);
+		Assert.assertEquals(-1, Integer.parseInt(row[15]));
+
+		University u = new University("CARLETON");
+		u.setNumStudents(2100);
+		Assert.assertEquals(1, storage.editUniversity(u));
+		Assert.assertEquals("2100", storage.getUniversities()[0][4]);
+		Assert.assertEquals(-1, storage.addUniversity(u));
+		Assert.assertEquals(0, storage.editUniversity(new University("NOWHERE")));
+	}
+
+	@Test
+	public void testReferences() {
+		Assert.assertEquals(1, storage.addEmphasis("CARLETON", "BIOLOGY"));
+		Assert.assertEquals(-1, storage.addEmphasis("CARLETON", "BIOLOGY"));
+		Assert.assertEquals(-1, storage.addEmphasis("NOWHERE", "BIOLOGY"));
+		Assert.assertEquals(1, storage.getEmphases().length);
+
+		Assert.assertEquals(1, storage.saveSchool("juser", "CARLETON"));
+		Assert.assertEquals(-1, storage.saveSchool("juser", "CARLETON"));
+		Assert.assertEquals(-1, storage.saveSchool("juser", "NOWHERE"));
+		Assert.assertEquals(-1, storage.saveSchool("nobody", "CARLETON"));
+
+		// like foreign keys, children must go first
+		Assert.assertEquals(-1, storage.deleteUniversity("CARLETON"));
+		Assert.assertEquals(-1, storage.deleteUser("juser"));
+		Assert.assertEquals(1, storage.removeEmphasis("CARLETON", "BIOLOGY"));
+		Assert.assertEquals(0, storage.removeEmphasis("CARLETON", "BIOLOGY"));
+		Assert.assertEquals(1, storage.removeSchool("juser", "CARLETON"));
+		Assert.assertEquals(1, storage.deleteUniversity("CARLETON"));
+		Assert.assertEquals(1, storage.deleteUser("juser"));
+	}
+
+}
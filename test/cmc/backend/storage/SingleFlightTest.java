@@ -0,0 +1,129 @@
+package cmc.backend.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests that concurrent loads of one key share a single fetch.
+ */
+public class SingleFlightTest {
+
+	// waits until the given number of threads are on the key
+	private static void awaitInFlight(SingleFlight<String, ?> flights, String key, int n) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while(flights.getInFlight(key) < n) {
+			Assert.assertTrue("threads never joined the fetch", System.currentTimeMillis() < deadline);
+			Thread.sleep(1);
+		}
+	}
+
+	@Test
+	public void testCoalescesConcurrentLoads() throws Exception {
+		SingleFlight<String, String[][]> flights = new SingleFlight<>(rows -> new String[][] { rows[0].clone() });
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(5);
+		try {
+			List<Future<String[][]>> loads = new ArrayList<>();
+			for(int i = 0; i < 5; i++) {
+				loads.add(pool.submit(() -> flights.load("users", () -> {
+					calls.incrementAndGet();
+					try {
+						release.await();
+					}
+					catch(InterruptedException e) {
+						throw new IllegalStateException(e);
+					}
+					return new String[][] { { "juser" } };
+				})));
+			}
+			awaitInFlight(flights, "users", 5);
+			Assert.assertEquals(Integer.valueOf(5), flights.getInFlight().get("users"));
+			release.countDown();
+
+			List<String[]> rows = new ArrayList<>();
+			for(Future<String[][]> f : loads) rows.add(f.get(5, TimeUnit.SECONDS)[0]);
+			for(String[] row : rows) Assert.assertEquals("juser", row[0]);
+			// every caller, the fetching one too, got its own copy
+			for(int i = 0; i < rows.size(); i++) {
+				for(int j = i + 1; j < rows.size(); j++) Assert.assertNotSame(rows.get(i), rows.get(j));
+			}
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		Assert.assertEquals(1, calls.get());
+		Assert.assertEquals(1, flights.getFetches());
+		Assert.assertEquals(4, flights.getShared());
+		Assert.assertEquals(0, flights.getInFlight("users"));
+
+		// a load after the fetch is done fetches again
+		flights.load("users", () -> new String[][] { { "nadmin" } });
+		Assert.assertEquals(2, flights.getFetches());
+	}
+
+	@Test
+	public void testSharesFailuresAndForgets() throws Exception {
+		SingleFlight<String, String> flights = new SingleFlight<>();
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		try {
+			Future<String> leader = pool.submit(() -> flights.load("k", () -> {
+				try {
+					release.await();
+				}
+				catch(InterruptedException e) {
+					throw new IllegalStateException(e);
+				}
+				throw new IllegalStateException("down");
+			}));
+			awaitInFlight(flights, "k", 1);
+			Future<String> follower = pool.submit(() -> flights.load("k", () -> "unused"));
+			awaitInFlight(flights, "k", 2);
+
+			// a forgotten fetch no longer collects new callers
+			flights.forget("k");
+			Assert.assertEquals("fresh", flights.load("k", () -> "fresh"));
+
+			release.countDown();
+			for(Future<String> f : Arrays.asList(leader, follower)) {
+				try {
+					f.get(5, TimeUnit.SECONDS);
+					Assert.fail("the fetch's failure was not shared");
+				}
+				catch(ExecutionException e) {
+					Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+					Assert.assertEquals("down", e.getCause().getMessage());
+				}
+			}
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		Assert.assertEquals(2, flights.getFetches());
+		Assert.assertEquals(1, flights.getShared());
+	}
+
+	@Test
+	public void testStorageForgetsAfterWrite() {
+		MemoryStorage memory = new MemoryStorage();
+		CoalescingStorage storage = new CoalescingStorage(memory);
+		Assert.assertEquals(0, storage.getUsers().length);
+		Assert.assertEquals(1, storage.addUser("JOHN", "MILLER", "juser", "user", 'u'));
+		Assert.assertEquals(1, storage.getUsers().length);
+		Assert.assertTrue(storage.getInFlight().isEmpty());
+		Assert.assertEquals(2, storage.getReads().getFetches());
+	}
+
+}
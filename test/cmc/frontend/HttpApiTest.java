@@ -0,0 +1,152 @@
+package cmc.frontend;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cmc.backend.SystemController;
+import cmc.backend.controller.DatabaseController;
+import cmc.backend.entities.University;
+import cmc.backend.session.SessionManager;
+import cmc.backend.storage.MemoryStorage;
+
+/**
+ * Calls the HTTP API over a loopback connection.
+ */
+public class HttpApiTest {
+
+	private HttpApi api;
+
+	@Before
+	public void setUp() throws Exception {
+		DatabaseController db = new DatabaseController(new MemoryStorage());
+		db.addUser("juser", "user", 'u', "JOHN", "MILLER");
+		for(int i = 0; i < 3; i++) {
+			University u = new University("SCHOOL " + i);
+			u.setState(i == 0 ? "IOWA" : "MINNESOTA");
+			u.setSatMath(500 + 100 * i);
+			u.addEmphasis("BIOLOGY");
+			db.addNewUniversity(u);
+		}
+		api = new HttpApi(new SessionManager(new SystemController(db)),
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), Executors.newCachedThreadPool());
+		api.start();
+	}
+
+	@After
+	public void tearDown() {
+		api.stop();
+	}
+
+	// {status, body}
+	private String[] call(String method, String path, String session, String form) throws IOException {
+		HttpURLConnection c = (HttpURLConnection) new URL("http://127.0.0.1:" + api.getPort() + path).openConnection();
+		c.setRequestMethod(method);
+		if(session != null) c.setRequestProperty("Authorization", "Bearer " + session);
+		if(form != null) {
+			c.setDoOutput(true);
+			c.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+			try(OutputStream out = c.getOutputStream()) {
+				out.write(form.getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		int status = c.getResponseCode();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		try(InputStream in = status < 400 ? c.getInputStream() : c.getErrorStream()) {
+			byte[] buf = new byte[1024];
+			for(int n; (n = in.read(buf)) > 0; ) body.write(buf, 0, n);
+		}
+		return new String[] { String.valueOf(status), new String(body.toByteArray(), StandardCharsets.UTF_8) };
+	}
+
+	@Test
+	public void testSearchAndSave() throws IOException {
+		Assert.assertEquals("401", call("GET", "/search", null, null)[0]);
+		Assert.assertEquals("401", call("POST", "/login", null, "username=juser&password=wrong")[0]);
+
+		String[] login = call("POST", "/login", null, "username=juser&password=user");
+		Assert.assertEquals("200", login[0]);
+		String session = login[1].replaceAll(".*\"session\":\"([0-9a-f]+)\".*", "$1");
+
+		String[] found = call("GET", "/search?state=MINNESOTA&minSatMath=650&emphasis=BIOLOGY", session, null);
+		Assert.assertEquals("{\"schools\":[{\"name\":\"SCHOOL 2\",\"state\":\"MINNESOTA\"}],\"next\":null}", found[1]);
+		Assert.assertEquals("400", call("GET", "/search?minSatMath=lots", session, null)[0]);
+
+		Assert.assertEquals("{\"saved\":true}", call("POST", "/saved", session, "school=SCHOOL+1")[1]);
+		Assert.assertEquals("{\"saved\":false}", call("POST", "/saved", session, "school=SCHOOL+1")[1]);
+		Assert.assertEquals("404", call("POST", "/saved", session, "school=NOWHERE")[0]);
+		Assert.assertEquals("{\"schools\":[\"SCHOOL 1\"]}", call("GET", "/saved", session, null)[1]);
+
+		String[] details = call("GET", "/university?name=SCHOOL%200", session, null);
+		Assert.assertTrue(details[1], details[1].contains("\"state\":\"IOWA\""));
+		Assert.assertTrue(details[1], details[1].endsWith("\"emphases\":[\"BIOLOGY\"]}"));
+
+		Assert.assertEquals("200", call("POST", "/logout", session, "")[0]);
+		Assert.assertEquals("401", call("GET", "/saved", session, null)[0]);
+	}
+
+	@Test
+	public void testRejectsUnsafeRequests() throws IOException {
+		// credentials in the URL are ignored, so they never work
+		Assert.assertEquals("400", call("POST", "/login?username=juser&password=user", null, "")[0]);
+
+		StringBuilder big = new StringBuilder("username=juser&password=user&pad=");
+		while(big.length() <= HttpApi.MAX_BODY_BYTES) big.append('x');
+		Assert.assertEquals("413", call("POST", "/login", null, big.toString())[0]);
+		Assert.assertEquals("200", call("POST", "/login", null, "username=juser&password=user")[0]);
+	}
+
+	@Test
+	public void testEveryFailureGetsAResponse() throws Exception {
+		DatabaseController broken = new DatabaseController(new MemoryStorage() {
+			@Override
+			public int saveSchool(String username, String school) {
+				throw new Error("The database is gone.");
+			}
+		});
+		broken.addUser("juser", "user", 'u', "JOHN", "MILLER");
+		broken.addNewUniversity(new University("SCHOOL 0"));
+		api.stop();
+		api = new HttpApi(new SessionManager(new SystemController(broken)),
+				new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), Executors.newCachedThreadPool());
+		api.start();
+
+		String session = call("POST", "/login", null, "username=juser&password=user")[1].split("\"")[3];
+		String[] saved = call("POST", "/saved", session, "school=SCHOOL+0");
+		Assert.assertEquals("500", saved[0]);
+		Assert.assertEquals("{\"error\":\"The database is gone.\"}", saved[1]);
+
+		// a chunked body that can't be read
+		try(Socket s = new Socket(InetAddress.getLoopbackAddress(), api.getPort())) {
+			s.setSoTimeout(5000);
+			OutputStream out = s.getOutputStream();
+			out.write(("POST /login HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n"
+					+ "not a chunk\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+			BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+			Assert.assertEquals("HTTP/1.1 400 Bad Request", in.readLine());
+		}
+	}
+
+	@Test
+	public void testQuote() {
+		Assert.assertEquals("\"a\\\"b\\\\c\\n\\u0001\"", HttpApi.quote("a\"b\\c\n\u0001"));
+		Assert.assertEquals("null", HttpApi.quote(null));
+	}
+
+}
@@ -0,0 +1,100 @@
+package cmc.frontend;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import cmc.backend.SystemController;
+import cmc.backend.controller.DatabaseController;
+import cmc.backend.entities.University;
+import cmc.backend.session.SessionManager;
+import cmc.backend.storage.MemoryStorage;
+
+/**
+ * Talks to a session server over a real loopback socket.
+ */
+public class SessionServerTest {
+
+	private SessionServer server;
+
+	@Before
+	public void setUp() throws Exception {
+		DatabaseController db = new DatabaseController(new MemoryStorage());
+		db.addUser("juser", "user", 'u', "JOHN", "MILLER");
+		for(int i = 0; i < 25; i++) {
+			University u = new University("SCHOOL " + i);
+			u.setState("IOWA");
+			db.addNewUniversity(u);
+		}
+		server = new SessionServer(new SessionManager(new SystemController(db)), 0, Executors.newCachedThreadPool());
+		server.start();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		server.close();
+	}
+
+	@Test
+	public void testConversation() throws Exception {
+		try(Socket s = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+				BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter out = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), true)) {
+			out.println("SAVED");
+			Assert.assertEquals("ERR Not logged in.", in.readLine());
+
+			out.println("LOGIN juser user");
+			Assert.assertTrue(in.readLine().startsWith("OK "));
+
+			out.println("SEARCH IOWA");
+			Assert.assertEquals("OK 20 MORE", in.readLine());
+			for(int i = 0; i < 20; i++) in.readLine();
+			out.println("MORE");
+			Assert.assertEquals("OK 5", in.readLine());
+			for(int i = 0; i < 5; i++) in.readLine();
+
+			out.println("SAVE SCHOOL 3");
+			Assert.assertEquals("OK", in.readLine());
+			out.println("SAVED");
+			Assert.assertEquals("OK 1", in.readLine());
+			Assert.assertEquals("SCHOOL 3", in.readLine());
+
+			out.println("SAVE NO SUCH SCHOOL");
+			Assert.assertTrue(in.readLine().startsWith("ERR "));
+			out.println("SAVED");
+			Assert.assertEquals("OK 1", in.readLine());
+			Assert.assertEquals("SCHOOL 3", in.readLine());
+
+			out.println("USERS");
+			Assert.assertEquals("ERR Only admins can do that.", in.readLine());
+			out.println("QUIT");
+			Assert.assertEquals("OK", in.readLine());
+		}
+	}
+
+	@Test
+	public void testCloseDropsOpenConnections() throws Exception {
+		try(Socket s = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+				BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+				PrintWriter out = new PrintWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), true)) {
+			s.setSoTimeout(5000);
+			out.println("LOGIN juser user");
+			Assert.assertTrue(in.readLine().startsWith("OK "));
+
+			server.close();
+			// the server hung up instead of leaving the connection open
+			Assert.assertNull(in.readLine());
+		}
+	}
+
+}
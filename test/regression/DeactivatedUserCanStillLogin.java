@@ -7,7 +7,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import cmc.CMCException;
-import cmc.backend.DatabaseController;
+import cmc.backend.controller.DatabaseController;
 import cmc.backend.SystemController;
 import cmc.backend.User;
 import junit.framework.Assert;
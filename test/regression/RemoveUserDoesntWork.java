@@ -5,6 +5,7 @@ import static org.junit.Assert.*;
 import org.junit.Test;
 
 import cmc.backend.*;
+import cmc.backend.controller.DatabaseController;
 import junit.framework.Assert;
 import cmc.*;
 
@@ -7,7 +7,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import cmc.CMCException;
-import cmc.backend.DatabaseController;
+import cmc.backend.controller.DatabaseController;
 import junit.framework.Assert;
 
 public class SaveSchoolFalseOnDuplicate {